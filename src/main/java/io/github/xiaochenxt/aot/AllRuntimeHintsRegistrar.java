@@ -1,30 +1,101 @@
 package io.github.xiaochenxt.aot;
 
+import io.github.xiaochenxt.aot.mybatis.TableEntityAnalyzer;
 import io.github.xiaochenxt.aot.utils.AotUtils;
+import io.github.xiaochenxt.aot.utils.HintCache;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import io.github.xiaochenxt.aot.utils.MemberUsageAnalyzer;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
 
-import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 将springboot项目中不含第三方库的所有类注册反射调用，为所有实现了Serializable的注册序列化，可解决90%的运行时错误问题
+ * <p>计算结果保存在{@link HintCache}中，未变化的类不会再次加载</p>
+ * <p>系统属性{@code xc.aot.reflection.mode=reachability}时这里不注册反射，改由{@link BasicFeature}在分析阶段
+ * 发现类可达后再注册，未被使用的类不会产生反射元数据（需同时传给spring-boot:process-aot和native-image）</p>
+ * <p>系统属性{@code xc.aot.reflection.members=usage}时由{@link MemberUsageAnalyzer}按用法收窄每个类注册的成员</p>
+ * <p>mybatis-plus实体（{@link TableEntityAnalyzer#entityClassNames}）不注册字段，字段由mybatis的aot处理按表字段注册</p>
  * @author xiaochen
  * @since 2025/5/23
  */
 public class AllRuntimeHintsRegistrar implements RuntimeHintsRegistrar {
 
+    public static final String REFLECTION_MODE_PROPERTY = "xc.aot.reflection.mode";
+
+    /**
+     * 逗号分隔的要跳过的注册，如{@code all-runtime-hints,caffeine}，用于对比各项注册对镜像的影响
+     */
+    public static final String EXCLUDE_PROPERTY = "xc.aot.exclude";
+
+    public static final String NAME = "all-runtime-hints";
+
+    /**
+     * 是否按可达性注册反射
+     * @return
+     */
+    static boolean reachabilityMode() {
+        return "reachability".equalsIgnoreCase(System.getProperty(REFLECTION_MODE_PROPERTY));
+    }
+
+    /**
+     * 注册是否被{@code xc.aot.exclude}跳过
+     * @param name 注册名称
+     * @return
+     */
+    static boolean excluded(String name) {
+        String value = System.getProperty(EXCLUDE_PROPERTY);
+        if (value == null || value.isBlank()) return false;
+        for (String excluded : value.split(",")) {
+            if (excluded.trim().equalsIgnoreCase(name)) {
+                HintMetrics.detail("skipping " + name + " registration");
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
-        try {
-            AotUtils aotUtils = new AotUtils(hints, classLoader);
-            List<Class<?>> classes = aotUtils.collectClass(aotUtils.findSpringBootApplicationClasses().getFirst().getPackageName());
-            aotUtils.registerReflection(classes);
-            aotUtils.registerPattern("*.properties"
-            //        , "*.types", "*.ttf", "*.ini"
-            );
-            aotUtils.registerSerializable(classes);
-        } catch (IOException ignored) {}
+        if (excluded(NAME)) return;
+        HintMetrics.time(NAME, () -> register(hints, classLoader));
+    }
+
+    private void register(RuntimeHints hints, ClassLoader classLoader) {
+        AotUtils aotUtils = new AotUtils(hints, classLoader);
+        Set<String> mainPackages = aotUtils.findMainPackages();
+        if (mainPackages.isEmpty()) return;
+        HintCache.Hints cached = HintCache.of("all-runtime-hints", aotUtils.classpathIndex()).compute(aotUtils.classpathIndex(),
+                aotUtils.collectClassNames(mainPackages.toArray(new String[0])), className -> {
+            HintCache.Hints classHints = new HintCache.Hints();
+            try {
+                Class<?> clazz = Class.forName(className, false, classLoader);
+                classHints.add(HintCache.REFLECTION, className);
+                if (Serializable.class.isAssignableFrom(clazz)) classHints.add(HintCache.SERIALIZATION, className);
+            } catch (ClassNotFoundException | LinkageError ignored) {}
+            return classHints;
+        });
+        if (!reachabilityMode()) {
+            Set<String> entityClassNames = TableEntityAnalyzer.entityClassNames(aotUtils.classpathIndex());
+            if (MemberUsageAnalyzer.enabled()) {
+                aotUtils.registerReflectionUsages(MemberUsageAnalyzer.analyze(aotUtils.classpathIndex(), cached.get(HintCache.REFLECTION)).stream()
+                        .map(usage -> entityClassNames.contains(usage.className()) ? usage.withoutFields() : usage).toList());
+            } else {
+                List<String> classNames = new ArrayList<>(cached.get(HintCache.REFLECTION));
+                List<String> entities = classNames.stream().filter(entityClassNames::contains).toList();
+                classNames.removeAll(entityClassNames);
+                aotUtils.registerReflectionTypes(AotUtils.defaultMemberCategory, classNames);
+                aotUtils.registerReflectionTypes(AotUtils.withoutFields(AotUtils.defaultMemberCategory), entities);
+            }
+        }
+        aotUtils.registerPattern("*.properties"
+        //        , "*.types", "*.ttf", "*.ini"
+        );
+        aotUtils.registerSerializableTypes(cached.get(HintCache.SERIALIZATION));
     }
 
 }
@@ -1,6 +1,11 @@
 package io.github.xiaochenxt.aot;
 
+import io.github.xiaochenxt.aot.mybatis.TableEntityAnalyzer;
+import io.github.xiaochenxt.aot.utils.ClasspathIndex;
 import io.github.xiaochenxt.aot.utils.FeatureUtils;
+import io.github.xiaochenxt.aot.utils.HintCache;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import io.github.xiaochenxt.aot.utils.MemberUsageAnalyzer;
 import org.graalvm.nativeimage.hosted.*;
 
 import java.awt.*;
@@ -10,14 +15,19 @@ import java.lang.invoke.SerializedLambda;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 基本注册，解决了一些代理检测无法自动配置的场景
  * <p>
  * 可搭配代理检测自动收集配置，但需注意，尽量不要在idea中启动，如果在idea等开发工具中启动，会收集idea的agent，
  * 会多出sun.instrument.InstrumentationImpl和com.intellij.rt.execution.application.AppMainV2$Agent等
- * ，最好移除掉（搜索agent、intellij等）</p>
+ * ，可使用{@link io.github.xiaochenxt.aot.utils.AgentConfigMinimizer}合并精简，会去掉这些类及已注册过的条目</p>
  * <p>虚拟机选项：-agentlib:native-image-agent=config-output-dir=src/main/resources/META-INF/native-image</p>
  * <p>代理使用方式：java -agentlib:native-image-agent=config-output-dir=src/main/resources/META-INF/native-image -jar app.jar</p>
  *
@@ -26,16 +36,38 @@ import java.util.List;
  */
 class BasicFeature implements Feature {
 
+    private static final String S_FUNCTION = "com.baomidou.mybatisplus.core.toolkit.support.SFunction";
+
     @Override
     public void beforeAnalysis(BeforeAnalysisAccess access) {
         FeatureUtils featureUtils = new FeatureUtils(access.getApplicationClassLoader());
-        caffeine(featureUtils, access);
-        lettuce(featureUtils);
-        font(featureUtils, access);
-        aliyuncs(featureUtils, access);
-        captcha(featureUtils, access);
-        phonenumbers(featureUtils, access);
-        serializedLambda(featureUtils, access);
+        register("caffeine", () -> caffeine(featureUtils, access));
+        register("lettuce", () -> lettuce(featureUtils));
+        register("font", () -> font(featureUtils, access));
+        register("aliyuncs", () -> aliyuncs(featureUtils, access));
+        register("captcha", () -> captcha(featureUtils, access));
+        register("phonenumbers", () -> phonenumbers(featureUtils, access));
+        register("serialized-lambda", () -> serializedLambda(featureUtils, access));
+        register("reachable-reflection", () -> reachableReflection(featureUtils, access));
+    }
+
+    @Override
+    public void afterAnalysis(AfterAnalysisAccess access) {
+        // 分析结束后不再需要读取类路径，关闭索引打开的jar，其他Feature之后的读取会重新打开
+        new FeatureUtils(access.getApplicationClassLoader()).classpathIndex().release();
+    }
+
+    @Override
+    public void afterImageWrite(AfterImageWriteAccess access) {
+        new FeatureUtils(access.getApplicationClassLoader()).classpathIndex().release();
+        HintMetrics.flush();
+    }
+
+    /**
+     * 执行一项注册并计时，名称出现在{@code xc.aot.exclude}中时跳过
+     */
+    private static void register(String name, Runnable registration) {
+        if (!AllRuntimeHintsRegistrar.excluded(name)) HintMetrics.time(name, registration);
     }
 
     /**
@@ -43,7 +75,7 @@ class BasicFeature implements Feature {
      * lib文件夹中要有fontconfig.bfc、fontconfig.properties.src、psfont.properties.ja、psfontj2d.properties
      */
     private void font(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
-        access.registerReachabilityHandler(duringAnalysisAccess -> {
+        access.registerReachabilityHandler(HintMetrics.timed("font", duringAnalysisAccess -> {
             try {
                 FontRequiredRegister.INSTANCE.register(new FeatureUtils(duringAnalysisAccess.getApplicationClassLoader()));
             } catch (Exception e) {
@@ -104,7 +136,7 @@ class BasicFeature implements Feature {
             // 需将运行时的java.home设置为当前目录
             RuntimeSystemProperties.register("java.home", "./");
             System.out.println("字体依赖lib文件夹，需要带上它一起打包");
-        }, Font.class);
+        }), Font.class);
     }
 
     /**
@@ -114,21 +146,21 @@ class BasicFeature implements Feature {
     private void caffeine(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
         Class<?> nodeFactory = featureUtils.loadClass("com.github.benmanes.caffeine.cache.NodeFactory");
         if (nodeFactory != null) {
-            access.registerReachabilityHandler(duringAnalysisAccess -> {
+            access.registerReachabilityHandler(HintMetrics.timed("caffeine", duringAnalysisAccess -> {
                 featureUtils.registerReflectionDeclaredConstructorsIfPresent(
                         "com.github.benmanes.caffeine.cache.PD","com.github.benmanes.caffeine.cache.PDA","com.github.benmanes.caffeine.cache.PDAMS",
                         "com.github.benmanes.caffeine.cache.PDW", "com.github.benmanes.caffeine.cache.PDWMS","com.github.benmanes.caffeine.cache.PS",
                         "com.github.benmanes.caffeine.cache.PSA","com.github.benmanes.caffeine.cache.PSAMS","com.github.benmanes.caffeine.cache.PSW",
                         "com.github.benmanes.caffeine.cache.PSWMS");
-            }, nodeFactory);
+            }), nodeFactory);
         }
         Class<?> localCacheFactory = featureUtils.loadClass("com.github.benmanes.caffeine.cache.LocalCacheFactory");
         if (localCacheFactory != null) {
-            access.registerReachabilityHandler(duringAnalysisAccess -> {
+            access.registerReachabilityHandler(HintMetrics.timed("caffeine", duringAnalysisAccess -> {
                 featureUtils.registerReflectionDeclaredConstructorsIfPresent(
                         "com.github.benmanes.caffeine.cache.SIMSA","com.github.benmanes.caffeine.cache.SIMSW",
                         "com.github.benmanes.caffeine.cache.SSMSA","com.github.benmanes.caffeine.cache.SSMSW");
-            }, localCacheFactory);
+            }), localCacheFactory);
         }
     }
 
@@ -140,7 +172,7 @@ class BasicFeature implements Feature {
         if (featureUtils.isPresent("com.aliyuncs.http.HttpClientFactory")) {
             Class<?> apacheHttpClient = featureUtils.loadClass("com.aliyuncs.http.clients.ApacheHttpClient");
             if (apacheHttpClient != null) {
-                access.registerReachabilityHandler(duringAnalysisAccess -> {
+                access.registerReachabilityHandler(HintMetrics.timed("aliyuncs", duringAnalysisAccess -> {
                     try {
                         RuntimeReflection.register(apacheHttpClient);
                         featureUtils.registerResource(apacheHttpClient,"endpoints.json");
@@ -151,7 +183,7 @@ class BasicFeature implements Feature {
                             featureUtils.registerReflectionBasic(assumeRoleResponse.getClasses());
                         }
                     } catch (Exception ignored) {}
-                }, apacheHttpClient);
+                }), apacheHttpClient);
             }
         }
     }
@@ -159,17 +191,17 @@ class BasicFeature implements Feature {
     private void captcha(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
         Class<?> captcha = featureUtils.loadClass("com.wf.captcha.base.Captcha");
         if (captcha != null) {
-            access.registerReachabilityHandler(duringAnalysisAccess -> {
+            access.registerReachabilityHandler(HintMetrics.timed("captcha", duringAnalysisAccess -> {
                 // 仅添加第一个字体，需要其他的自行添加
                 featureUtils.registerResource(captcha,"epilog.ttf");
-            }, captcha);
+            }), captcha);
         }
     }
 
     private void phonenumbers(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
         Class<?> phoneNumberUtil =  featureUtils.loadClass("com.google.i18n.phonenumbers.PhoneNumberUtil");
         if (phoneNumberUtil != null) {
-            access.registerReachabilityHandler(duringAnalysisAccess -> {
+            access.registerReachabilityHandler(HintMetrics.timed("phonenumbers", duringAnalysisAccess -> {
                 // 这里仅添加中国大陆、中国台湾、中国香港、中国澳门、俄罗斯、美国、韩国的手机号元数据，需要其他的自行添加
                 featureUtils.registerResource(phoneNumberUtil,"com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_CN",
                         "com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_TW",
@@ -178,18 +210,117 @@ class BasicFeature implements Feature {
                         "com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_RU",
                         "com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_US",
                         "com/google/i18n/phonenumbers/data/PhoneNumberMetadataProto_KR");
-            },  phoneNumberUtil);
+            }), phoneNumberUtil);
         }
     }
 
+    /**
+     * {@link AllRuntimeHintsRegistrar}的按可达性注册模式：启动类所在包下的类只有在分析阶段被发现可达时才注册反射，
+     * 注册的成员与{@link io.github.xiaochenxt.aot.utils.AotUtils#defaultMemberCategory}对应；不会预先加载任何类
+     * <p>mybatis-plus实体（{@link TableEntityAnalyzer#entityClassNames}）不注册字段</p>
+     */
+    private void reachableReflection(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
+        if (!AllRuntimeHintsRegistrar.reachabilityMode()) return;
+        try {
+            Set<String> mainPackages = featureUtils.findMainPackages();
+            Set<String> entityClassNames = TableEntityAnalyzer.entityClassNames(featureUtils.classpathIndex());
+            if (MemberUsageAnalyzer.enabled()) {
+                // 成员使用分析需要整个应用的字节码，只读取class文件，仍不加载类
+                Map<String, MemberUsageAnalyzer.MemberUsage> usages = new HashMap<>();
+                Set<String> classNames = featureUtils.collectClassNames(mainPackages.toArray(new String[0]));
+                for (MemberUsageAnalyzer.MemberUsage usage : MemberUsageAnalyzer.analyze(featureUtils.classpathIndex(), classNames)) {
+                    usages.put(usage.className(), usage);
+                }
+                featureUtils.onReachable(access, mainPackages, HintMetrics.timed("reachable-reflection", (duringAnalysisAccess, c) -> {
+                    MemberUsageAnalyzer.MemberUsage usage = usages.get(c.getName());
+                    if (usage != null) featureUtils.registerReflection(c, entityClassNames.contains(c.getName()) ? usage.withoutFields() : usage);
+                }));
+                return;
+            }
+            featureUtils.onReachable(access, mainPackages, HintMetrics.timed("reachable-reflection",
+                    (duringAnalysisAccess, c) -> {
+                        if (entityClassNames.contains(c.getName())) featureUtils.registerReflectionDeclaredExceptFields(c);
+                        else featureUtils.registerReflectionDeclared(c);
+                    }));
+        } catch (Exception e) {
+            System.out.println("按可达性注册反射失败，可能导致反射相关功能无法使用");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 只注册含有可序列化lambda（{@code altMetafactory}且带{@code FLAG_SERIALIZABLE}的invokedynamic）的类，
+     * 启动类所在包下的类只读取字节码判断，结果保存在{@link HintCache}中；
+     * 这些类在分析阶段被发现可达、且{@link SerializedLambda}也可达时才注册
+     * <p>含有mybatis-plus的{@code SFunction}的类另外注册lambda的{@code writeReplace}，见{@link #mybatisPlusLambda}</p>
+     */
     private void serializedLambda(FeatureUtils featureUtils, BeforeAnalysisAccess access) {
-        access.registerReachabilityHandler(duringAnalysisAccess -> {
+        Set<Class<?>> pending = new LinkedHashSet<>();
+        boolean[] serializedLambdaReachable = {false};
+        access.registerReachabilityHandler(HintMetrics.timed("serialized-lambda", duringAnalysisAccess -> {
             RuntimeSerialization.register(SerializedLambda.class);
-            try {
-                List<Class<?>> classes = featureUtils.collectClass(featureUtils.findMainPackages());
-                classes.forEach(featureUtils::registerSerializationLambdaCapturingClass);
-            } catch (Exception ignored) {}
-        }, SerializedLambda.class);
+            Class<?>[] classes;
+            synchronized (pending) {
+                serializedLambdaReachable[0] = true;
+                classes = pending.toArray(new Class<?>[0]);
+                pending.clear();
+            }
+            registerLambdaCapturingClass(featureUtils, classes);
+        }), SerializedLambda.class);
+        try {
+            ClasspathIndex index = featureUtils.classpathIndex();
+            Class<?> sFunction = featureUtils.loadClass(S_FUNCTION);
+            Set<String> classNames = featureUtils.collectClassNames(featureUtils.findMainPackages().toArray(new String[0]));
+            // 是否存在mybatis-plus决定了SFunction的归类，作为缓存的依赖
+            HintCache.Hints cached = HintCache.of("serialized-lambda", index).compute(index, classNames, sFunction == null ? "" : S_FUNCTION, className -> {
+                HintCache.Hints classHints = new HintCache.Hints();
+                Set<String> types = index.serializableLambdaTypes(className);
+                if (sFunction != null && types.contains(S_FUNCTION)) classHints.add(HintCache.REFLECTION, className);
+                if (types.stream().anyMatch(type -> sFunction == null || !S_FUNCTION.equals(type))) classHints.add(HintCache.SERIALIZATION, className);
+                return classHints;
+            });
+            if (sFunction != null) mybatisPlusLambda(featureUtils, access, sFunction, cached.get(HintCache.REFLECTION));
+            Set<String> capturingClassNames = new HashSet<>(cached.get(HintCache.SERIALIZATION));
+            // writeReplace调用失败时LambdaUtils会序列化整个lambda，SFunction的捕获类仍注册序列化作为兜底
+            capturingClassNames.addAll(cached.get(HintCache.REFLECTION));
+            if (capturingClassNames.isEmpty()) return;
+            featureUtils.onSubtypeReachable(access, Object.class, c -> capturingClassNames.contains(c.getName()),
+                    HintMetrics.timed("serialized-lambda", (duringAnalysisAccess, c) -> {
+                        synchronized (pending) {
+                            if (!serializedLambdaReachable[0]) {
+                                pending.add(c);
+                                return;
+                            }
+                        }
+                        registerLambdaCapturingClass(featureUtils, c);
+                    }));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * mybatis-plus的{@code LambdaUtils.extract}先通过反射调用lambda类的{@code writeReplace}取得{@link SerializedLambda}，
+     * 失败时才序列化整个lambda再读取；为应用代码中每个{@code SFunction}捕获点生成的lambda类注册{@code writeReplace}，
+     * 每次构建查询条件都走反射路径，序列化的注册只作为兜底
+     * @param capturingClassNames 含有{@code SFunction}的类
+     */
+    private void mybatisPlusLambda(FeatureUtils featureUtils, BeforeAnalysisAccess access, Class<?> sFunction, List<String> capturingClassNames) {
+        if (capturingClassNames.isEmpty()) return;
+        // lambda类名为捕获类名加上$$Lambda及序号或哈希
+        List<String> prefixes = capturingClassNames.stream().map(className -> className + "$$Lambda").toList();
+        featureUtils.onSubtypeReachable(access, sFunction, c -> prefixes.stream().anyMatch(c.getName()::startsWith),
+                HintMetrics.timed("mybatis-plus-lambda", (duringAnalysisAccess, c) -> {
+                    try {
+                        RuntimeReflection.register(c);
+                        RuntimeReflection.register(c.getDeclaredMethod("writeReplace"));
+                        HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
+                    } catch (NoSuchMethodException | LinkageError ignored) {}
+                }));
+    }
+
+    private static void registerLambdaCapturingClass(FeatureUtils featureUtils, Class<?>... classes) {
+        for (Class<?> c : classes) featureUtils.registerSerializationLambdaCapturingClassIfPresent(c.getName());
     }
 
 }
@@ -1,6 +1,7 @@
 package io.github.xiaochenxt.aot;
 
 import io.github.xiaochenxt.aot.utils.AotUtils;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
 
@@ -14,7 +15,7 @@ public class BasicRuntimeHintsRegistrar implements RuntimeHintsRegistrar {
     @Override
     public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
         AotUtils aotUtils = new AotUtils(hints, classLoader);
-        staticResource(aotUtils);
+        HintMetrics.time("basic-runtime-hints", () -> staticResource(aotUtils));
     }
 
     /**
@@ -0,0 +1,165 @@
+package io.github.xiaochenxt.aot;
+
+import io.github.xiaochenxt.aot.utils.ClassInitializationPlanner;
+import io.github.xiaochenxt.aot.utils.FeatureUtils;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeClassInitialization;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 构建期类初始化计划，启动时不再重复执行这些类的静态初始化块，缩短冷启动时间
+ * <ul>
+ *     <li>启动类所在包下的类：由{@link ClassInitializationPlanner}分析字节码，只有纯常量、枚举表、不可变映射等
+ *     可安全在构建期执行的静态初始化块才会注册，跳过的类数量输出在汇总中，verbose时输出每个类的原因</li>
+ *     <li>第三方库中已知安全的类：caffeine的节点，libphonenumber的国家码映射</li>
+ *     <li>mybatis映射快照，快照随镜像堆保存，启动时无需读取</li>
+ * </ul>
+ * <p>系统属性{@code xc.aot.init.mode}：off关闭，plan（默认）注册分析结果，
+ * verify在plan的基础上于分析结束后检查这些类的静态字段，持有线程、随机数、IO等运行期状态，
+ * 或静态初始化块读取了时间、系统属性、默认语言/时区/字符集时构建失败</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+class ClassInitializationFeature implements Feature {
+
+    static final String MODE_PROPERTY = "xc.aot.init.mode";
+
+    private static final String NAME = "class-initialization";
+
+    private static final List<String> LIBRARY_CLASSES = List.of(
+            "com.github.benmanes.caffeine.cache.PD", "com.github.benmanes.caffeine.cache.PDA",
+            "com.github.benmanes.caffeine.cache.PDAMS", "com.github.benmanes.caffeine.cache.PDW",
+            "com.github.benmanes.caffeine.cache.PDWMS", "com.github.benmanes.caffeine.cache.PS",
+            "com.github.benmanes.caffeine.cache.PSA", "com.github.benmanes.caffeine.cache.PSAMS",
+            "com.github.benmanes.caffeine.cache.PSW", "com.github.benmanes.caffeine.cache.PSWMS",
+            "com.google.i18n.phonenumbers.CountryCodeToRegionCodeMap",
+            "com.google.i18n.phonenumbers.ShortNumbersRegionCodeSet",
+            "com.google.i18n.phonenumbers.AlternateFormatsCountryCodeSet",
+            "io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot$Holder");
+
+    /**
+     * 不能出现在镜像堆中的运行期状态
+     */
+    private static final List<String> RUNTIME_STATE_TYPES = List.of(
+            "java.lang.Thread", "java.util.Random", "java.util.Timer", "java.util.concurrent.ExecutorService",
+            "java.io.FileDescriptor", "java.io.InputStream", "java.io.OutputStream", "java.io.Reader", "java.io.Writer",
+            "java.nio.channels.Channel", "java.net.Socket", "java.net.ServerSocket", "java.lang.ref.Cleaner",
+            "java.lang.ClassLoader", "org.slf4j.Logger", "org.apache.commons.logging.Log", "java.util.logging.Logger");
+
+    private final List<Class<?>> initialized = new ArrayList<>();
+
+    private ClassInitializationPlanner planner;
+
+    private static String mode() {
+        return System.getProperty(MODE_PROPERTY, "plan").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        if ("off".equals(mode())) return;
+        HintMetrics.time(NAME, () -> plan(access));
+    }
+
+    private void plan(BeforeAnalysisAccess access) {
+        FeatureUtils featureUtils = new FeatureUtils(access.getApplicationClassLoader());
+        for (String className : LIBRARY_CLASSES) {
+            Class<?> c = featureUtils.loadClass(className);
+            if (c != null) initializeAtBuildTime(c);
+        }
+        try {
+            Set<String> classNames = featureUtils.collectClassNames(featureUtils.findMainPackages().toArray(new String[0]));
+            planner = new ClassInitializationPlanner(featureUtils.classpathIndex());
+            ClassInitializationPlanner.Plan plan = planner.plan(classNames);
+            for (String className : plan.safe()) {
+                Class<?> c = featureUtils.loadClass(className);
+                if (c != null) initializeAtBuildTime(c);
+            }
+            plan.skipped().forEach((className, reason) ->
+                    HintMetrics.detail("skipping build-time initialization " + className + ": " + reason));
+            HintMetrics.summary("build-time initialization: " + plan.safe().size() + " classes, "
+                    + plan.skipped().size() + " skipped (-D" + HintMetrics.VERBOSITY_PROPERTY + "=verbose for reasons)");
+        } catch (Exception e) {
+            System.out.println("构建期类初始化分析失败，相关类将在运行期初始化");
+            e.printStackTrace();
+        }
+    }
+
+    private void initializeAtBuildTime(Class<?> c) {
+        RuntimeClassInitialization.initializeAtBuildTime(c);
+        initialized.add(c);
+        HintMetrics.detail("registering build-time initialization " + c.getName());
+    }
+
+    @Override
+    public void afterAnalysis(AfterAnalysisAccess access) {
+        if (!"verify".equals(mode())) return;
+        HintMetrics.time(NAME, this::verify);
+    }
+
+    private void verify() {
+        List<String> violations = new ArrayList<>();
+        // 初始化一个类时其父类也会被初始化，父类的静态初始化块和静态字段一并检查（jdk的类由native-image自行处理）
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Class<?> c : initialized) {
+            Class<?> current = c;
+            while (current != null && !current.getName().startsWith("java.") && classes.add(current)) current = current.getSuperclass();
+        }
+        if (planner != null) {
+            // 不依赖计划时的白名单，复查静态初始化块是否读取了构建机器的时间、系统属性、默认语言等
+            planner.environmentAccess(classes.stream().map(Class::getName).toList())
+                    .forEach((className, method) -> violations.add(className + " reads runtime environment via " + method));
+        }
+        for (Class<?> c : classes) {
+            try {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) continue;
+                    field.setAccessible(true);
+                    String type = runtimeStateType(field.get(null));
+                    if (type != null) violations.add(c.getName() + "." + field.getName() + " holds " + type);
+                }
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                violations.add(c.getName() + " cannot be verified: " + e);
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Unsafe build-time initialization:\n  " + String.join("\n  ", violations)
+                    + "\nSet -D" + MODE_PROPERTY + "=off to disable build-time initialization");
+        }
+        HintMetrics.summary("verified build-time initialization of " + initialized.size() + " classes");
+    }
+
+    /**
+     * 检查静态字段的值及其直接包含的元素
+     */
+    private static String runtimeStateType(Object value) {
+        if (value == null) return null;
+        String type = matchRuntimeStateType(value.getClass());
+        if (type != null) return type;
+        Collection<?> elements = value instanceof Collection<?> collection ? collection
+                : value instanceof Map<?, ?> map ? map.values()
+                : value instanceof Object[] array ? Arrays.asList(array) : List.of();
+        for (Object element : elements) {
+            if (element == null) continue;
+            type = matchRuntimeStateType(element.getClass());
+            if (type != null) return type;
+        }
+        return null;
+    }
+
+    private static String matchRuntimeStateType(Class<?> c) {
+        Deque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(c);
+        while (!queue.isEmpty()) {
+            Class<?> current = queue.poll();
+            if (RUNTIME_STATE_TYPES.contains(current.getName())) return current.getName();
+            if (current.getSuperclass() != null) queue.add(current.getSuperclass());
+            queue.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        return null;
+    }
+
+}
@@ -1,6 +1,21 @@
 package io.github.xiaochenxt.aot;
 
+import io.github.xiaochenxt.aot.mybatis.ConcurrentCache;
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot;
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshotCapture;
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshotRestorer;
+import io.github.xiaochenxt.aot.mybatis.MapperImplementationGenerator;
+import io.github.xiaochenxt.aot.mybatis.MapperImplementations;
+import io.github.xiaochenxt.aot.mybatis.MapperXmlIndex;
+import io.github.xiaochenxt.aot.mybatis.OgnlExpressionAnalyzer;
+import io.github.xiaochenxt.aot.mybatis.PlanCachingLanguageDriver;
+import io.github.xiaochenxt.aot.mybatis.ResultAccessorGenerator;
+import io.github.xiaochenxt.aot.mybatis.ResultAccessors;
+import io.github.xiaochenxt.aot.mybatis.TableEntityAnalyzer;
 import io.github.xiaochenxt.aot.utils.AotUtils;
+import io.github.xiaochenxt.aot.utils.HintCache;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import io.github.xiaochenxt.aot.utils.MemberUsageAnalyzer;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.InsertProvider;
@@ -22,12 +37,15 @@ import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.logging.stdout.StdOutImpl;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
-import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.*;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer;
+import org.mybatis.spring.boot.autoconfigure.MybatisProperties;
 import org.mybatis.spring.mapper.MapperFactoryBean;
 import org.mybatis.spring.mapper.MapperScannerConfigurer;
 import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.generate.GenerationContext;
 import org.springframework.aot.hint.ExecutableMode;
 import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHints;
@@ -35,6 +53,8 @@ import org.springframework.aot.hint.RuntimeHintsRegistrar;
 import org.springframework.beans.PropertyValue;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
 import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
 import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
@@ -50,14 +70,20 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.*;
 import java.util.function.Function;
@@ -83,12 +109,72 @@ public class MyBatisNativeConfiguration {
         return new MyBatisMapperFactoryBeanPostProcessor();
     }
 
+    @Bean
+    static MyBatisResultAccessorPostProcessor myBatisResultAccessorPostProcessor() {
+        return new MyBatisResultAccessorPostProcessor();
+    }
+
+    @Bean
+    static MyBatisMapperImplementationPostProcessor myBatisMapperImplementationPostProcessor() {
+        return new MyBatisMapperImplementationPostProcessor();
+    }
+
+    /**
+     * 方法签名引用了mybatis-spring-boot-autoconfigure中的类，单独放在条件配置中
+     */
+    @ConditionalOnClass(name = "org.mybatis.spring.boot.autoconfigure.SqlSessionFactoryBeanCustomizer")
+    @Configuration(proxyBeanMethods = false)
+    static class ConfigurationSnapshotConfiguration {
+
+        @Bean
+        ConfigurationSnapshotRestorer myBatisConfigurationSnapshotRestorer(ObjectProvider<MybatisProperties> properties) {
+            return new ConfigurationSnapshotRestorer(properties);
+        }
+
+    }
+
+    /**
+     * 动态sql按形状缓存生成结果，见{@link PlanCachingLanguageDriver}；需配置{@code xc.aot.mybatis.plan-cache.enabled=true}
+     */
+    @ConditionalOnProperty(value = "xc.aot.mybatis.plan-cache.enabled", havingValue = "true")
+    @ConditionalOnClass(name = "org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer")
+    @Configuration(proxyBeanMethods = false)
+    static class PlanCacheConfiguration {
+
+        @Bean
+        ConfigurationCustomizer myBatisPlanCacheCustomizer(Environment environment) {
+            int maxShapes = environment.getProperty("xc.aot.mybatis.plan-cache.size", Integer.class,
+                    PlanCachingLanguageDriver.DEFAULT_MAX_SHAPES);
+            return configuration -> PlanCachingLanguageDriver.install(configuration, maxShapes);
+        }
+
+    }
+
+    /**
+     * 注册{@link ConcurrentCache}的别名，映射文件中可用{@code <cache type="NATIVE"/>}按namespace选用
+     */
+    @ConditionalOnClass(name = "org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer")
+    @Configuration(proxyBeanMethods = false)
+    static class CacheConfiguration {
+
+        @Bean
+        ConfigurationCustomizer myBatisConcurrentCacheCustomizer() {
+            return configuration -> configuration.getTypeAliasRegistry().registerAlias(ConcurrentCache.ALIAS, ConcurrentCache.class);
+        }
+
+    }
+
     static class MyBaitsRuntimeHintsRegistrar implements RuntimeHintsRegistrar {
 
         @Override
         public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            HintMetrics.time("mybatis-runtime-hints", () -> register(hints, classLoader));
+        }
+
+        private void register(RuntimeHints hints, ClassLoader classLoader) {
             Stream.of(RawLanguageDriver.class,
                     XMLLanguageDriver.class,
+                    PlanCachingLanguageDriver.class,
                     RuntimeSupport.class,
                     ProxyFactory.class,
                     Slf4jImpl.class,
@@ -104,12 +190,24 @@ public class MyBatisNativeConfiguration {
                     LruCache.class,
                     SoftCache.class,
                     WeakCache.class,
+                    ConcurrentCache.class,
                     SqlSessionFactoryBean.class,
                     ArrayList.class,
                     HashMap.class,
                     TreeSet.class,
                     HashSet.class
             ).forEach(x -> hints.reflection().registerType(x, MemberCategory.values()));
+            // PlanCachingLanguageDriver读取运行时解析的动态sql树
+            Stream.of(DynamicSqlSource.class,
+                    MixedSqlNode.class,
+                    StaticTextSqlNode.class,
+                    TextSqlNode.class,
+                    IfSqlNode.class,
+                    TrimSqlNode.class,
+                    ForEachSqlNode.class,
+                    ChooseSqlNode.class,
+                    VarDeclSqlNode.class
+            ).forEach(x -> hints.reflection().registerType(x, MemberCategory.DECLARED_FIELDS));
             Stream.of("org/apache/ibatis/builder/xml/*.dtd", "org/apache/ibatis/builder/xml/*.xsd")
                     .forEach(hints.resources()::registerPattern);
             AotUtils aotUtils = new AotUtils(hints, classLoader);
@@ -134,6 +232,7 @@ public class MyBatisNativeConfiguration {
         private void supportMybatisPlus(AotUtils aotUtils) {
             Class<?> wrapper = aotUtils.loadClass("com.baomidou.mybatisplus.core.conditions.Wrapper");
             if (wrapper != null) {
+                // BasicFeature为应用中的SFunction lambda注册writeReplace，LambdaUtils优先走反射，序列化注册作为兜底
                 aotUtils.registerSerializableIfPresent("com.baomidou.mybatisplus.core.toolkit.support.SFunction");
                 aotUtils.registerReflectionIfPresent("com.baomidou.mybatisplus.core.MybatisXMLLanguageDriver",
                         "com.baomidou.mybatisplus.core.conditions.ISqlSegment");
@@ -170,66 +269,173 @@ public class MyBatisNativeConfiguration {
         public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
             String[] beanNames = beanFactory.getBeanNamesForType(MapperFactoryBean.class);
             if (beanNames.length == 0) return null;
-            return (context, code) -> {
+            return (context, code) -> HintMetrics.time("mybatis-mappers", () -> {
                 RuntimeHints hints = context.getRuntimeHints();
+                Map<String, Class<?>> mapperInterfaces = new LinkedHashMap<>();
                 for (String beanName : beanNames) {
                     BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName.substring(1));
                     PropertyValue mapperInterface = beanDefinition.getPropertyValues().getPropertyValue("mapperInterface");
                     if (mapperInterface != null && mapperInterface.getValue() != null) {
                         Class<?> mapperInterfaceType = (Class<?>) mapperInterface.getValue();
-                        if (mapperInterfaceType != null) {
-                            registerReflectionTypeIfNecessary(mapperInterfaceType, hints);
-                            hints.proxies().registerJdkProxy(mapperInterfaceType);
-                            hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(mapperInterfaceType));
-                            registerMapperRelationships(mapperInterfaceType, hints);
-                            String simpleName = mapperInterfaceType.getSimpleName();
-                            String resourceName = simpleName.concat(".xml");
-                            AotUtils aotUtils = new AotUtils(hints, ClassUtils.getDefaultClassLoader());
-                            try {
-                                Set<String> resources = aotUtils.findResources();
-                                for (String resource : resources) {
-                                    if (resource.endsWith(resourceName)) {
-                                        hints.resources().registerPattern(resource);
-                                        break;
-                                    }
-                                }
-                            } catch (IOException ignored) {}
-                        }
+                        if (mapperInterfaceType != null) mapperInterfaces.put(mapperInterfaceType.getName(), mapperInterfaceType);
                     }
                 }
-            };
+                AotUtils aotUtils = new AotUtils(hints, ClassUtils.getDefaultClassLoader());
+                MapperXmlIndex xmlIndex = MapperXmlIndex.of(aotUtils.classpathIndex(), beanFactory.getBean(Environment.class));
+                Set<String> snapshotTypes = new LinkedHashSet<>();
+                Set<Class<?>> expressionTypes = new LinkedHashSet<>();
+                Set<String> snapshotResources = snapshot(beanFactory, context, aotUtils, mapperInterfaces.values(),
+                        snapshotTypes, expressionTypes);
+                HintCache.Hints cached = HintCache.of("mybatis-mappers", aotUtils.classpathIndex()).compute(aotUtils.classpathIndex(), mapperInterfaces.keySet(), className -> {
+                    Class<?> mapperInterfaceType = mapperInterfaces.get(className);
+                    HintCache.Hints mapperHints = new HintCache.Hints();
+                    addReflectionTypeIfNecessary(mapperInterfaceType, mapperHints);
+                    mapperHints.add(HintCache.PROXY, mapperInterfaceType.getName());
+                    mapperHints.add(HintCache.PROXY, Arrays.stream(AopProxyUtils.completeJdkProxyInterfaces(mapperInterfaceType))
+                            .map(Class::getName).collect(Collectors.joining(",")));
+                    addMapperRelationships(mapperInterfaceType, mapperHints);
+                    return mapperHints;
+                });
+                Set<String> reflectionTypes = new LinkedHashSet<>(cached.get(HintCache.REFLECTION));
+                Set<String> accessorTypes = Set.of();
+                if (ResultAccessorGenerator.enabled()) {
+                    // 结果、参数类型的创建和属性读写改为生成的直接调用，全部覆盖的类型只保留Reflector需要的元数据
+                    Set<Class<?>> resultTypes = resultTypes(mapperInterfaces.values());
+                    for (String typeName : snapshotTypes) {
+                        resultTypes.add(ClassUtils.resolveClassName(typeName, beanFactory.getBeanClassLoader()));
+                    }
+                    resultTypes.addAll(expressionTypes);
+                    accessorTypes = new ResultAccessorGenerator(context, code).generate(resultTypes);
+                    reflectionTypes.removeAll(accessorTypes);
+                }
+                Map<Class<?>, List<Field>> entities = TableEntityAnalyzer.enabled(beanFactory.getBeanClassLoader())
+                        ? new TableEntityAnalyzer(beanFactory.getBeanClassLoader()).analyze(mapperInterfaces.values()) : Map.of();
+                Set<String> entityTypes = entities.keySet().stream().map(Class::getName).collect(Collectors.toSet());
+                if (!entityTypes.isEmpty()) {
+                    // mybatis-plus实体只注册表字段，不能再按访问器或声明的成员注册全部字段
+                    TableEntityAnalyzer.register(hints, entities, accessorTypes);
+                    reflectionTypes.removeAll(entityTypes);
+                    accessorTypes = new LinkedHashSet<>(accessorTypes);
+                    accessorTypes.removeAll(entityTypes);
+                }
+                aotUtils.registerReflectionTypes(ResultAccessorGenerator.ACCESSOR_MEMBERS, accessorTypes);
+                // 动态sql的ognl表达式读取属性的类型，没有完整的访问器时ognl仍通过反射调用getter
+                for (Class<?> expressionType : expressionTypes) {
+                    String typeName = expressionType.getName();
+                    if (!accessorTypes.contains(typeName) && !entityTypes.contains(typeName)) reflectionTypes.add(typeName);
+                }
+                if (MapperImplementationGenerator.enabled()) {
+                    // MapperFactoryBean仍会先创建一次代理，代理注册保留
+                    new MapperImplementationGenerator(context, code, beanFactory.getBeanClassLoader()).generate(mapperInterfaces.values());
+                }
+                if (MemberUsageAnalyzer.enabled()) {
+                    // 结果、参数和provider类型只会被Reflector等读取声明的成员，mapper接口仍注册全部
+                    Set<String> mappedTypes = new LinkedHashSet<>(reflectionTypes);
+                    mappedTypes.removeAll(mapperInterfaces.keySet());
+                    reflectionTypes.removeAll(mappedTypes);
+                    aotUtils.registerReflectionTypes(MemberUsageAnalyzer.DECLARED_MEMBERS, mappedTypes);
+                }
+                aotUtils.registerReflectionTypes(MemberCategory.values(), reflectionTypes);
+                for (String proxy : cached.get(HintCache.PROXY)) {
+                    aotUtils.registerJdkProxyTypes(List.of(proxy.split(",")));
+                }
+                // 运行时会解析mapper-locations中的所有映射文件（包括namespace不是mapper接口的），已包含在快照中的不再读取
+                xmlIndex.resources().stream().filter(resource -> !snapshotResources.contains(resource))
+                        .forEach(hints.resources()::registerPattern);
+            });
         }
 
-        private void registerMapperRelationships(Class<?> mapperInterfaceType, RuntimeHints hints) {
+        /**
+         * mapper方法的返回值和参数类型（不含provider类型，provider的方法仍需通过反射调用）
+         */
+        private Set<Class<?>> resultTypes(Collection<Class<?>> mapperInterfaces) {
+            Set<Class<?>> providerTypes = new HashSet<>();
+            Set<Class<?>> resultTypes = new LinkedHashSet<>();
+            for (Class<?> mapperInterfaceType : mapperInterfaces) {
+                for (Method method : ReflectionUtils.getAllDeclaredMethods(mapperInterfaceType)) {
+                    if (method.getDeclaringClass() == Object.class) continue;
+                    for (Annotation annotation : method.getAnnotations()) {
+                        if (annotation instanceof SelectProvider provider) Collections.addAll(providerTypes, provider.value(), provider.type());
+                        else if (annotation instanceof InsertProvider provider) Collections.addAll(providerTypes, provider.value(), provider.type());
+                        else if (annotation instanceof UpdateProvider provider) Collections.addAll(providerTypes, provider.value(), provider.type());
+                        else if (annotation instanceof DeleteProvider provider) Collections.addAll(providerTypes, provider.value(), provider.type());
+                    }
+                    resultTypes.add(MyBatisMapperTypeUtils.resolveReturnClass(mapperInterfaceType, method));
+                    resultTypes.addAll(MyBatisMapperTypeUtils.resolveParameterClasses(mapperInterfaceType, method));
+                }
+            }
+            resultTypes.removeAll(providerTypes);
+            return resultTypes;
+        }
+
+        /**
+         * 生成{@link ConfigurationSnapshot}
+         * @param snapshotTypes 收集快照中引用的结果、参数类型
+         * @param expressionTypes 收集快照中动态sql表达式读取了属性的类型
+         * @return 已包含在快照中的映射文件
+         */
+        private Set<String> snapshot(ConfigurableListableBeanFactory beanFactory, GenerationContext context,
+                                     AotUtils aotUtils, Collection<Class<?>> mapperInterfaces, Set<String> snapshotTypes,
+                                     Set<Class<?>> expressionTypes) {
+            if (!ConfigurationSnapshot.enabled()
+                    || !ClassUtils.isPresent("org.mybatis.spring.boot.autoconfigure.MybatisProperties", beanFactory.getBeanClassLoader())) {
+                return Set.of();
+            }
+            try {
+                ConfigurationSnapshotCapture capture = new ConfigurationSnapshotCapture(aotUtils.classpathIndex(), beanFactory.getBeanClassLoader());
+                ConfigurationSnapshot snapshot = capture.capture(beanFactory.getBean(Environment.class), mapperInterfaces);
+                if (snapshot == null) return Set.of();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                snapshot.write(out);
+                context.getGeneratedFiles().addResourceFile(ConfigurationSnapshot.LOCATION, new ByteArrayResource(out.toByteArray()));
+                context.getRuntimeHints().resources().registerPattern(ConfigurationSnapshot.LOCATION);
+                aotUtils.registerReflectionTypes(new MemberCategory[0], capture.typeNames());
+                snapshotTypes.addAll(capture.typeNames());
+                aotUtils.registerReflectionTypes(new MemberCategory[]{MemberCategory.INVOKE_DECLARED_CONSTRUCTORS}, capture.instantiatedTypeNames());
+                OgnlExpressionAnalyzer analyzer = new OgnlExpressionAnalyzer(beanFactory.getBeanClassLoader());
+                analyzer.analyze(snapshot);
+                expressionTypes.addAll(analyzer.types());
+                for (Method method : analyzer.methods()) {
+                    context.getRuntimeHints().reflection().registerMethod(method, ExecutableMode.INVOKE);
+                }
+                return snapshot.resources();
+            } catch (Exception e) {
+                System.out.println("mybatis映射快照生成失败，将在运行时解析映射文件");
+                e.printStackTrace();
+                return Set.of();
+            }
+        }
+
+        private void addMapperRelationships(Class<?> mapperInterfaceType, HintCache.Hints mapperHints) {
             Method[] methods = ReflectionUtils.getAllDeclaredMethods(mapperInterfaceType);
             for (Method method : methods) {
                 if (method.getDeclaringClass() != Object.class) {
                     ReflectionUtils.makeAccessible(method);
-                    registerSqlProviderTypes(method, hints, SelectProvider.class, SelectProvider::value, SelectProvider::type);
-                    registerSqlProviderTypes(method, hints, InsertProvider.class, InsertProvider::value, InsertProvider::type);
-                    registerSqlProviderTypes(method, hints, UpdateProvider.class, UpdateProvider::value, UpdateProvider::type);
-                    registerSqlProviderTypes(method, hints, DeleteProvider.class, DeleteProvider::value, DeleteProvider::type);
+                    addSqlProviderTypes(method, mapperHints, SelectProvider.class, SelectProvider::value, SelectProvider::type);
+                    addSqlProviderTypes(method, mapperHints, InsertProvider.class, InsertProvider::value, InsertProvider::type);
+                    addSqlProviderTypes(method, mapperHints, UpdateProvider.class, UpdateProvider::value, UpdateProvider::type);
+                    addSqlProviderTypes(method, mapperHints, DeleteProvider.class, DeleteProvider::value, DeleteProvider::type);
                     Class<?> returnType = MyBatisMapperTypeUtils.resolveReturnClass(mapperInterfaceType, method);
-                    registerReflectionTypeIfNecessary(returnType, hints);
+                    addReflectionTypeIfNecessary(returnType, mapperHints);
                     MyBatisMapperTypeUtils.resolveParameterClasses(mapperInterfaceType, method)
-                            .forEach(x -> registerReflectionTypeIfNecessary(x, hints));
+                            .forEach(x -> addReflectionTypeIfNecessary(x, mapperHints));
                 }
             }
         }
 
         @SafeVarargs
-        private <T extends Annotation> void registerSqlProviderTypes(
-                Method method, RuntimeHints hints, Class<T> annotationType, Function<T, Class<?>>... providerTypeResolvers) {
+        private <T extends Annotation> void addSqlProviderTypes(
+                Method method, HintCache.Hints mapperHints, Class<T> annotationType, Function<T, Class<?>>... providerTypeResolvers) {
             for (T annotation : method.getAnnotationsByType(annotationType)) {
                 for (Function<T, Class<?>> providerTypeResolver : providerTypeResolvers) {
-                    registerReflectionTypeIfNecessary(providerTypeResolver.apply(annotation), hints);
+                    addReflectionTypeIfNecessary(providerTypeResolver.apply(annotation), mapperHints);
                 }
             }
         }
 
-        private void registerReflectionTypeIfNecessary(Class<?> type, RuntimeHints hints) {
+        private void addReflectionTypeIfNecessary(Class<?> type, HintCache.Hints mapperHints) {
             if (!type.isPrimitive() && !type.getName().startsWith("java")) {
-                hints.reflection().registerType(type, MemberCategory.values());
+                mapperHints.add(HintCache.REFLECTION, type.getName());
             }
         }
 
@@ -273,6 +479,56 @@ public class MyBatisNativeConfiguration {
 
     }
 
+    /**
+     * 将aot生成的{@link io.github.xiaochenxt.aot.mybatis.ResultAccessor}接入SqlSessionFactory，未经过aot处理时不做任何事
+     */
+    static class MyBatisResultAccessorPostProcessor implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof SqlSessionFactory sqlSessionFactory) ResultAccessors.install(sqlSessionFactory.getConfiguration());
+            return bean;
+        }
+
+    }
+
+    /**
+     * 将MapperFactoryBean创建的代理替换为aot生成的mapper实现类，未生成时不做任何事
+     * <p>先于其他后处理器执行，只替换MapperProxy（或mybatis-plus的MybatisMapperProxy）本身，已被包装的不替换</p>
+     */
+    static class MyBatisMapperImplementationPostProcessor implements BeanPostProcessor, BeanFactoryAware, PriorityOrdered {
+
+        private static final Set<String> MAPPER_PROXY_TYPES = Set.of("org.apache.ibatis.binding.MapperProxy",
+                "com.baomidou.mybatisplus.core.override.MybatisMapperProxy");
+
+        private ConfigurableBeanFactory beanFactory;
+
+        @Override
+        public void setBeanFactory(BeanFactory beanFactory) {
+            this.beanFactory = (ConfigurableBeanFactory) beanFactory;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (MapperImplementations.isEmpty() || !Proxy.isProxyClass(bean.getClass())
+                    || !MAPPER_PROXY_TYPES.contains(Proxy.getInvocationHandler(bean).getClass().getName())
+                    || !beanFactory.containsBean(beanName) || !beanFactory.isFactoryBean(beanName)) {
+                return bean;
+            }
+            if (beanFactory.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName) instanceof MapperFactoryBean<?> factoryBean) {
+                Object implementation = MapperImplementations.create(factoryBean.getMapperInterface(), factoryBean.getSqlSession());
+                if (implementation != null) return implementation;
+            }
+            return bean;
+        }
+
+    }
+
     static class MyBatisMapperFactoryBeanPostProcessor implements MergedBeanDefinitionPostProcessor, BeanFactoryAware {
 
         private static final org.apache.commons.logging.Log LOG = LogFactory.getLog(
@@ -0,0 +1,267 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于ConcurrentHashMap的二级缓存，读写不加锁，按条数和字节数上限以second-chance（clock）方式淘汰最近未读取的条目
+ * <p>替代PerpetualCache加LruCache、SynchronizedCache、SerializedCache等装饰器：不使用synchronized，
+ * 也不依赖SoftCache、WeakCache的软/弱引用（原生镜像的Serial GC下回收时机不可控）</p>
+ * <p>值的存储方式（storage）：serialized（默认）在堆内保存序列化后的字节，读取时反序列化出副本，与默认的读写缓存语义相同；
+ * off-heap保存在直接内存中，不占用堆；heap直接保存对象引用，相当于readOnly缓存，不计字节数</p>
+ * <p>在映射文件中用{@code <cache type="NATIVE"><property name="size" value="1024"/></cache>}、
+ * 注解中用{@code @CacheNamespace(implementation = ConcurrentCache.class)}按namespace选用，
+ * 可配置size（最大条数，默认1024）、maxWeight（最大字节数，0不限制）、storage；eviction、readOnly等属性对自定义缓存无效</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ConcurrentCache implements Cache, InitializingObject {
+
+    /**
+     * 映射文件中cache的type可使用的别名
+     */
+    public static final String ALIAS = "NATIVE";
+
+    private static final Object NULL = new Object();
+
+    private final String id;
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 条目的写入顺序，淘汰时从头部取出，被读取过的放回尾部；被替换、删除的条目在取出时丢弃
+     */
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong weight = new AtomicLong();
+
+    /**
+     * clock中已被替换、删除的条目数，超过size时清理
+     */
+    private final AtomicInteger stale = new AtomicInteger();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private int size = 1024;
+
+    private long maxWeight;
+
+    private Storage storage = Storage.SERIALIZED;
+
+    public ConcurrentCache(String id) {
+        this.id = id;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public void setStorage(String storage) {
+        this.storage = Storage.valueOf(storage.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    @Override
+    public void initialize() {
+        if (size <= 0) throw new CacheException("Cache " + id + " size must be positive: " + size);
+        if (maxWeight < 0) throw new CacheException("Cache " + id + " maxWeight must not be negative: " + maxWeight);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        Object stored = store(value);
+        Entry entry = new Entry(key, stored, storage == Storage.HEAP || stored == NULL ? 0
+                : stored instanceof ByteBuffer buffer ? buffer.capacity() : ((byte[]) stored).length);
+        Entry previous = entries.put(key, entry);
+        weight.addAndGet(entry.weight - (previous == null ? 0 : previous.weight));
+        clock.offer(entry);
+        if (previous != null) stale();
+        if (entries.size() > size || (maxWeight > 0 && weight.get() > maxWeight)) evict();
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        entry.referenced = true;
+        return load(entry.value);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return null;
+        weight.addAndGet(-entry.weight);
+        stale();
+        return load(entry.value);
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Entry entry : entries.values()) {
+                if (entries.remove(entry.key, entry)) weight.addAndGet(-entry.weight);
+            }
+            // 清空期间并发写入的条目可能已在map中而被clock.clear()丢弃，重新放入
+            clock.clear();
+            stale.set(0);
+            clock.addAll(entries.values());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void stale() {
+        if (stale.incrementAndGet() <= size || !evictionLock.tryLock()) return;
+        try {
+            stale.set(0);
+            clock.removeIf(entry -> entries.get(entry.key) != entry);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evict() {
+        evictionLock.lock();
+        try {
+            while (entries.size() > size || (maxWeight > 0 && weight.get() > maxWeight)) {
+                Entry entry = clock.poll();
+                if (entry == null) return;
+                if (entries.get(entry.key) != entry) continue;
+                if (entry.referenced) {
+                    entry.referenced = false;
+                    clock.offer(entry);
+                } else if (entries.remove(entry.key, entry)) {
+                    weight.addAndGet(-entry.weight);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private Object store(Object value) {
+        if (value == null) return NULL;
+        return switch (storage) {
+            case HEAP -> value;
+            case SERIALIZED -> serialize(value);
+            case OFF_HEAP -> {
+                byte[] bytes = serialize(value);
+                yield ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+            }
+        };
+    }
+
+    private Object load(Object value) {
+        if (value == NULL) return null;
+        return switch (storage) {
+            case HEAP -> value;
+            case SERIALIZED -> deserialize((byte[]) value);
+            case OFF_HEAP -> {
+                ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                yield deserialize(bytes);
+            }
+        };
+    }
+
+    private byte[] serialize(Object value) {
+        if (!(value instanceof Serializable)) throw new CacheException("Shared cache " + id + " requires serializable values: " + value.getClass().getName());
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new CacheException("Error serializing object in cache " + id + ": " + e, e);
+        }
+    }
+
+    private Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ResourcesObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new CacheException("Error deserializing object in cache " + id + ": " + e, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof Cache cache && id.equals(cache.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    private enum Storage {
+        HEAP, SERIALIZED, OFF_HEAP
+    }
+
+    private static final class Entry {
+
+        final Object key;
+
+        final Object value;
+
+        /**
+         * 序列化后的字节数，heap存储时为0
+         */
+        final long weight;
+
+        volatile boolean referenced;
+
+        Entry(Object key, Object value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * 与SerializedCache一样通过mybatis的Resources加载类
+     */
+    private static final class ResourcesObjectInputStream extends ObjectInputStream {
+
+        ResourcesObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+            return Resources.classForName(desc.getName());
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 构建期解析好的mybatis映射（resultMap、statement及其动态sql树），运行时直接恢复，不再解析映射文件
+ * <p>内容是与mybatis无关的简单节点树，由{@link ConfigurationSnapshotCapture}在aot阶段生成到{@link #LOCATION}，
+ * {@link Holder}在构建期初始化，快照随镜像堆一起保存，启动时无需读取和解析</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ConfigurationSnapshot {
+
+    public static final String LOCATION = "META-INF/xc-aot/mybatis-configuration.snapshot";
+
+    /**
+     * 构建期系统属性，为false时不生成快照
+     */
+    public static final String ENABLED_PROPERTY = "xc.aot.mybatis.snapshot";
+
+    private static final int VERSION = 2;
+
+    private final Node root;
+
+    ConfigurationSnapshot(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * aot阶段生成的快照，没有时为null
+     * @return
+     */
+    public static ConfigurationSnapshot get() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    public List<Node> namespaces() {
+        return root.children();
+    }
+
+    /**
+     * 已包含在快照中的映射文件（类路径中的相对路径），运行时不再解析；一个namespace的全部映射文件同时包含或同时不包含
+     * @return
+     */
+    public Set<String> resources() {
+        Set<String> resources = new LinkedHashSet<>();
+        for (Node namespace : namespaces()) {
+            for (Node xml : namespace.children("xml")) resources.add(xml.get("name"));
+        }
+        return resources;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(VERSION);
+        root.write(data);
+        data.flush();
+    }
+
+    public static ConfigurationSnapshot read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int version = data.readInt();
+        if (version != VERSION) throw new IOException("Unsupported mybatis snapshot version " + version);
+        return new ConfigurationSnapshot(Node.read(data));
+    }
+
+    /**
+     * 快照中的节点，如namespace、resultMap、mapping、statement、sql节点等
+     */
+    public static final class Node {
+
+        private final String type;
+
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+
+        private final List<Node> children = new ArrayList<>();
+
+        public Node(String type) {
+            this.type = type;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public String get(String name) {
+            return attributes.get(name);
+        }
+
+        public Node set(String name, Object value) {
+            if (value != null) attributes.put(name, value.toString());
+            return this;
+        }
+
+        public List<Node> children() {
+            return children;
+        }
+
+        public List<Node> children(String childType) {
+            return children.stream().filter(child -> child.type.equals(childType)).toList();
+        }
+
+        public Node add(Node child) {
+            children.add(child);
+            return child;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, type);
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writeString(out, attribute.getKey());
+                writeString(out, attribute.getValue());
+            }
+            out.writeInt(children.size());
+            for (Node child : children) child.write(out);
+        }
+
+        static Node read(DataInputStream in) throws IOException {
+            Node node = new Node(readString(in));
+            int attributeCount = in.readInt();
+            for (int i = 0; i < attributeCount; i++) node.attributes.put(readString(in), readString(in));
+            int childCount = in.readInt();
+            for (int i = 0; i < childCount; i++) node.children.add(read(in));
+            return node;
+        }
+
+        /**
+         * sql可能超过writeUTF的64KB限制
+         */
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    /**
+     * 由{@code ClassInitializationFeature}在构建期初始化，快照进入镜像堆
+     */
+    static final class Holder {
+
+        static final ConfigurationSnapshot INSTANCE = load();
+
+        private static ConfigurationSnapshot load() {
+            ClassLoader classLoader = ConfigurationSnapshot.class.getClassLoader();
+            try (InputStream in = classLoader.getResourceAsStream(LOCATION)) {
+                return in == null ? null : read(in);
+            } catch (IOException e) {
+                // 本类在构建期初始化，日志对象不能放在静态字段中进入镜像堆
+                LogFactory.getLog(ConfigurationSnapshot.class).warn("Unable to read mybatis snapshot " + LOCATION, e);
+                return null;
+            }
+        }
+
+    }
+
+}
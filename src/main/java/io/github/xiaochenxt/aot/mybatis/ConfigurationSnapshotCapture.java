@@ -0,0 +1,482 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot.Node;
+import io.github.xiaochenxt.aot.utils.ClasspathIndex;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.*;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.*;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.mybatis.spring.boot.autoconfigure.MybatisProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在aot阶段按mybatis-spring-boot-starter的配置（mybatis.*）解析映射文件和mapper接口上的注解，生成{@link ConfigurationSnapshot}
+ * <p>以namespace为单位，以下情况保留原来的运行时解析：</p>
+ * <ul>
+ *     <li>映射文件解析失败（如依赖运行时才注册的别名、类型处理器）</li>
+ *     <li>使用了databaseId、二级缓存（cache、cache-ref）、parameterMap元素</li>
+ *     <li>使用了自定义的SqlSource、SqlNode、KeyGenerator（如provider注解）</li>
+ * </ul>
+ * <p>使用mybatis-plus或指定了mybatis.config-location时不生成快照</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ConfigurationSnapshotCapture {
+
+    private static final Pattern NAMESPACE = Pattern.compile("<mapper\\s+namespace\\s*=\\s*[\"']([^\"']+)[\"']");
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of("boolean", boolean.class, "byte", byte.class,
+            "char", char.class, "short", short.class, "int", int.class, "long", long.class, "float", float.class,
+            "double", double.class, "void", void.class);
+
+    private final ClasspathIndex index;
+
+    private final ClassLoader classLoader;
+
+    private final Set<String> typeNames = new LinkedHashSet<>();
+
+    private final Set<String> instantiatedTypeNames = new LinkedHashSet<>();
+
+    private Configuration configuration;
+
+    public ConfigurationSnapshotCapture(ClasspathIndex index, ClassLoader classLoader) {
+        this.index = index;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 快照中通过类名引用的类型，运行时需要能加载
+     * @return
+     */
+    public Set<String> typeNames() {
+        return typeNames;
+    }
+
+    /**
+     * 快照中需要在运行时实例化的类型（类型处理器、LanguageDriver）
+     * @return
+     */
+    public Set<String> instantiatedTypeNames() {
+        return instantiatedTypeNames;
+    }
+
+    /**
+     * 解析并生成快照
+     * @param environment 应用的环境，用于绑定mybatis.*配置
+     * @param mapperInterfaces 应用中的mapper接口
+     * @return 没有可以快照的namespace时为null
+     */
+    public ConfigurationSnapshot capture(Environment environment, Collection<Class<?>> mapperInterfaces) {
+        if (ClassUtils.isPresent("com.baomidou.mybatisplus.core.MybatisConfiguration", classLoader)) return null;
+        MybatisProperties properties = Binder.get(environment)
+                .bind(MybatisProperties.MYBATIS_PREFIX, MybatisProperties.class).orElseGet(MybatisProperties::new);
+        if (StringUtils.hasText(properties.getConfigLocation())) {
+            HintMetrics.detail("skipping mybatis snapshot: mybatis.config-location is set");
+            return null;
+        }
+        configuration = createConfiguration(properties);
+        // 同一namespace可以分布在多个映射文件中，运行时必须整组跳过或整组解析
+        Map<String, List<String>> namespaceResources = new LinkedHashMap<>();
+        Map<String, String> unsupported = new LinkedHashMap<>();
+        for (Resource resource : properties.resolveMapperLocations()) {
+            byte[] bytes;
+            try (InputStream in = resource.getInputStream()) {
+                bytes = in.readAllBytes();
+            } catch (IOException e) {
+                continue;
+            }
+            String xml = new String(bytes, StandardCharsets.UTF_8);
+            Matcher matcher = NAMESPACE.matcher(xml);
+            if (!matcher.find()) continue;
+            String namespace = matcher.group(1);
+            try {
+                new XMLMapperBuilder(new ByteArrayInputStream(bytes), configuration, resource.toString(),
+                        configuration.getSqlFragments()).parse();
+            } catch (RuntimeException e) {
+                unsupported.put(namespace, "parse error " + e.getMessage());
+                continue;
+            }
+            String resourceName = resourceName(resource);
+            if (resourceName == null) unsupported.put(namespace, "not found in classpath");
+            // 构建期不知道运行时的databaseId，带databaseId的语句会被忽略
+            else if (xml.contains("databaseId")) unsupported.put(namespace, "uses databaseId");
+            namespaceResources.computeIfAbsent(namespace, key -> new ArrayList<>()).add(resourceName);
+        }
+        for (Class<?> mapperInterface : mapperInterfaces) {
+            namespaceResources.putIfAbsent(mapperInterface.getName(), new ArrayList<>());
+            if (configuration.hasMapper(mapperInterface)) continue;
+            try {
+                configuration.addMapper(mapperInterface);
+            } catch (RuntimeException e) {
+                unsupported.put(mapperInterface.getName(), "parse error " + e.getMessage());
+            }
+        }
+        Collection<String> statementNames;
+        Collection<String> resultMapNames;
+        try {
+            statementNames = configuration.getMappedStatementNames();
+            resultMapNames = configuration.getResultMapNames();
+        } catch (RuntimeException e) {
+            HintMetrics.detail("skipping mybatis snapshot: " + e.getMessage());
+            return null;
+        }
+        Map<String, List<String>> statements = groupByNamespace(statementNames, namespaceResources.keySet());
+        Map<String, List<String>> resultMaps = groupByNamespace(resultMapNames, namespaceResources.keySet());
+        Node root = new Node("snapshot");
+        int skipped = 0;
+        for (Map.Entry<String, List<String>> namespaceResource : namespaceResources.entrySet()) {
+            String namespace = namespaceResource.getKey();
+            String reason = unsupported.get(namespace);
+            if (reason == null) {
+                try {
+                    root.add(namespace(namespace, namespaceResource.getValue(),
+                            statements.getOrDefault(namespace, List.of()), resultMaps.getOrDefault(namespace, List.of())));
+                    HintMetrics.detail("registering mybatis snapshot " + namespace);
+                    continue;
+                } catch (UnsupportedOperationException | ReflectiveOperationException e) {
+                    reason = e.getMessage();
+                }
+            }
+            HintMetrics.detail("skipping mybatis snapshot " + namespace + ": " + reason);
+            skipped++;
+        }
+        if (skipped > 0) {
+            HintMetrics.summary("mybatis snapshot: " + root.children().size() + " namespaces, " + skipped
+                    + " parsed at runtime (-D" + HintMetrics.VERBOSITY_PROPERTY + "=verbose for reasons)");
+        }
+        return root.children().isEmpty() ? null : new ConfigurationSnapshot(root);
+    }
+
+    private Configuration createConfiguration(MybatisProperties properties) {
+        Configuration configuration = new Configuration();
+        if (properties.getConfiguration() != null) properties.getConfiguration().applyTo(configuration);
+        if (properties.getConfigurationProperties() != null) configuration.setVariables(properties.getConfigurationProperties());
+        if (properties.getDefaultScriptingLanguageDriver() != null) {
+            configuration.setDefaultScriptingLanguage(properties.getDefaultScriptingLanguageDriver());
+        }
+        Class<?> superType = properties.getTypeAliasesSuperType() == null ? Object.class : properties.getTypeAliasesSuperType();
+        // 与SqlSessionFactoryBean扫描别名、类型处理器的规则一致，不支持通配符
+        for (Class<?> type : packageClasses(properties.getTypeAliasesPackage())) {
+            if (!type.isAnonymousClass() && !type.isInterface() && !type.isMemberClass() && superType.isAssignableFrom(type)) {
+                configuration.getTypeAliasRegistry().registerAlias(type);
+            }
+        }
+        for (Class<?> type : packageClasses(properties.getTypeHandlersPackage())) {
+            if (!type.isAnonymousClass() && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                    && TypeHandler.class.isAssignableFrom(type)) {
+                configuration.getTypeHandlerRegistry().register(type);
+            }
+        }
+        return configuration;
+    }
+
+    private List<Class<?>> packageClasses(String packages) {
+        List<Class<?>> classes = new ArrayList<>();
+        if (!StringUtils.hasText(packages)) return classes;
+        for (String packageName : StringUtils.tokenizeToStringArray(packages, ",; \t\n")) {
+            for (String className : index.classNames(packageName)) {
+                if (className.endsWith("package-info")) continue;
+                try {
+                    classes.add(ClassUtils.forName(className, classLoader));
+                } catch (ClassNotFoundException | LinkageError ignored) {}
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 按最长匹配的namespace分组，忽略mybatis为短名称保存的重复项
+     */
+    private static Map<String, List<String>> groupByNamespace(Collection<String> names, Set<String> namespaces) {
+        Map<String, List<String>> groups = new HashMap<>();
+        for (String name : new TreeSet<>(names)) {
+            String owner = null;
+            for (String namespace : namespaces) {
+                if (name.startsWith(namespace + ".") && (owner == null || namespace.length() > owner.length())) owner = namespace;
+            }
+            if (owner != null) groups.computeIfAbsent(owner, key -> new ArrayList<>()).add(name);
+        }
+        return groups;
+    }
+
+    /**
+     * 映射文件在类路径中的相对路径
+     */
+    private String resourceName(Resource resource) {
+        String url;
+        try {
+            url = resource.getURL().toString();
+        } catch (IOException e) {
+            return null;
+        }
+        String result = null;
+        for (String resourceName : index.resourceNames()) {
+            if (url.endsWith("/" + resourceName) && (result == null || resourceName.length() > result.length())) {
+                result = resourceName;
+            }
+        }
+        return result;
+    }
+
+    private Node namespace(String namespace, List<String> resourceNames, List<String> statementNames,
+                           List<String> resultMapNames) throws ReflectiveOperationException {
+        String prefix = namespace + ".";
+        if (configuration.getCacheNames().contains(namespace)) throw new UnsupportedOperationException("uses cache");
+        for (String parameterMapName : configuration.getParameterMapNames()) {
+            if (parameterMapName.startsWith(prefix)) throw new UnsupportedOperationException("uses parameterMap");
+        }
+        Node node = new Node("namespace").set("namespace", namespace);
+        for (String resourceName : resourceNames) node.add(new Node("xml").set("name", resourceName));
+        for (String resultMapName : resultMapNames) node.add(resultMap(configuration.getResultMap(resultMapName)));
+        List<String> names = new ArrayList<>(statementNames);
+        // selectKey语句需要先于使用它的语句恢复
+        names.sort(Comparator.comparing((String name) -> !name.endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)).thenComparing(name -> name));
+        for (String name : names) {
+            node.add(statement(configuration.getMappedStatement(name, false)));
+        }
+        return node;
+    }
+
+    private Node statement(MappedStatement statement) throws ReflectiveOperationException {
+        if (statement.getCache() != null) throw new UnsupportedOperationException("uses cache");
+        Node node = new Node("statement").set("id", statement.getId())
+                .set("resource", statement.getResource())
+                .set("sqlCommandType", statement.getSqlCommandType())
+                .set("statementType", statement.getStatementType())
+                .set("resultSetType", statement.getResultSetType())
+                .set("fetchSize", statement.getFetchSize())
+                .set("timeout", statement.getTimeout())
+                .set("flushCache", statement.isFlushCacheRequired())
+                .set("useCache", statement.isUseCache())
+                .set("resultOrdered", statement.isResultOrdered())
+                .set("dirtySelect", statement.isDirtySelect())
+                .set("databaseId", statement.getDatabaseId())
+                .set("keyProperty", join(statement.getKeyProperties()))
+                .set("keyColumn", join(statement.getKeyColumns()))
+                .set("resultSets", join(statement.getResultSets()));
+        // 默认语言驱动不记录，恢复时使用运行时的默认驱动（可能是PlanCachingLanguageDriver）
+        LanguageDriver lang = statement.getLang();
+        if (lang != null && lang != configuration.getDefaultScriptingLanguageInstance()) {
+            node.set("lang", instantiatedType(lang.getClass()));
+        }
+        KeyGenerator keyGenerator = statement.getKeyGenerator();
+        if (keyGenerator instanceof Jdbc3KeyGenerator) {
+            node.set("keyGenerator", "jdbc3");
+        } else if (keyGenerator instanceof SelectKeyGenerator) {
+            MappedStatement keyStatement = (MappedStatement) field(keyGenerator, "keyStatement");
+            node.set("keyGenerator", "selectKey").set("keyStatement", keyStatement.getId())
+                    .set("executeBefore", field(keyGenerator, "executeBefore"));
+        } else if (keyGenerator != null && !(keyGenerator instanceof NoKeyGenerator)) {
+            throw new UnsupportedOperationException("custom key generator " + keyGenerator.getClass().getName());
+        }
+        ParameterMap parameterMap = statement.getParameterMap();
+        if (parameterMap != null) {
+            if (!parameterMap.getParameterMappings().isEmpty()) throw new UnsupportedOperationException("uses parameterMap");
+            node.add(new Node("parameterMap").set("id", parameterMap.getId()).set("type", type(parameterMap.getType())));
+        }
+        for (ResultMap resultMap : statement.getResultMaps()) {
+            if (configuration.hasResultMap(resultMap.getId()) && configuration.getResultMap(resultMap.getId()) == resultMap) {
+                node.add(new Node("resultMapRef").set("id", resultMap.getId()));
+            } else {
+                node.add(resultMap(resultMap));
+            }
+        }
+        node.add(sqlSource(statement.getSqlSource()));
+        return node;
+    }
+
+    private Node resultMap(ResultMap resultMap) {
+        Node node = new Node("resultMap").set("id", resultMap.getId()).set("type", type(resultMap.getType()))
+                .set("autoMapping", resultMap.getAutoMapping());
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) node.add(resultMapping(resultMapping));
+        Discriminator discriminator = resultMap.getDiscriminator();
+        if (discriminator != null) {
+            Node discriminatorNode = node.add(new Node("discriminator"));
+            discriminatorNode.add(resultMapping(discriminator.getResultMapping()));
+            discriminator.getDiscriminatorMap().forEach((value, resultMapId) ->
+                    discriminatorNode.add(new Node("case").set("value", value).set("resultMap", resultMapId)));
+        }
+        return node;
+    }
+
+    private Node resultMapping(ResultMapping resultMapping) {
+        Node node = new Node("mapping").set("property", resultMapping.getProperty())
+                .set("column", resultMapping.getColumn())
+                .set("javaType", type(resultMapping.getJavaType()))
+                .set("jdbcType", resultMapping.getJdbcType())
+                .set("nestedQueryId", resultMapping.getNestedQueryId())
+                .set("nestedResultMapId", resultMapping.getNestedResultMapId())
+                .set("columnPrefix", resultMapping.getColumnPrefix())
+                .set("resultSet", resultMapping.getResultSet())
+                .set("foreignColumn", resultMapping.getForeignColumn())
+                .set("lazy", resultMapping.isLazy())
+                .set("typeHandler", typeHandler(resultMapping.getTypeHandler(), resultMapping.getJavaType(), resultMapping.getJdbcType()));
+        if (!resultMapping.getFlags().isEmpty()) {
+            node.set("flags", String.join(",", resultMapping.getFlags().stream().map(Enum::name).toList()));
+        }
+        if (!resultMapping.getNotNullColumns().isEmpty()) node.set("notNullColumns", String.join(",", resultMapping.getNotNullColumns()));
+        for (ResultMapping composite : resultMapping.getComposites()) node.add(resultMapping(composite));
+        return node;
+    }
+
+    private Node parameterMapping(ParameterMapping parameterMapping) {
+        return new Node("parameter").set("property", parameterMapping.getProperty())
+                .set("mode", parameterMapping.getMode())
+                .set("javaType", type(parameterMapping.getJavaType()))
+                .set("jdbcType", parameterMapping.getJdbcType())
+                .set("numericScale", parameterMapping.getNumericScale())
+                .set("resultMapId", parameterMapping.getResultMapId())
+                .set("jdbcTypeName", parameterMapping.getJdbcTypeName())
+                .set("expression", parameterMapping.getExpression())
+                .set("typeHandler", typeHandler(parameterMapping.getTypeHandler(), parameterMapping.getJavaType(), parameterMapping.getJdbcType()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node sqlSource(SqlSource sqlSource) throws ReflectiveOperationException {
+        if (sqlSource instanceof RawSqlSource) sqlSource = (SqlSource) field(sqlSource, "sqlSource");
+        if (sqlSource.getClass() == StaticSqlSource.class) {
+            Node node = new Node("static").set("sql", field(sqlSource, "sql"));
+            List<ParameterMapping> parameterMappings = (List<ParameterMapping>) field(sqlSource, "parameterMappings");
+            if (parameterMappings != null) {
+                for (ParameterMapping parameterMapping : parameterMappings) node.add(parameterMapping(parameterMapping));
+            }
+            return node;
+        }
+        if (sqlSource.getClass() == DynamicSqlSource.class) {
+            Node node = new Node("dynamic");
+            node.add(sqlNode((DynamicSqlSource) sqlSource));
+            return node;
+        }
+        throw new UnsupportedOperationException("sql source " + sqlSource.getClass().getName());
+    }
+
+    /**
+     * 读取DynamicSqlSource的sql树，也用于{@link PlanCachingLanguageDriver}处理运行时解析的statement
+     */
+    static Node sqlNode(DynamicSqlSource sqlSource) throws ReflectiveOperationException {
+        return sqlNode((SqlNode) field(sqlSource, "rootSqlNode"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Node sqlNode(SqlNode sqlNode) throws ReflectiveOperationException {
+        Class<?> type = sqlNode.getClass();
+        if (type == MixedSqlNode.class) {
+            Node node = new Node("mixed");
+            for (SqlNode content : (List<SqlNode>) field(sqlNode, "contents")) node.add(sqlNode(content));
+            return node;
+        }
+        if (type == StaticTextSqlNode.class) return new Node("text").set("text", field(sqlNode, "text"));
+        if (type == TextSqlNode.class) {
+            Pattern injectionFilter = (Pattern) field(sqlNode, "injectionFilter");
+            return new Node("dynamicText").set("text", field(sqlNode, "text"))
+                    .set("injectionFilter", injectionFilter == null ? null : injectionFilter.pattern());
+        }
+        if (type == IfSqlNode.class) {
+            Node node = new Node("if").set("test", field(sqlNode, "test"));
+            node.add(sqlNode((SqlNode) field(sqlNode, "contents")));
+            return node;
+        }
+        if (type == WhereSqlNode.class || type == SetSqlNode.class) {
+            Node node = new Node(type == WhereSqlNode.class ? "where" : "set");
+            node.add(sqlNode((SqlNode) field(sqlNode, TrimSqlNode.class, "contents")));
+            return node;
+        }
+        if (type == TrimSqlNode.class) {
+            Node node = new Node("trim").set("prefix", field(sqlNode, "prefix")).set("suffix", field(sqlNode, "suffix"))
+                    .set("prefixOverrides", join((List<String>) field(sqlNode, "prefixesToOverride")))
+                    .set("suffixOverrides", join((List<String>) field(sqlNode, "suffixesToOverride")));
+            node.add(sqlNode((SqlNode) field(sqlNode, "contents")));
+            return node;
+        }
+        if (type == ForEachSqlNode.class) {
+            Node node = new Node("foreach").set("collection", field(sqlNode, "collectionExpression"))
+                    .set("nullable", field(sqlNode, "nullable")).set("index", field(sqlNode, "index"))
+                    .set("item", field(sqlNode, "item")).set("open", field(sqlNode, "open"))
+                    .set("close", field(sqlNode, "close")).set("separator", field(sqlNode, "separator"));
+            node.add(sqlNode((SqlNode) field(sqlNode, "contents")));
+            return node;
+        }
+        if (type == ChooseSqlNode.class) {
+            Node node = new Node("choose");
+            for (SqlNode when : (List<SqlNode>) field(sqlNode, "ifSqlNodes")) node.add(sqlNode(when));
+            SqlNode otherwise = (SqlNode) field(sqlNode, "defaultSqlNode");
+            if (otherwise != null) node.add(new Node("otherwise")).add(sqlNode(otherwise));
+            return node;
+        }
+        if (type == VarDeclSqlNode.class) {
+            return new Node("bind").set("name", field(sqlNode, "name")).set("expression", field(sqlNode, "expression"));
+        }
+        throw new UnsupportedOperationException("sql node " + type.getName());
+    }
+
+    /**
+     * 与注册表中默认的类型处理器相同时不记录，运行时由mybatis自行解析
+     */
+    private String typeHandler(TypeHandler<?> typeHandler, Class<?> javaType, JdbcType jdbcType) {
+        if (typeHandler == null) return null;
+        TypeHandler<?> defaultTypeHandler = javaType == null ? null : configuration.getTypeHandlerRegistry().getTypeHandler(javaType, jdbcType);
+        if (defaultTypeHandler != null && defaultTypeHandler.getClass() == typeHandler.getClass()) return null;
+        return instantiatedType(typeHandler.getClass());
+    }
+
+    private String type(Class<?> type) {
+        if (type == null) return null;
+        if (!type.isPrimitive() && !type.getName().startsWith("java.")) typeNames.add(type.getName());
+        return type.getName();
+    }
+
+    private String instantiatedType(Class<?> type) {
+        instantiatedTypeNames.add(type.getName());
+        return type.getName();
+    }
+
+    static Class<?> classForName(String name, ClassLoader classLoader) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : ClassUtils.forName(name, classLoader);
+    }
+
+    private static String join(String[] values) {
+        return values == null || values.length == 0 ? null : String.join(",", values);
+    }
+
+    private static String join(List<String> values) {
+        return values == null || values.isEmpty() ? null : String.join("|", values);
+    }
+
+    private static Object field(Object target, String name) throws ReflectiveOperationException {
+        return field(target, target.getClass(), name);
+    }
+
+    private static Object field(Object target, Class<?> type, String name) throws ReflectiveOperationException {
+        Field field = ReflectionUtils.findField(type, name);
+        if (field == null) throw new NoSuchFieldException(type.getName() + "." + name);
+        ReflectionUtils.makeAccessible(field);
+        return field.get(target);
+    }
+
+}
@@ -0,0 +1,311 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot.Node;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.*;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.xmltags.*;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.boot.autoconfigure.MybatisProperties;
+import org.mybatis.spring.boot.autoconfigure.SqlSessionFactoryBeanCustomizer;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 运行时从{@link ConfigurationSnapshot}恢复mybatis映射
+ * <ul>
+ *     <li>从mapperLocations中移除已包含在快照中的映射文件</li>
+ *     <li>在SqlSessionFactory创建前（别名、类型处理器、其余映射文件都已注册）恢复resultMap和statement，
+ *     并将namespace标记为已加载，mapper接口注册时不再解析映射文件和注解</li>
+ * </ul>
+ * <p>只在使用aot生成的代码（{@link AotDetector#useGeneratedArtifacts()}）或原生镜像中恢复；
+ * 普通jvm运行时即使target/classes中残留了快照也正常解析映射文件，修改xml后不会用到旧的快照</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ConfigurationSnapshotRestorer implements SqlSessionFactoryBeanCustomizer {
+
+    private static final Log LOG = LogFactory.getLog(ConfigurationSnapshotRestorer.class);
+
+    private final ObjectProvider<MybatisProperties> properties;
+
+    public ConfigurationSnapshotRestorer(ObjectProvider<MybatisProperties> properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void customize(SqlSessionFactoryBean factoryBean) {
+        if (!AotDetector.useGeneratedArtifacts() && !NativeDetector.inNativeImage()) return;
+        ConfigurationSnapshot snapshot = ConfigurationSnapshot.get();
+        if (snapshot == null) return;
+        MybatisProperties mybatisProperties = properties.getIfAvailable();
+        if (mybatisProperties != null) {
+            Set<String> resources = snapshot.resources();
+            List<Resource> mapperLocations = new ArrayList<>();
+            for (Resource resource : mybatisProperties.resolveMapperLocations()) {
+                if (!isSnapshotResource(resource, resources)) mapperLocations.add(resource);
+            }
+            factoryBean.setMapperLocations(mapperLocations.toArray(new Resource[0]));
+        }
+        factoryBean.setSqlSessionFactoryBuilder(new SqlSessionFactoryBuilder() {
+            @Override
+            public SqlSessionFactory build(Configuration config) {
+                restore(snapshot, config);
+                return super.build(config);
+            }
+        });
+    }
+
+    private static boolean isSnapshotResource(Resource resource, Set<String> resources) {
+        try {
+            String url = resource.getURL().toString();
+            for (String name : resources) {
+                if (url.endsWith("/" + name)) return true;
+            }
+        } catch (IOException ignored) {}
+        return false;
+    }
+
+    /**
+     * 将快照恢复到configuration中，已经通过其他方式加载的namespace会被跳过
+     * @param snapshot 快照
+     * @param configuration mybatis配置
+     */
+    public static void restore(ConfigurationSnapshot snapshot, Configuration configuration) {
+        List<Node> namespaces = new ArrayList<>();
+        for (Node namespace : snapshot.namespaces()) {
+            if (!configuration.isResourceLoaded("namespace:" + namespace.get("namespace"))) namespaces.add(namespace);
+        }
+        Restorer restorer = new Restorer(configuration);
+        try {
+            // 先恢复全部resultMap，statement可能引用其他namespace的resultMap
+            for (Node namespace : namespaces) {
+                for (Node resultMap : namespace.children("resultMap")) configuration.addResultMap(restorer.resultMap(resultMap));
+            }
+            for (Node namespace : namespaces) {
+                for (Node statement : namespace.children("statement")) restorer.statement(statement);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new BuilderException("Error restoring mybatis snapshot, cause: " + e, e);
+        }
+        for (Node namespace : namespaces) {
+            String name = namespace.get("namespace");
+            configuration.addLoadedResource("namespace:" + name);
+            Class<?> mapperType;
+            try {
+                mapperType = ClassUtils.forName(name, ClassUtils.getDefaultClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                mapperType = null;
+            }
+            if (mapperType != null && mapperType.isInterface()) {
+                // MapperAnnotationBuilder以此判断是否已解析过映射文件和注解
+                configuration.addLoadedResource(mapperType.toString());
+                if (!configuration.hasMapper(mapperType)) configuration.addMapper(mapperType);
+            }
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("Restored " + namespaces.size() + " mybatis namespaces from snapshot");
+    }
+
+    private static final class Restorer {
+
+        private final Configuration configuration;
+
+        private final TypeHandlerRegistry typeHandlerRegistry;
+
+        private final ClassLoader classLoader;
+
+        Restorer(Configuration configuration) {
+            this.configuration = configuration;
+            this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+            this.classLoader = ClassUtils.getDefaultClassLoader();
+        }
+
+        ResultMap resultMap(Node node) throws ClassNotFoundException {
+            List<ResultMapping> resultMappings = new ArrayList<>();
+            for (Node mapping : node.children("mapping")) resultMappings.add(resultMapping(mapping));
+            String autoMapping = node.get("autoMapping");
+            ResultMap.Builder builder = new ResultMap.Builder(configuration, node.get("id"), type(node.get("type")),
+                    resultMappings, autoMapping == null ? null : Boolean.valueOf(autoMapping));
+            for (Node discriminator : node.children("discriminator")) {
+                Map<String, String> cases = new LinkedHashMap<>();
+                for (Node discriminatorCase : discriminator.children("case")) {
+                    cases.put(discriminatorCase.get("value"), discriminatorCase.get("resultMap"));
+                }
+                builder.discriminator(new Discriminator.Builder(configuration,
+                        resultMapping(discriminator.children("mapping").getFirst()), cases).build());
+            }
+            return builder.build();
+        }
+
+        ResultMapping resultMapping(Node node) throws ClassNotFoundException {
+            Class<?> javaType = type(node.get("javaType"));
+            JdbcType jdbcType = node.get("jdbcType") == null ? null : JdbcType.valueOf(node.get("jdbcType"));
+            ResultMapping.Builder builder = new ResultMapping.Builder(configuration, node.get("property"), node.get("column"), javaType)
+                    .jdbcType(jdbcType)
+                    .nestedQueryId(node.get("nestedQueryId"))
+                    .nestedResultMapId(node.get("nestedResultMapId"))
+                    .columnPrefix(node.get("columnPrefix"))
+                    .resultSet(node.get("resultSet"))
+                    .foreignColumn(node.get("foreignColumn"))
+                    .lazy(Boolean.parseBoolean(node.get("lazy")))
+                    .typeHandler(typeHandler(node.get("typeHandler"), javaType));
+            List<ResultFlag> flags = new ArrayList<>();
+            if (node.get("flags") != null) {
+                for (String flag : node.get("flags").split(",")) flags.add(ResultFlag.valueOf(flag));
+            }
+            builder.flags(flags);
+            builder.notNullColumns(node.get("notNullColumns") == null ? new HashSet<>()
+                    : new HashSet<>(Arrays.asList(node.get("notNullColumns").split(","))));
+            List<ResultMapping> composites = new ArrayList<>();
+            for (Node composite : node.children("mapping")) composites.add(resultMapping(composite));
+            builder.composites(composites);
+            return builder.build();
+        }
+
+        ParameterMapping parameterMapping(Node node) throws ClassNotFoundException {
+            Class<?> javaType = type(node.get("javaType"));
+            ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, node.get("property"), javaType)
+                    .mode(node.get("mode") == null ? ParameterMode.IN : ParameterMode.valueOf(node.get("mode")))
+                    .jdbcType(node.get("jdbcType") == null ? null : JdbcType.valueOf(node.get("jdbcType")))
+                    .numericScale(node.get("numericScale") == null ? null : Integer.valueOf(node.get("numericScale")))
+                    .resultMapId(node.get("resultMapId"))
+                    .jdbcTypeName(node.get("jdbcTypeName"))
+                    .expression(node.get("expression"))
+                    .typeHandler(typeHandler(node.get("typeHandler"), javaType));
+            return builder.build();
+        }
+
+        void statement(Node node) throws ClassNotFoundException {
+            String id = node.get("id");
+            LanguageDriver lang = languageDriver(node.get("lang"));
+            MappedStatement.Builder builder = new MappedStatement.Builder(configuration, id,
+                    sqlSource(node, lang), SqlCommandType.valueOf(node.get("sqlCommandType")))
+                    .resource(node.get("resource"))
+                    .statementType(StatementType.valueOf(node.get("statementType")))
+                    .resultSetType(node.get("resultSetType") == null ? null : ResultSetType.valueOf(node.get("resultSetType")))
+                    .fetchSize(node.get("fetchSize") == null ? null : Integer.valueOf(node.get("fetchSize")))
+                    .timeout(node.get("timeout") == null ? null : Integer.valueOf(node.get("timeout")))
+                    .flushCacheRequired(Boolean.parseBoolean(node.get("flushCache")))
+                    .useCache(Boolean.parseBoolean(node.get("useCache")))
+                    .resultOrdered(Boolean.parseBoolean(node.get("resultOrdered")))
+                    .dirtySelect(Boolean.parseBoolean(node.get("dirtySelect")))
+                    .databaseId(node.get("databaseId"))
+                    .keyProperty(node.get("keyProperty"))
+                    .keyColumn(node.get("keyColumn"))
+                    .resultSets(node.get("resultSets"))
+                    .lang(lang)
+                    .keyGenerator(keyGenerator(node));
+            for (Node parameterMap : node.children("parameterMap")) {
+                builder.parameterMap(new ParameterMap.Builder(configuration, parameterMap.get("id"),
+                        type(parameterMap.get("type")), new ArrayList<>()).build());
+            }
+            List<ResultMap> resultMaps = new ArrayList<>();
+            for (Node child : node.children()) {
+                if ("resultMapRef".equals(child.type())) resultMaps.add(configuration.getResultMap(child.get("id")));
+                else if ("resultMap".equals(child.type())) resultMaps.add(resultMap(child));
+            }
+            builder.resultMaps(resultMaps);
+            configuration.addMappedStatement(builder.build());
+        }
+
+        private KeyGenerator keyGenerator(Node node) {
+            String keyGenerator = node.get("keyGenerator");
+            if ("jdbc3".equals(keyGenerator)) return Jdbc3KeyGenerator.INSTANCE;
+            if (!"selectKey".equals(keyGenerator)) return NoKeyGenerator.INSTANCE;
+            String keyStatementId = node.get("keyStatement");
+            if (configuration.hasKeyGenerator(keyStatementId)) return configuration.getKeyGenerator(keyStatementId);
+            KeyGenerator selectKeyGenerator = new SelectKeyGenerator(configuration.getMappedStatement(keyStatementId, false),
+                    Boolean.parseBoolean(node.get("executeBefore")));
+            configuration.addKeyGenerator(keyStatementId, selectKeyGenerator);
+            return selectKeyGenerator;
+        }
+
+        private SqlSource sqlSource(Node statement, LanguageDriver lang) throws ClassNotFoundException {
+            for (Node node : statement.children()) {
+                if ("static".equals(node.type())) {
+                    List<ParameterMapping> parameterMappings = new ArrayList<>();
+                    for (Node parameter : node.children("parameter")) parameterMappings.add(parameterMapping(parameter));
+                    return new StaticSqlSource(configuration, node.get("sql"), parameterMappings);
+                }
+                if ("dynamic".equals(node.type())) {
+                    Node root = node.children().getFirst();
+                    SqlSource sqlSource = new DynamicSqlSource(configuration, sqlNode(root));
+                    return lang instanceof PlanCachingLanguageDriver driver ? driver.plan(configuration, root, sqlSource) : sqlSource;
+                }
+            }
+            throw new BuilderException("Missing sql source for " + statement.get("id"));
+        }
+
+        private SqlNode sqlNode(Node node) {
+            return switch (node.type()) {
+                case "mixed" -> new MixedSqlNode(node.children().stream().map(this::sqlNode).toList());
+                case "text" -> new StaticTextSqlNode(node.get("text"));
+                case "dynamicText" -> new TextSqlNode(node.get("text"),
+                        node.get("injectionFilter") == null ? null : Pattern.compile(node.get("injectionFilter")));
+                case "if" -> new IfSqlNode(sqlNode(node.children().getFirst()), node.get("test"));
+                case "where" -> new WhereSqlNode(configuration, sqlNode(node.children().getFirst()));
+                case "set" -> new SetSqlNode(configuration, sqlNode(node.children().getFirst()));
+                case "trim" -> new TrimSqlNode(configuration, sqlNode(node.children().getFirst()), node.get("prefix"),
+                        node.get("prefixOverrides"), node.get("suffix"), node.get("suffixOverrides"));
+                case "foreach" -> new ForEachSqlNode(configuration, sqlNode(node.children().getFirst()), node.get("collection"),
+                        node.get("nullable") == null ? null : Boolean.valueOf(node.get("nullable")), node.get("index"),
+                        node.get("item"), node.get("open"), node.get("close"), node.get("separator"));
+                case "choose" -> {
+                    List<SqlNode> whens = new ArrayList<>();
+                    SqlNode otherwise = null;
+                    for (Node child : node.children()) {
+                        if ("otherwise".equals(child.type())) otherwise = sqlNode(child.children().getFirst());
+                        else whens.add(sqlNode(child));
+                    }
+                    yield new ChooseSqlNode(whens, otherwise);
+                }
+                case "bind" -> new VarDeclSqlNode(node.get("name"), node.get("expression"));
+                default -> throw new BuilderException("Unknown sql node " + node.type());
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private LanguageDriver languageDriver(String name) throws ClassNotFoundException {
+            LanguageDriver defaultDriver = configuration.getDefaultScriptingLanguageInstance();
+            // 构建期记录的XMLLanguageDriver即默认驱动，运行时默认驱动为其子类（PlanCachingLanguageDriver）时沿用
+            if (name == null || (XMLLanguageDriver.class.getName().equals(name) && defaultDriver instanceof XMLLanguageDriver)) {
+                return defaultDriver;
+            }
+            return configuration.getLanguageDriver((Class<? extends LanguageDriver>) type(name));
+        }
+
+        @SuppressWarnings("unchecked")
+        private TypeHandler<?> typeHandler(String name, Class<?> javaType) throws ClassNotFoundException {
+            if (name == null) return null;
+            Class<? extends TypeHandler<?>> typeHandlerType = (Class<? extends TypeHandler<?>>) type(name);
+            TypeHandler<?> typeHandler = typeHandlerRegistry.getMappingTypeHandler(typeHandlerType);
+            return typeHandler != null ? typeHandler : typeHandlerRegistry.getInstance(javaType, typeHandlerType);
+        }
+
+        private Class<?> type(String name) throws ClassNotFoundException {
+            return name == null ? null : ConfigurationSnapshotCapture.classForName(name, classLoader);
+        }
+
+    }
+
+}
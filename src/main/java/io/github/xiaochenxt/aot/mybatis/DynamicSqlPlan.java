@@ -0,0 +1,403 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot.Node;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.scripting.ScriptingException;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按形状缓存生成结果的动态sql
+ * <p>构建期得到的动态sql树（{@link ConfigurationSnapshot}中的节点）被编译为只做判断的计划：if、choose、foreach、bind
+ * 和${}按mybatis的语义求值并绑定参数，判断结果、foreach次数、${}的值及参数类型组成形状。同一形状生成的sql和参数映射相同，
+ * 命中时直接创建{@link BoundSql}，不再拼接sql、解析#{}；未命中时交给原来的{@link org.apache.ibatis.scripting.xmltags.DynamicSqlSource}生成并缓存。
+ * 形状数超过上限后（如foreach的集合长度不固定）计划不再使用，直接交给DynamicSqlSource，开销与不缓存相同</p>
+ * <p>{@code x != null}、{@code x.y == null}这类最常见的判断直接读取参数（属性通过{@link ResultAccessor}），其余表达式仍由ognl求值。
+ * 参数映射的类型取自附加参数（foreach的元素、bind的值）时与运行期的值有关，命中时会重新核对，不一致按未命中处理</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+final class DynamicSqlPlan implements SqlSource {
+
+    private static final ExpressionEvaluator EVALUATOR = new ExpressionEvaluator();
+
+    private static final String PATH = "[A-Za-z_$][\\w$]*(?:\\s*\\.\\s*[A-Za-z_$][\\w$]*)*";
+
+    private static final Pattern NULL_CHECK = Pattern.compile(
+            "\\s*(?:(" + PATH + ")\\s*(==|!=)\\s*null|null\\s*(==|!=)\\s*(" + PATH + "))\\s*");
+
+    private static final Set<String> KEYWORDS = Set.of("null", "true", "false", "this", "and", "or", "not", "eq",
+            "neq", "lt", "lte", "gt", "gte", "in", "bor", "xor", "band", "shl", "shr", "ushr", "instanceof", "new");
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final Configuration configuration;
+
+    private final Step root;
+
+    private final SqlSource dynamicSqlSource;
+
+    private final int maxShapes;
+
+    private final Map<Shape, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存已满，形状数量没有上限（如foreach的集合长度不固定）的statement不再求值计划，直接交给DynamicSqlSource
+     */
+    private volatile boolean full;
+
+    /**
+     * @param configuration mybatis配置
+     * @param root 动态sql树的根节点
+     * @param dynamicSqlSource 由同一棵树创建的DynamicSqlSource，未命中时生成sql
+     * @param maxShapes 最多缓存的形状数，缓存满后不再使用计划
+     */
+    DynamicSqlPlan(Configuration configuration, Node root, SqlSource dynamicSqlSource, int maxShapes) {
+        this.configuration = configuration;
+        this.root = compile(root);
+        this.dynamicSqlSource = dynamicSqlSource;
+        this.maxShapes = maxShapes;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        if (full) return dynamicSqlSource.getBoundSql(parameterObject);
+        DynamicContext context = new DynamicContext(configuration, parameterObject);
+        ShapeBuilder shape = new ShapeBuilder(parameterObject == null ? Object.class : parameterObject.getClass());
+        root.evaluate(context, shape);
+        Shape key = shape.build();
+        Map<String, Object> bindings = context.getBindings();
+        Plan plan = plans.get(key);
+        if (plan != null && plan.matches(configuration.newMetaObject(bindings))) {
+            BoundSql boundSql = new BoundSql(configuration, plan.sql, new ArrayList<>(plan.parameterMappings), parameterObject);
+            bindings.forEach(boundSql::setAdditionalParameter);
+            return boundSql;
+        }
+        BoundSql boundSql = dynamicSqlSource.getBoundSql(parameterObject);
+        if (plan != null || plans.size() < maxShapes) {
+            plans.put(key, new Plan(boundSql.getSql(), boundSql.getParameterMappings(), configuration.newMetaObject(bindings)));
+        } else {
+            // 未命中时已求值一次计划又由DynamicSqlSource生成一次，继续使用计划会比不缓存更慢
+            full = true;
+            plans.clear();
+        }
+        return boundSql;
+    }
+
+    private Step compile(Node node) {
+        return switch (node.type()) {
+            case "mixed" -> {
+                List<Step> steps = new ArrayList<>();
+                for (Node child : node.children()) {
+                    Step step = compile(child);
+                    if (step != Step.NONE) steps.add(step);
+                }
+                yield steps.isEmpty() ? Step.NONE : steps.size() == 1 ? steps.getFirst() : new Steps(steps.toArray(new Step[0]));
+            }
+            case "text" -> Step.NONE;
+            case "dynamicText" -> new TextStep(node.get("text"),
+                    node.get("injectionFilter") == null ? null : Pattern.compile(node.get("injectionFilter")));
+            case "if" -> new IfStep(condition(node.get("test")), compile(node.children().getFirst()));
+            case "where", "set", "trim" -> compile(node.children().getFirst());
+            case "foreach" -> new ForEachStep(node.get("collection"),
+                    node.get("nullable") == null ? null : Boolean.valueOf(node.get("nullable")),
+                    node.get("index"), node.get("item"), compile(node.children().getFirst()));
+            case "choose" -> {
+                List<IfStep> whens = new ArrayList<>();
+                Step otherwise = Step.NONE;
+                for (Node child : node.children()) {
+                    if ("otherwise".equals(child.type())) otherwise = compile(child.children().getFirst());
+                    else whens.add((IfStep) compile(child));
+                }
+                yield new ChooseStep(whens.toArray(new IfStep[0]), otherwise);
+            }
+            case "bind" -> new BindStep(node.get("name"), node.get("expression"));
+            default -> throw new BuilderException("Unknown sql node " + node.type());
+        };
+    }
+
+    /**
+     * 属性路径与null比较时直接读取参数：根变量的取值方式与mybatis注册给ognl的ContextAccessor相同，
+     * 之后的属性通过aot生成的{@link ResultAccessor}读取；中间值为null、是Map或没有访问器时交给ognl
+     */
+    private static Condition condition(String test) {
+        Matcher matcher = NULL_CHECK.matcher(test);
+        if (matcher.matches()) {
+            String path = matcher.group(1) != null ? matcher.group(1) : matcher.group(4);
+            boolean notNull = "!=".equals(matcher.group(1) != null ? matcher.group(2) : matcher.group(3));
+            String[] names = path.split("\\s*\\.\\s*");
+            if (Arrays.stream(names).noneMatch(KEYWORDS::contains)) {
+                return bindings -> {
+                    Object value = value(bindings, names);
+                    if (value == UNRESOLVED) return EVALUATOR.evaluateBoolean(test, bindings);
+                    return (value != null) == notNull;
+                };
+            }
+        }
+        return bindings -> EVALUATOR.evaluateBoolean(test, bindings);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object value(Map<String, Object> bindings, String[] names) {
+        Object value = value(bindings, names[0]);
+        for (int i = 1; i < names.length; i++) {
+            if (value == null || value instanceof Map || value instanceof Collection) return UNRESOLVED;
+            ResultAccessor<Object> accessor = (ResultAccessor<Object>) ResultAccessors.get(value.getClass());
+            if (accessor == null) return UNRESOLVED;
+            value = accessor.get(value, names[i]);
+            if (value == ResultAccessor.UNKNOWN) return UNRESOLVED;
+        }
+        return value;
+    }
+
+    private static Object value(Map<String, Object> bindings, String name) {
+        Object value = bindings.get(name);
+        if (value != null || bindings.containsKey(name)) return value;
+        return bindings.get(DynamicContext.PARAMETER_OBJECT_KEY) instanceof Map<?, ?> map ? map.get(name) : null;
+    }
+
+    /**
+     * 某一形状生成的sql和参数映射，以及参数映射按附加参数解析出的类型（不是附加参数时为null）
+     */
+    private static final class Plan {
+
+        private final String sql;
+
+        private final List<ParameterMapping> parameterMappings;
+
+        private final Class<?>[] bindingTypes;
+
+        Plan(String sql, List<ParameterMapping> parameterMappings, MetaObject bindings) {
+            this.sql = sql;
+            this.parameterMappings = List.copyOf(parameterMappings);
+            this.bindingTypes = new Class<?>[parameterMappings.size()];
+            for (int i = 0; i < bindingTypes.length; i++) bindingTypes[i] = bindingType(parameterMappings.get(i), bindings);
+        }
+
+        boolean matches(MetaObject bindings) {
+            for (int i = 0; i < bindingTypes.length; i++) {
+                if (bindingTypes[i] != bindingType(parameterMappings.get(i), bindings)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * 与SqlSourceBuilder解析#{}时的判断相同
+         */
+        private static Class<?> bindingType(ParameterMapping parameterMapping, MetaObject bindings) {
+            String property = parameterMapping.getProperty();
+            return property != null && bindings.hasGetter(property) ? bindings.getGetterType(property) : null;
+        }
+
+    }
+
+    private record Shape(Class<?> parameterType, int[] decisions, String[] texts, int hash) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape shape && hash == shape.hash && parameterType == shape.parameterType
+                    && Arrays.equals(decisions, shape.decisions) && Arrays.equals(texts, shape.texts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    private static final class ShapeBuilder {
+
+        private static final String[] NO_TEXTS = new String[0];
+
+        private final Class<?> parameterType;
+
+        private int[] decisions = new int[16];
+
+        private int size;
+
+        private List<String> texts;
+
+        ShapeBuilder(Class<?> parameterType) {
+            this.parameterType = parameterType;
+        }
+
+        void decision(int decision) {
+            if (size == decisions.length) decisions = Arrays.copyOf(decisions, size * 2);
+            decisions[size++] = decision;
+        }
+
+        void text(String text) {
+            if (texts == null) texts = new ArrayList<>();
+            texts.add(text);
+        }
+
+        Shape build() {
+            int[] values = Arrays.copyOf(decisions, size);
+            String[] textValues = texts == null ? NO_TEXTS : texts.toArray(NO_TEXTS);
+            int hash = (parameterType.hashCode() * 31 + Arrays.hashCode(values)) * 31 + Arrays.hashCode(textValues);
+            return new Shape(parameterType, values, textValues, hash);
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+
+        boolean test(Map<String, Object> bindings);
+
+    }
+
+    private interface Step {
+
+        Step NONE = (context, shape) -> {};
+
+        void evaluate(DynamicContext context, ShapeBuilder shape);
+
+    }
+
+    private record Steps(Step[] steps) implements Step {
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            for (Step step : steps) step.evaluate(context, shape);
+        }
+
+    }
+
+    private record IfStep(Condition condition, Step contents) implements Step {
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            boolean matched = condition.test(context.getBindings());
+            shape.decision(matched ? 1 : 0);
+            if (matched) contents.evaluate(context, shape);
+        }
+
+    }
+
+    private record ChooseStep(IfStep[] whens, Step otherwise) implements Step {
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            for (int i = 0; i < whens.length; i++) {
+                if (whens[i].condition.test(context.getBindings())) {
+                    shape.decision(i);
+                    whens[i].contents.evaluate(context, shape);
+                    return;
+                }
+            }
+            shape.decision(whens.length);
+            otherwise.evaluate(context, shape);
+        }
+
+    }
+
+    /**
+     * 与ForEachSqlNode绑定相同的参数（包括__frch_前缀的附加参数），每次迭代消耗一个唯一编号
+     */
+    private final class ForEachStep implements Step {
+
+        private static final String ITEM_PREFIX = "__frch_";
+
+        private final String collection;
+
+        private final Boolean nullable;
+
+        private final String index;
+
+        private final String item;
+
+        private final Step contents;
+
+        ForEachStep(String collection, Boolean nullable, String index, String item, Step contents) {
+            this.collection = collection;
+            this.nullable = nullable;
+            this.index = index;
+            this.item = item;
+            this.contents = contents;
+        }
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            Map<String, Object> bindings = context.getBindings();
+            Iterable<?> iterable = EVALUATOR.evaluateIterable(collection, bindings,
+                    nullable != null ? nullable : configuration.isNullableOnForEach());
+            if (iterable == null || !iterable.iterator().hasNext()) {
+                shape.decision(0);
+                return;
+            }
+            int i = 0;
+            for (Object o : iterable) {
+                shape.decision(1);
+                int uniqueNumber = context.getUniqueNumber();
+                if (o instanceof Map.Entry<?, ?> entry) {
+                    bind(context, index, entry.getKey(), uniqueNumber);
+                    bind(context, item, entry.getValue(), uniqueNumber);
+                } else {
+                    bind(context, index, i, uniqueNumber);
+                    bind(context, item, o, uniqueNumber);
+                }
+                contents.evaluate(context, shape);
+                i++;
+            }
+            shape.decision(0);
+            bindings.remove(item);
+            bindings.remove(index);
+        }
+
+        private static void bind(DynamicContext context, String name, Object value, int uniqueNumber) {
+            if (name == null) return;
+            context.bind(name, value);
+            context.bind(ITEM_PREFIX + name + "_" + uniqueNumber, value);
+        }
+
+    }
+
+    /**
+     * ${}的值直接拼入sql，计入形状，求值方式与TextSqlNode相同
+     */
+    private record TextStep(String text, Pattern injectionFilter) implements Step {
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            Map<String, Object> bindings = context.getBindings();
+            new GenericTokenParser("${", "}", content -> {
+                Object parameter = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+                if (parameter == null) bindings.put("value", null);
+                else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) bindings.put("value", parameter);
+                Object value = OgnlCache.getValue(content, bindings);
+                String text = value == null ? "" : String.valueOf(value);
+                if (injectionFilter != null && !injectionFilter.matcher(text).matches()) {
+                    throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+                }
+                shape.text(text);
+                return text;
+            }).parse(text);
+        }
+
+    }
+
+    private record BindStep(String name, String expression) implements Step {
+
+        @Override
+        public void evaluate(DynamicContext context, ShapeBuilder shape) {
+            context.bind(name, OgnlCache.getValue(expression, context.getBindings()));
+        }
+
+    }
+
+}
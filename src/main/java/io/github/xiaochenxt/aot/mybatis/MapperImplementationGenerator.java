@@ -0,0 +1,242 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.session.SqlSession;
+import org.springframework.aot.generate.GeneratedClass;
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.javapoet.*;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.lang.model.element.Modifier;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * aot阶段为mapper接口生成实现类，每个方法直接调用预先创建的MapperMethod（mybatis-plus为MybatisMapperMethod），
+ * 不再经过jdk代理、MapperProxy的方法缓存查找；并生成启动时注册到{@link MapperImplementations}的初始化代码
+ * <p>MapperMethod在方法第一次调用时创建，与MapperProxy一样，未绑定statement的方法不调用就不会报错；
+ * default方法直接继承接口的实现。有自身泛型参数、引用了不可访问类型的接口仍使用代理</p>
+ * <p>系统属性{@code xc.aot.mybatis.mappers=true}时生成</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class MapperImplementationGenerator {
+
+    public static final String ENABLED_PROPERTY = "xc.aot.mybatis.mappers";
+
+    private static final String FEATURE_NAME = "MyBatisMapper";
+
+    private static final ClassName MYBATIS_PLUS_MAPPER_METHOD =
+            ClassName.get("com.baomidou.mybatisplus.core.override", "MybatisMapperMethod");
+
+    private final GenerationContext context;
+
+    private final BeanFactoryInitializationCode code;
+
+    private final ClassName mapperMethodType;
+
+    public MapperImplementationGenerator(GenerationContext context, BeanFactoryInitializationCode code, ClassLoader classLoader) {
+        this.context = context;
+        this.code = code;
+        this.mapperMethodType = ClassUtils.isPresent(MYBATIS_PLUS_MAPPER_METHOD.reflectionName(), classLoader)
+                ? MYBATIS_PLUS_MAPPER_METHOD : ClassName.get(MapperMethod.class);
+    }
+
+    public static boolean enabled() {
+        return "true".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * 生成实现类
+     * @param mapperInterfaces mapper接口，不符合条件的会被忽略
+     * @return 已生成实现类的接口
+     */
+    public Set<String> generate(Collection<Class<?>> mapperInterfaces) {
+        Map<Class<?>, ClassName> implementations = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Class<?> mapperInterface : mapperInterfaces) {
+            try {
+                ClassName implementation = implementation(mapperInterface);
+                if (implementation == null) continue;
+                implementations.put(mapperInterface, implementation);
+                HintMetrics.detail("registering mybatis mapper implementation " + mapperInterface.getName());
+            } catch (RuntimeException | LinkageError e) {
+                HintMetrics.detail("skipping mybatis mapper implementation " + mapperInterface.getName() + ": " + e);
+                skipped++;
+            }
+        }
+        if (skipped > 0) HintMetrics.summary("mybatis mapper implementations: " + skipped + " interfaces failed, using proxies");
+        Set<String> result = new LinkedHashSet<>();
+        if (implementations.isEmpty()) return result;
+        GeneratedMethod method = code.getMethods().add("registerMyBatisMapperImplementations", builder -> {
+            builder.addJavadoc("Register the generated MyBatis mapper implementations.");
+            builder.addModifiers(Modifier.PRIVATE);
+            builder.addParameter(DefaultListableBeanFactory.class, BeanFactoryInitializationCode.BEAN_FACTORY_VARIABLE);
+            implementations.forEach((mapperInterface, implementation) -> {
+                builder.addStatement("$T.register($T.class, $T::new)", MapperImplementations.class, mapperInterface, implementation);
+                result.add(mapperInterface.getName());
+            });
+        });
+        code.addInitializer(method.toMethodReference());
+        return result;
+    }
+
+    private ClassName implementation(Class<?> mapperInterface) {
+        if (!mapperInterface.isInterface() || mapperInterface.getTypeParameters().length > 0
+                || !isAccessible(mapperInterface, mapperInterface)) return null;
+        List<MethodSpec> methods = new ArrayList<>();
+        List<FieldSpec> fields = new ArrayList<>();
+        for (Method method : abstractMethods(mapperInterface)) {
+            String field = "method" + fields.size();
+            MethodSpec spec = method(mapperInterface, method, field);
+            if (spec == null) return null;
+            methods.add(spec);
+            fields.add(FieldSpec.builder(mapperMethodType, field, Modifier.PRIVATE).build());
+        }
+        GeneratedClass generatedClass = context.getGeneratedClasses().addForFeatureComponent(FEATURE_NAME, mapperInterface, builder -> {
+            builder.addJavadoc("MyBatis mapper implementation for {@link $T}.", mapperInterface);
+            builder.addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+            builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+            builder.addSuperinterface(mapperInterface);
+            builder.addField(SqlSession.class, "sqlSession", Modifier.PRIVATE, Modifier.FINAL);
+            builder.addFields(fields);
+            builder.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC)
+                    .addParameter(SqlSession.class, "sqlSession").addStatement("this.sqlSession = sqlSession").build());
+            builder.addMethods(methods);
+        });
+        return generatedClass.getName();
+    }
+
+    /**
+     * 需要实现的方法，泛型父接口中的方法与子接口中解析后签名相同的只保留子接口中的
+     */
+    private static Collection<Method> abstractMethods(Class<?> mapperInterface) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        for (Method method : mapperInterface.getMethods()) {
+            if (method.isDefault() || java.lang.reflect.Modifier.isStatic(method.getModifiers()) || method.isBridge()
+                    || method.isSynthetic() || ReflectionUtils.isObjectMethod(method)) continue;
+            StringBuilder key = new StringBuilder(method.getName());
+            for (int i = 0; i < method.getParameterCount(); i++) {
+                key.append(',').append(ResolvableType.forMethodParameter(method, i, mapperInterface).toClass().getName());
+            }
+            methods.merge(key.toString(), method, (existing, candidate) ->
+                    existing.getDeclaringClass().isAssignableFrom(candidate.getDeclaringClass()) ? candidate : existing);
+        }
+        return methods.values();
+    }
+
+    private MethodSpec method(Class<?> mapperInterface, Method method, String field) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(method.getName()).addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC);
+        for (TypeVariable<Method> typeVariable : method.getTypeParameters()) {
+            List<TypeName> bounds = new ArrayList<>();
+            for (Type bound : typeVariable.getBounds()) {
+                if (bound == Object.class) continue;
+                TypeName boundName = typeName(bound, mapperInterface, method);
+                if (boundName == null) return null;
+                bounds.add(boundName);
+            }
+            builder.addTypeVariable(TypeVariableName.get(typeVariable.getName(), bounds.toArray(new TypeName[0])));
+        }
+        TypeName returnType = typeName(method.getGenericReturnType(), mapperInterface, method);
+        if (returnType == null) return null;
+        builder.returns(returnType);
+        Type[] parameterTypes = method.getGenericParameterTypes();
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            TypeName parameterType = typeName(parameterTypes[i], mapperInterface, method);
+            if (parameterType == null) return null;
+            builder.addParameter(parameterType, "arg" + i);
+            arguments.add("arg" + i);
+        }
+        if (method.isVarArgs()) builder.varargs();
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if (!isAccessible(exceptionType, mapperInterface)) return null;
+            builder.addException(exceptionType);
+        }
+        if (!isAccessible(method.getDeclaringClass(), mapperInterface)) return null;
+        CodeBlock.Builder parameterClasses = CodeBlock.builder();
+        for (Class<?> parameterClass : method.getParameterTypes()) {
+            if (!isAccessible(parameterClass, mapperInterface)) return null;
+            parameterClasses.add(", $T.class", parameterClass);
+        }
+        builder.addStatement("$T method = this.$L", mapperMethodType, field);
+        builder.beginControlFlow("if (method == null)");
+        builder.addStatement("this.$L = method = new $T($T.class, $T.method($T.class, $S$L), sqlSession.getConfiguration())",
+                field, mapperMethodType, mapperInterface, MapperImplementations.class, method.getDeclaringClass(),
+                method.getName(), parameterClasses.build());
+        builder.endControlFlow();
+        String invocation = "method.execute(sqlSession, new Object[]{" + String.join(", ", arguments) + "})";
+        if (method.getReturnType() == void.class) builder.addStatement(invocation);
+        else builder.addStatement("return ($T) " + invocation, returnType.box());
+        return builder.build();
+    }
+
+    /**
+     * 泛型父接口的类型变量按mapper接口解析为具体类型，方法自身的类型变量保留
+     * @return 无法解析或不可访问时为null
+     */
+    private TypeName typeName(Type type, Class<?> mapperInterface, Method method) {
+        if (type instanceof Class<?> c) {
+            if (!isAccessible(c, mapperInterface)) return null;
+            return TypeName.get(c);
+        }
+        if (type instanceof ParameterizedType parameterizedType) {
+            TypeName raw = typeName(parameterizedType.getRawType(), mapperInterface, method);
+            if (!(raw instanceof ClassName rawName)) return null;
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            TypeName[] argumentNames = new TypeName[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                argumentNames[i] = typeName(arguments[i], mapperInterface, method);
+                if (argumentNames[i] == null) return null;
+            }
+            if (parameterizedType.getOwnerType() instanceof ParameterizedType) return null;
+            return ParameterizedTypeName.get(rawName, argumentNames);
+        }
+        if (type instanceof GenericArrayType arrayType) {
+            TypeName component = typeName(arrayType.getGenericComponentType(), mapperInterface, method);
+            return component == null ? null : ArrayTypeName.of(component);
+        }
+        if (type instanceof WildcardType wildcardType) {
+            if (wildcardType.getLowerBounds().length > 0) {
+                TypeName lower = typeName(wildcardType.getLowerBounds()[0], mapperInterface, method);
+                return lower == null ? null : WildcardTypeName.supertypeOf(lower);
+            }
+            TypeName upper = typeName(wildcardType.getUpperBounds()[0], mapperInterface, method);
+            return upper == null ? null : WildcardTypeName.subtypeOf(upper);
+        }
+        if (type instanceof TypeVariable<?> typeVariable) {
+            if (typeVariable.getGenericDeclaration() == method) return TypeVariableName.get(typeVariable.getName());
+            if (!(typeVariable.getGenericDeclaration() instanceof Class<?> declaringClass)) return null;
+            int index = Arrays.asList(declaringClass.getTypeParameters()).indexOf(typeVariable);
+            ResolvableType resolved = ResolvableType.forClass(mapperInterface).as(declaringClass).getGeneric(index);
+            if (resolved == ResolvableType.NONE || resolved.getType() instanceof TypeVariable<?>) return null;
+            return typeName(resolved.getType(), mapperInterface, method);
+        }
+        return null;
+    }
+
+    /**
+     * 实现类与mapper接口在同一个包中，能访问同包的非private类和其他包中的public类
+     */
+    private static boolean isAccessible(Class<?> c, Class<?> mapperInterface) {
+        while (c.isArray()) c = c.getComponentType();
+        if (c.isPrimitive()) return true;
+        for (; c != null; c = c.getEnclosingClass()) {
+            int modifiers = c.getModifiers();
+            if (java.lang.reflect.Modifier.isPrivate(modifiers)) return false;
+            if (!java.lang.reflect.Modifier.isPublic(modifiers)
+                    && !(c.getClassLoader() == mapperInterface.getClassLoader() && c.getPackageName().equals(mapperInterface.getPackageName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.session.SqlSession;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 已生成的mapper实现类，由aot生成的初始化代码在容器启动时注册
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class MapperImplementations {
+
+    private static final Map<Class<?>, Function<SqlSession, ?>> IMPLEMENTATIONS = new ConcurrentHashMap<>();
+
+    private MapperImplementations() {
+    }
+
+    public static <T> void register(Class<T> mapperInterface, Function<SqlSession, ? extends T> factory) {
+        IMPLEMENTATIONS.put(mapperInterface, factory);
+    }
+
+    public static boolean isEmpty() {
+        return IMPLEMENTATIONS.isEmpty();
+    }
+
+    /**
+     * 创建mapper实现
+     * @return 没有生成实现类时为null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> mapperInterface, SqlSession sqlSession) {
+        Function<SqlSession, ?> factory = IMPLEMENTATIONS.get(mapperInterface);
+        return factory == null ? null : (T) factory.apply(sqlSession);
+    }
+
+    /**
+     * 供生成的实现类创建MapperMethod
+     */
+    public static Method method(Class<?> declaringClass, String name, Class<?>... parameterTypes) {
+        Method method = ReflectionUtils.findMethod(declaringClass, name, parameterTypes);
+        if (method == null) throw new BindingException("Mapper method " + declaringClass.getName() + "." + name + " not found");
+        return method;
+    }
+
+}
@@ -0,0 +1,158 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.utils.ClasspathIndex;
+import io.github.xiaochenxt.aot.utils.ParallelScanner;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.ResourceUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.*;
+
+/**
+ * mybatis映射文件索引：namespace -> 映射文件，同一namespace可以分布在多个映射文件中
+ * <p>类路径只扫描一次，每个文件只读取到根元素为止，mapper接口按namespace精确匹配映射文件，不再按{@code 类名.xml}后缀逐个比较</p>
+ * <p>候选文件为应用（类路径中的目录）中的所有xml，以及{@code mybatis.mapper-locations}、{@code mybatis-plus.mapper-locations}
+ * 匹配的xml（包括jar中的）</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class MapperXmlIndex {
+
+    private static final String[] LOCATION_PROPERTIES = {"mybatis.mapper-locations", "mybatis-plus.mapper-locations"};
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    /**
+     * namespace -> 映射文件，按类路径中的顺序
+     */
+    private final Map<String, List<String>> namespaces = new LinkedHashMap<>();
+
+    private MapperXmlIndex() {
+    }
+
+    /**
+     * 建立索引
+     * @param index 类路径索引
+     * @param environment 用于读取mapper-locations，可为null
+     * @return
+     */
+    public static MapperXmlIndex of(ClasspathIndex index, Environment environment) {
+        List<String> patterns = environment == null ? List.of() : locationPatterns(environment);
+        List<Map<String, String>> results = ParallelScanner.map(index.entries(), entry -> {
+            List<String> candidates = new ArrayList<>();
+            for (String resourceName : entry.resourceNames()) {
+                if (resourceName.endsWith(".xml") && (!entry.archive() || matches(patterns, resourceName))) candidates.add(resourceName);
+            }
+            Map<String, String> resourceNamespaces = new LinkedHashMap<>();
+            if (candidates.isEmpty()) return resourceNamespaces;
+            XMLInputFactory factory = inputFactory();
+            entry.readResources(candidates, (resourceName, bytes) -> {
+                String namespace = namespace(factory, bytes);
+                if (namespace != null) resourceNamespaces.put(resourceName, namespace);
+            });
+            return resourceNamespaces;
+        });
+        MapperXmlIndex xmlIndex = new MapperXmlIndex();
+        for (Map<String, String> result : results) {
+            result.forEach((resourceName, namespace) ->
+                    xmlIndex.namespaces.computeIfAbsent(namespace, key -> new ArrayList<>()).add(resourceName));
+        }
+        return xmlIndex;
+    }
+
+    /**
+     * namespace对应的映射文件
+     * @param namespace 通常是mapper接口的全类名
+     * @return 以/分隔的相对路径，没有时返回空集合
+     */
+    public List<String> resources(String namespace) {
+        return Collections.unmodifiableList(namespaces.getOrDefault(namespace, List.of()));
+    }
+
+    /**
+     * 所有映射文件
+     * @return
+     */
+    public Collection<String> resources() {
+        return namespaces.values().stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * namespace -> 映射文件
+     * @return
+     */
+    public Map<String, List<String>> namespaces() {
+        return Collections.unmodifiableMap(namespaces);
+    }
+
+    /**
+     * classpath:、classpath*:开头的mapper-locations，转换为相对路径的ant模式；file:等其他位置不在类路径中，忽略
+     */
+    private static List<String> locationPatterns(Environment environment) {
+        Binder binder = Binder.get(environment);
+        List<String> patterns = new ArrayList<>();
+        for (String property : LOCATION_PROPERTIES) {
+            for (String location : binder.bind(property, String[].class).orElse(new String[0])) {
+                location = location.trim();
+                if (location.startsWith(ResourceUtils.CLASSPATH_URL_PREFIX)) {
+                    location = location.substring(ResourceUtils.CLASSPATH_URL_PREFIX.length());
+                } else if (location.startsWith("classpath*:")) {
+                    location = location.substring("classpath*:".length());
+                } else if (location.contains(":")) {
+                    continue;
+                }
+                while (location.startsWith("/")) location = location.substring(1);
+                if (!location.isEmpty()) patterns.add(location);
+            }
+        }
+        return patterns;
+    }
+
+    private static boolean matches(List<String> patterns, String resourceName) {
+        for (String pattern : patterns) {
+            if (MATCHER.match(pattern, resourceName)) return true;
+        }
+        return false;
+    }
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // 只读取根元素，不加载mybatis-3-mapper.dtd
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @return 根元素为mapper时返回namespace属性，否则返回null
+     */
+    private static String namespace(XMLInputFactory factory, byte[] bytes) {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (!"mapper".equals(reader.getLocalName())) return null;
+                    String namespace = reader.getAttributeValue(null, "namespace");
+                    return namespace == null || namespace.isBlank() ? null : namespace.trim();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {}
+            }
+        }
+    }
+
+}
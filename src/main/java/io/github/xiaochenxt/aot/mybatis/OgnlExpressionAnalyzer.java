@@ -0,0 +1,220 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot.Node;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.ognl.*;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.*;
+
+/**
+ * aot阶段解析快照中动态sql的ognl表达式（if/when的test、foreach的collection、bind的value、${}），
+ * 按mapper方法的参数类型推断表达式读取的属性所在的类型和调用的方法
+ * <p>推断出的类型交给{@link ResultAccessorGenerator}生成访问器，运行时ognl通过{@link ResultAccessorPropertyAccessor}
+ * 直接调用getter，{@link DynamicSqlPlan}对属性路径与null的比较也直接使用访问器；调用的方法注册反射</p>
+ * <p>bind、foreach引入的变量及Map中的值类型未知，不做推断</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class OgnlExpressionAnalyzer {
+
+    private final ClassLoader classLoader;
+
+    private final Set<Class<?>> types = new LinkedHashSet<>();
+
+    private final Set<Method> methods = new LinkedHashSet<>();
+
+    private final Map<Class<?>, Reflector> reflectors = new HashMap<>();
+
+    public OgnlExpressionAnalyzer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 表达式读取了属性的bean类型
+     * @return
+     */
+    public Set<Class<?>> types() {
+        return types;
+    }
+
+    /**
+     * 表达式在已知类型上调用的方法
+     * @return
+     */
+    public Set<Method> methods() {
+        return methods;
+    }
+
+    public void analyze(ConfigurationSnapshot snapshot) {
+        int skipped = 0;
+        for (Node namespace : snapshot.namespaces()) {
+            Class<?> mapperType;
+            try {
+                mapperType = ClassUtils.forName(namespace.get("namespace"), classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+            if (!mapperType.isInterface()) continue;
+            for (Node statement : namespace.children("statement")) {
+                List<Node> dynamic = statement.children("dynamic");
+                if (dynamic.isEmpty()) continue;
+                String id = statement.get("id");
+                Map<String, Root> roots = roots(mapperType, id.substring(id.lastIndexOf('.') + 1));
+                if (roots.isEmpty()) continue;
+                List<String> expressions = new ArrayList<>();
+                expressions(dynamic.getFirst(), expressions);
+                for (String expression : expressions) {
+                    try {
+                        visit((org.apache.ibatis.ognl.Node) Ognl.parseExpression(expression), roots);
+                    } catch (OgnlException | RuntimeException e) {
+                        HintMetrics.detail("skipping mybatis expression " + expression + " in " + id + ": " + e.getMessage());
+                        skipped++;
+                    }
+                }
+            }
+        }
+        HintMetrics.detail("analyzed mybatis expressions: " + types.size() + " types, " + methods.size() + " methods");
+        if (skipped > 0) HintMetrics.summary("mybatis expressions: " + skipped + " could not be analyzed");
+    }
+
+    private static void expressions(Node node, List<String> expressions) {
+        switch (node.type()) {
+            case "if" -> expressions.add(node.get("test"));
+            case "foreach" -> expressions.add(node.get("collection"));
+            case "bind" -> expressions.add(node.get("expression"));
+            case "dynamicText" -> new GenericTokenParser("${", "}", content -> {
+                expressions.add(content);
+                return "";
+            }).parse(node.get("text"));
+            default -> {}
+        }
+        for (Node child : node.children()) expressions(child, expressions);
+    }
+
+    /**
+     * 表达式中的根变量，与ParamNameResolver的命名规则一致；只有一个参数且没有@Param时，根变量是参数对象的属性
+     */
+    private Map<String, Root> roots(Class<?> mapperType, String methodName) {
+        Map<String, Root> roots = new HashMap<>();
+        for (Method method : mapperType.getMethods()) {
+            if (!method.getName().equals(methodName)) continue;
+            List<Parameter> parameters = new ArrayList<>();
+            for (Parameter parameter : method.getParameters()) {
+                Class<?> type = parameter.getType();
+                if (!RowBounds.class.isAssignableFrom(type) && !ResultHandler.class.isAssignableFrom(type)) parameters.add(parameter);
+            }
+            if (parameters.size() == 1 && !parameters.getFirst().isAnnotationPresent(Param.class)) {
+                Class<?> type = parameters.getFirst().getType();
+                Reflector reflector = reflector(type);
+                if (reflector == null) continue;
+                roots.putIfAbsent(DynamicContext.PARAMETER_OBJECT_KEY, new Root(null, type));
+                for (String property : reflector.getGetablePropertyNames()) {
+                    roots.putIfAbsent(property, new Root(type, reflector.getGetterType(property)));
+                }
+                continue;
+            }
+            for (int i = 0; i < parameters.size(); i++) {
+                Parameter parameter = parameters.get(i);
+                Root root = new Root(null, parameter.getType());
+                Param param = parameter.getAnnotation(Param.class);
+                if (param != null) roots.putIfAbsent(param.value(), root);
+                if (parameter.isNamePresent()) roots.putIfAbsent(parameter.getName(), root);
+                roots.putIfAbsent("arg" + i, root);
+                roots.putIfAbsent("param" + (i + 1), root);
+            }
+        }
+        return roots;
+    }
+
+    private void visit(org.apache.ibatis.ognl.Node node, Map<String, Root> roots) {
+        if (node instanceof ASTChain) {
+            chain(node, roots);
+            return;
+        }
+        if (node instanceof ASTProperty property && !property.isIndexedAccess()) {
+            String name = propertyName(node);
+            if (name != null) {
+                root(name, roots);
+                return;
+            }
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) visit(node.jjtGetChild(i), roots);
+    }
+
+    private void chain(org.apache.ibatis.ognl.Node chain, Map<String, Root> roots) {
+        Class<?> current = null;
+        for (int i = 0; i < chain.jjtGetNumChildren(); i++) {
+            org.apache.ibatis.ognl.Node child = chain.jjtGetChild(i);
+            String name = child instanceof ASTProperty property && !property.isIndexedAccess() ? propertyName(child) : null;
+            if (name != null) {
+                current = i == 0 ? root(name, roots) : property(current, name);
+            } else if (child instanceof ASTMethod method && i > 0) {
+                for (int j = 0; j < child.jjtGetNumChildren(); j++) visit(child.jjtGetChild(j), roots);
+                current = method(current, method.getMethodName(), child.jjtGetNumChildren());
+            } else {
+                // 索引访问、根对象上的方法等，结果类型未知
+                visit(child, roots);
+                current = null;
+            }
+        }
+    }
+
+    private Class<?> root(String name, Map<String, Root> roots) {
+        Root root = roots.get(name);
+        if (root == null) return null;
+        if (root.owner != null) types.add(root.owner);
+        return root.type;
+    }
+
+    private Class<?> property(Class<?> type, String name) {
+        Reflector reflector = type == null ? null : reflector(type);
+        if (reflector == null || !reflector.hasGetter(name)) return null;
+        types.add(type);
+        return reflector.getGetterType(name);
+    }
+
+    private Class<?> method(Class<?> type, String name, int parameterCount) {
+        if (type == null) return null;
+        Class<?> returnType = null;
+        int candidates = 0;
+        for (Method method : type.getMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != parameterCount
+                    || method.getDeclaringClass() == Object.class) continue;
+            methods.add(method);
+            returnType = method.getReturnType();
+            candidates++;
+        }
+        return candidates == 1 ? returnType : null;
+    }
+
+    /**
+     * 只为可生成访问器的bean类型推断属性，jdk类型、集合、Map交给ognl自己的访问方式
+     */
+    private Reflector reflector(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.getName().startsWith("java")
+                || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)) return null;
+        return reflectors.computeIfAbsent(type, Reflector::new);
+    }
+
+    /**
+     * @param owner 根变量是单个参数对象的属性时为参数类型
+     * @param type 根变量的类型
+     */
+    private record Root(Class<?> owner, Class<?> type) {
+    }
+
+    private static String propertyName(org.apache.ibatis.ognl.Node property) {
+        if (property.jjtGetNumChildren() != 1 || !(property.jjtGetChild(0) instanceof ASTConst name)) return null;
+        return name.getValue() instanceof String value ? value : null;
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.mybatis.ConfigurationSnapshot.Node;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 为动态sql缓存生成结果的{@link XMLLanguageDriver}，见{@link DynamicSqlPlan}
+ * <p>快照中的statement由{@link ConfigurationSnapshotRestorer}直接使用构建期的sql树，运行时解析的映射文件和注解
+ * 从mybatis创建的DynamicSqlSource中读取sql树，读取失败时保持原样</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class PlanCachingLanguageDriver extends XMLLanguageDriver {
+
+    private static final Log LOG = LogFactory.getLog(PlanCachingLanguageDriver.class);
+
+    /**
+     * 每个statement默认最多缓存的形状数
+     */
+    public static final int DEFAULT_MAX_SHAPES = 64;
+
+    private final int maxShapes;
+
+    public PlanCachingLanguageDriver() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    public PlanCachingLanguageDriver(int maxShapes) {
+        this.maxShapes = maxShapes;
+    }
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+        return plan(configuration, super.createSqlSource(configuration, script, parameterType));
+    }
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
+        return plan(configuration, super.createSqlSource(configuration, script, parameterType));
+    }
+
+    /**
+     * 将默认的XMLLanguageDriver替换为本类，已配置了其他默认语言驱动（如mybatis-plus）的不替换
+     * @param configuration mybatis配置
+     * @param maxShapes 每个statement最多缓存的形状数
+     */
+    public static void install(Configuration configuration, int maxShapes) {
+        if (configuration.getDefaultScriptingLanguageInstance().getClass() != XMLLanguageDriver.class) return;
+        configuration.getLanguageRegistry().register(new PlanCachingLanguageDriver(maxShapes));
+        configuration.setDefaultScriptingLanguage(PlanCachingLanguageDriver.class);
+    }
+
+    SqlSource plan(Configuration configuration, Node root, SqlSource dynamicSqlSource) {
+        return maxShapes > 0 ? new DynamicSqlPlan(configuration, root, dynamicSqlSource, maxShapes) : dynamicSqlSource;
+    }
+
+    private SqlSource plan(Configuration configuration, SqlSource sqlSource) {
+        if (maxShapes <= 0 || sqlSource.getClass() != DynamicSqlSource.class) return sqlSource;
+        Node root;
+        try {
+            root = ConfigurationSnapshotCapture.sqlNode((DynamicSqlSource) sqlSource);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (LOG.isDebugEnabled()) LOG.debug("Unable to read dynamic sql nodes, sql plan cache skipped: " + e);
+            return sqlSource;
+        }
+        return plan(configuration, root, sqlSource);
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+/**
+ * aot阶段为mybatis结果类型、参数类型生成的访问器，直接调用构造器和getter/setter，代替反射
+ * <p>由{@link ResultAccessorGenerator}生成，注册到{@link ResultAccessors}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public interface ResultAccessor<T> {
+
+    /**
+     * 访问器不包含的属性，调用方应回退到反射
+     */
+    Object UNKNOWN = new Object();
+
+    Class<T> type();
+
+    /**
+     * 调用无参构造器
+     * @return
+     */
+    T newInstance();
+
+    /**
+     * 调用属性的setter
+     * @return 属性不在访问器中时为false
+     */
+    boolean set(T target, String property, Object value);
+
+    /**
+     * 调用属性的getter
+     * @return 属性不在访问器中时为{@link #UNKNOWN}
+     */
+    Object get(T target, String property);
+
+}
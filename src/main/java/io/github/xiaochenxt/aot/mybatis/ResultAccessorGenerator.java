@@ -0,0 +1,195 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.springframework.aot.generate.GeneratedClass;
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.javapoet.*;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.lang.model.element.Modifier;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * aot阶段为mybatis结果类型、参数类型生成{@link ResultAccessor}，并生成启动时注册到{@link ResultAccessors}的初始化代码
+ * <p>属性集合与mybatis的{@link Reflector}保持一致，只生成可直接访问（同包或public）的构造器和getter/setter，
+ * 其余属性运行时回退到反射</p>
+ * <p>系统属性{@code xc.aot.mybatis.accessors=false}时不生成</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ResultAccessorGenerator {
+
+    public static final String ENABLED_PROPERTY = "xc.aot.mybatis.accessors";
+
+    /**
+     * 所有属性都由访问器读写的类型只需要Reflector读取的元数据，以及构造器映射使用的构造器
+     */
+    public static final MemberCategory[] ACCESSOR_MEMBERS = {MemberCategory.DECLARED_FIELDS,
+            MemberCategory.INTROSPECT_PUBLIC_METHODS, MemberCategory.INTROSPECT_DECLARED_METHODS,
+            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS};
+
+    private static final String FEATURE_NAME = "MyBatisResultAccessor";
+
+    private final GenerationContext context;
+
+    private final BeanFactoryInitializationCode code;
+
+    public ResultAccessorGenerator(GenerationContext context, BeanFactoryInitializationCode code) {
+        this.context = context;
+        this.code = code;
+    }
+
+    public static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * 生成访问器
+     * @param types 结果类型、参数类型，不符合条件的会被忽略
+     * @return 所有属性都已生成直接调用的类型
+     */
+    public Set<String> generate(Collection<Class<?>> types) {
+        Set<String> complete = new LinkedHashSet<>();
+        List<ClassName> accessors = new ArrayList<>();
+        int skipped = 0;
+        for (Class<?> type : new LinkedHashSet<>(types)) {
+            if (!isCandidate(type)) continue;
+            try {
+                Accessor accessor = accessor(type);
+                if (accessor == null) continue;
+                accessors.add(accessor.generatedClass.getName());
+                if (accessor.complete) complete.add(type.getName());
+                HintMetrics.detail("registering mybatis result accessor " + type.getName());
+            } catch (RuntimeException | LinkageError e) {
+                HintMetrics.detail("skipping mybatis result accessor " + type.getName() + ": " + e);
+                skipped++;
+            }
+        }
+        if (skipped > 0) HintMetrics.summary("mybatis result accessors: " + skipped + " types failed, using reflection");
+        if (accessors.isEmpty()) return complete;
+        GeneratedMethod method = code.getMethods().add("registerMyBatisResultAccessors", builder -> {
+            builder.addJavadoc("Register the generated MyBatis result accessors.");
+            builder.addModifiers(Modifier.PRIVATE);
+            builder.addParameter(DefaultListableBeanFactory.class, BeanFactoryInitializationCode.BEAN_FACTORY_VARIABLE);
+            for (ClassName accessor : accessors) {
+                builder.addStatement("$T.register(new $T())", ResultAccessors.class, accessor);
+            }
+        });
+        code.addInitializer(method.toMethodReference());
+        return complete;
+    }
+
+    private static boolean isCandidate(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || type.isRecord()
+                || type.isAnonymousClass() || type.isLocalClass() || type.isSynthetic()
+                || java.lang.reflect.Modifier.isAbstract(type.getModifiers())) return false;
+        if (type.getName().startsWith("java")) return false;
+        // Map、集合由MetaObject的MapWrapper、CollectionWrapper处理，使用访问器会丢失自动映射的列
+        if (Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+                || Iterator.class.isAssignableFrom(type)) return false;
+        // 非静态内部类无法直接创建
+        for (Class<?> c = type; c.getEnclosingClass() != null; c = c.getEnclosingClass()) {
+            if (!java.lang.reflect.Modifier.isStatic(c.getModifiers())) return false;
+        }
+        return isAccessible(type, type);
+    }
+
+    private Accessor accessor(Class<?> type) {
+        Constructor<?> constructor = ClassUtils.getConstructorIfAvailable(type);
+        if (constructor == null || !isAccessible(constructor, type)) return null;
+        Reflector reflector = new Reflector(type);
+        boolean complete = true;
+        CodeBlock.Builder setters = CodeBlock.builder().beginControlFlow("switch (property)");
+        for (String property : reflector.getSetablePropertyNames()) {
+            Method setter = method(reflector.getSetInvoker(property));
+            if (setter == null || !isAccessible(setter, type) || !isAccessible(setter.getParameterTypes()[0], type)) {
+                complete = false;
+                continue;
+            }
+            setters.add("case $S -> target.$L(($T) value);\n", property, setter.getName(),
+                    TypeName.get(ClassUtils.resolvePrimitiveIfNecessary(setter.getParameterTypes()[0])));
+        }
+        setters.add("default -> {\n$>return false;\n$<}\n").endControlFlow().addStatement("return true");
+        CodeBlock.Builder getters = CodeBlock.builder().add("return switch (property) {\n$>");
+        for (String property : reflector.getGetablePropertyNames()) {
+            Method getter = method(reflector.getGetInvoker(property));
+            if (getter == null || !isAccessible(getter, type)) {
+                complete = false;
+                continue;
+            }
+            getters.add("case $S -> target.$L();\n", property, getter.getName());
+        }
+        getters.add("default -> UNKNOWN;\n$<};\n");
+        ClassName typeName = ClassName.get(type);
+        GeneratedClass generatedClass = context.getGeneratedClasses().addForFeatureComponent(FEATURE_NAME, type, builder -> {
+            builder.addJavadoc("MyBatis result accessor for {@link $T}.", typeName);
+            builder.addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+            builder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(ResultAccessor.class), typeName));
+            builder.addMethod(MethodSpec.methodBuilder("type").addAnnotation(Override.class).addModifiers(Modifier.PUBLIC)
+                    .returns(ParameterizedTypeName.get(ClassName.get(Class.class), typeName))
+                    .addStatement("return $T.class", typeName).build());
+            builder.addMethod(MethodSpec.methodBuilder("newInstance").addAnnotation(Override.class).addModifiers(Modifier.PUBLIC)
+                    .returns(typeName).addStatement("return new $T()", typeName).build());
+            builder.addMethod(MethodSpec.methodBuilder("set").addAnnotation(Override.class).addModifiers(Modifier.PUBLIC)
+                    .returns(boolean.class).addParameter(typeName, "target").addParameter(String.class, "property")
+                    .addParameter(Object.class, "value").addCode(setters.build()).build());
+            builder.addMethod(MethodSpec.methodBuilder("get").addAnnotation(Override.class).addModifiers(Modifier.PUBLIC)
+                    .returns(Object.class).addParameter(typeName, "target").addParameter(String.class, "property")
+                    .addCode(getters.build()).build());
+        });
+        return new Accessor(generatedClass, complete);
+    }
+
+    /**
+     * @return getter/setter方法，字段访问或有歧义的方法返回null
+     */
+    private static Method method(Invoker invoker) {
+        if (!(invoker instanceof MethodInvoker) || invoker instanceof AmbiguousMethodInvoker) return null;
+        Field field = ReflectionUtils.findField(MethodInvoker.class, "method");
+        if (field == null) return null;
+        ReflectionUtils.makeAccessible(field);
+        return (Method) ReflectionUtils.getField(field, invoker);
+    }
+
+    /**
+     * 访问器与type在同一个包中，能访问同包的非private成员和其他包中public类的public成员
+     */
+    private static boolean isAccessible(Member member, Class<?> type) {
+        int modifiers = member.getModifiers();
+        if (java.lang.reflect.Modifier.isPrivate(modifiers)) return false;
+        if (isSamePackage(member.getDeclaringClass(), type)) return true;
+        return java.lang.reflect.Modifier.isPublic(modifiers) && isAccessible(member.getDeclaringClass(), type);
+    }
+
+    private static boolean isAccessible(Class<?> c, Class<?> type) {
+        while (c.isArray()) c = c.getComponentType();
+        if (c.isPrimitive()) return true;
+        for (; c != null; c = c.getEnclosingClass()) {
+            int modifiers = c.getModifiers();
+            if (java.lang.reflect.Modifier.isPrivate(modifiers)) return false;
+            if (!java.lang.reflect.Modifier.isPublic(modifiers) && !isSamePackage(c, type)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSamePackage(Class<?> c, Class<?> type) {
+        return c.getClassLoader() == type.getClassLoader() && c.getPackageName().equals(type.getPackageName());
+    }
+
+    private record Accessor(GeneratedClass generatedClass, boolean complete) {
+    }
+
+}
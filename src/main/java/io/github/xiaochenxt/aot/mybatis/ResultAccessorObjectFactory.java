@@ -0,0 +1,25 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+
+import java.util.List;
+
+/**
+ * 无参创建对象时优先使用{@link ResultAccessor#newInstance()}，其余情况（构造器映射、集合接口等）交给{@link DefaultObjectFactory}
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ResultAccessorObjectFactory extends DefaultObjectFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public <T> T create(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+        if (constructorArgTypes == null || constructorArgTypes.isEmpty()) {
+            ResultAccessor<T> accessor = ResultAccessors.get(type);
+            if (accessor != null) return accessor.newInstance();
+        }
+        return super.create(type, constructorArgTypes, constructorArgs);
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.ognl.ObjectPropertyAccessor;
+import org.apache.ibatis.ognl.OgnlContext;
+import org.apache.ibatis.ognl.OgnlException;
+import org.apache.ibatis.ognl.OgnlRuntime;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * ognl读写有{@link ResultAccessor}的对象的属性时直接调用getter/setter，动态sql的test、bind等表达式不再通过反射读取参数
+ * <p>访问器不包含的属性回退到ognl默认的{@link ObjectPropertyAccessor}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ResultAccessorPropertyAccessor extends ObjectPropertyAccessor {
+
+    private final ResultAccessor<Object> accessor;
+
+    @SuppressWarnings("unchecked")
+    ResultAccessorPropertyAccessor(ResultAccessor<?> accessor) {
+        this.accessor = (ResultAccessor<Object>) accessor;
+    }
+
+    /**
+     * 为已注册的访问器类型设置ognl属性访问器，Map、集合等ognl有专门访问方式的类型除外
+     */
+    static void install() {
+        for (ResultAccessor<?> accessor : ResultAccessors.all()) {
+            Class<?> type = accessor.type();
+            if (Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+                    || Iterator.class.isAssignableFrom(type)) continue;
+            OgnlRuntime.setPropertyAccessor(type, new ResultAccessorPropertyAccessor(accessor));
+        }
+    }
+
+    @Override
+    public Object getProperty(OgnlContext context, Object target, Object name) throws OgnlException {
+        if (name instanceof String property) {
+            Object value = accessor.get(target, property);
+            if (value != ResultAccessor.UNKNOWN) return value;
+        }
+        return super.getProperty(context, target, name);
+    }
+
+    @Override
+    public void setProperty(OgnlContext context, Object target, Object name, Object value) throws OgnlException {
+        if (name instanceof String property && accessor.set(target, property, value)) return;
+        super.setProperty(context, target, name, value);
+    }
+
+}
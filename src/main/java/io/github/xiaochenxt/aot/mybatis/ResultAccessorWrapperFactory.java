@@ -0,0 +1,62 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 有{@link ResultAccessor}的对象，读写简单属性时直接调用getter/setter
+ * <p>属性类型、名称等元数据仍由{@link BeanWrapper}通过Reflector提供，嵌套属性、集合下标及访问器不包含的属性也回退到{@link BeanWrapper}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class ResultAccessorWrapperFactory implements ObjectWrapperFactory {
+
+    @Override
+    public boolean hasWrapperFor(Object object) {
+        // Map、集合仍交给MetaObject的MapWrapper、CollectionWrapper
+        if (object instanceof Map || object instanceof Collection) return false;
+        return ResultAccessors.get(object.getClass()) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ObjectWrapper getWrapperFor(MetaObject metaObject, Object object) {
+        return new AccessorBeanWrapper(metaObject, object, (ResultAccessor<Object>) ResultAccessors.get(object.getClass()));
+    }
+
+    static class AccessorBeanWrapper extends BeanWrapper {
+
+        private final Object object;
+
+        private final ResultAccessor<Object> accessor;
+
+        AccessorBeanWrapper(MetaObject metaObject, Object object, ResultAccessor<Object> accessor) {
+            super(metaObject, object);
+            this.object = object;
+            this.accessor = accessor;
+        }
+
+        @Override
+        public Object get(PropertyTokenizer prop) {
+            if (prop.getIndex() == null && !prop.hasNext()) {
+                Object value = accessor.get(object, prop.getName());
+                if (value != ResultAccessor.UNKNOWN) return value;
+            }
+            return super.get(prop);
+        }
+
+        @Override
+        public void set(PropertyTokenizer prop, Object value) {
+            if (prop.getIndex() == null && !prop.hasNext() && accessor.set(object, prop.getName(), value)) return;
+            super.set(prop, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已生成的{@link ResultAccessor}，由aot生成的初始化代码在容器启动时注册
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ResultAccessors {
+
+    private static final Map<Class<?>, ResultAccessor<?>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private ResultAccessors() {
+    }
+
+    public static void register(ResultAccessor<?> accessor) {
+        ACCESSORS.put(accessor.type(), accessor);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ResultAccessor<T> get(Class<T> type) {
+        return (ResultAccessor<T>) ACCESSORS.get(type);
+    }
+
+    static Collection<ResultAccessor<?>> all() {
+        return ACCESSORS.values();
+    }
+
+    public static boolean isEmpty() {
+        return ACCESSORS.isEmpty();
+    }
+
+    /**
+     * 将访问器接入mybatis及动态sql使用的ognl，已配置了自定义ObjectFactory、ObjectWrapperFactory的不替换
+     * @param configuration
+     */
+    public static void install(Configuration configuration) {
+        if (isEmpty()) return;
+        if (configuration.getObjectFactory().getClass() == DefaultObjectFactory.class) {
+            configuration.setObjectFactory(new ResultAccessorObjectFactory());
+        }
+        if (configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class) {
+            configuration.setObjectWrapperFactory(new ResultAccessorWrapperFactory());
+        }
+        ResultAccessorPropertyAccessor.install();
+    }
+
+}
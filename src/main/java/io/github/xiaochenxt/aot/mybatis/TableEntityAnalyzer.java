@@ -0,0 +1,147 @@
+package io.github.xiaochenxt.aot.mybatis;
+
+import io.github.xiaochenxt.aot.utils.ClassMetadata;
+import io.github.xiaochenxt.aot.utils.ClasspathIndex;
+import io.github.xiaochenxt.aot.utils.HintMetrics;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * aot阶段按mybatis-plus的规则（TableInfoHelper）计算mapper实体的表字段：沿父类收集非static、非transient、
+ * 未标注{@code @TableField(exist = false)}的字段，子类同名字段覆盖父类
+ * <p>只为这些字段注册反射，运行时实体的getDeclaredFields只返回表字段，mybatis-plus构建TableInfo时得到与构建期相同的结果，
+ * 实体的其他字段不再进入镜像；实体的方法按是否已有完整的访问器注册内省或调用</p>
+ * <p>按包注册反射的{@link io.github.xiaochenxt.aot.AllRuntimeHintsRegistrar}及可达性模式下的BasicFeature
+ * 通过{@link #entityClassNames}得到直接继承BaseMapper的mapper接口对应的实体，不再为其注册字段</p>
+ * <p>系统属性{@code xc.aot.mybatis.table-fields=false}时关闭，可达性模式下需同时传给spring-boot:process-aot和native-image</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class TableEntityAnalyzer {
+
+    public static final String ENABLED_PROPERTY = "xc.aot.mybatis.table-fields";
+
+    private static final String BASE_MAPPER = "com.baomidou.mybatisplus.core.mapper.BaseMapper";
+
+    private static final String TABLE_FIELD = "com.baomidou.mybatisplus.annotation.TableField";
+
+    /**
+     * mapper接口泛型签名中BaseMapper的类型参数
+     */
+    private static final Pattern ENTITY_SIGNATURE = Pattern.compile("Lcom/baomidou/mybatisplus/core/mapper/BaseMapper<L([\\w/$]+)[<;]");
+
+    /**
+     * 已生成完整访问器的实体，Reflector只读取方法元数据
+     */
+    private static final MemberCategory[] ACCESSOR_ENTITY_MEMBERS = {MemberCategory.INTROSPECT_PUBLIC_METHODS,
+            MemberCategory.INTROSPECT_DECLARED_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS};
+
+    private static final MemberCategory[] ENTITY_MEMBERS = {MemberCategory.INVOKE_PUBLIC_METHODS,
+            MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS};
+
+    private final Class<?> baseMapper;
+
+    public TableEntityAnalyzer(ClassLoader classLoader) {
+        this.baseMapper = ClassUtils.resolveClassName(BASE_MAPPER, classLoader);
+    }
+
+    public static boolean enabled(ClassLoader classLoader) {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY)) && ClassUtils.isPresent(BASE_MAPPER, classLoader);
+    }
+
+    /**
+     * 只读取字节码，查找应用中直接继承BaseMapper的mapper接口对应的实体及其父类，不会加载类
+     * @param index 类路径索引
+     * @return 未启用或没有mybatis-plus时返回空集合
+     */
+    public static Set<String> entityClassNames(ClasspathIndex index) {
+        if ("false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY)) || !index.containsClass(BASE_MAPPER)) return Set.of();
+        Set<String> classNames = new LinkedHashSet<>();
+        for (String mapperName : index.implementingClassNames(index.applicationEntries(), BASE_MAPPER)) {
+            ClassMetadata metadata = index.metadata(mapperName);
+            if (metadata == null || metadata.signature() == null) continue;
+            Matcher matcher = ENTITY_SIGNATURE.matcher(metadata.signature());
+            if (!matcher.find()) continue;
+            // 实体的父类字段同样只注册表字段
+            for (String className = matcher.group(1).replace('/', '.'); className != null && !className.startsWith("java.")
+                    && classNames.add(className); ) {
+                ClassMetadata entity = index.metadata(className);
+                className = entity == null ? null : entity.superClassName();
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * 计算继承了BaseMapper的mapper接口对应实体的表字段
+     * @param mapperInterfaces mapper接口
+     * @return 实体及其表字段
+     */
+    public Map<Class<?>, List<Field>> analyze(Collection<Class<?>> mapperInterfaces) {
+        Map<Class<?>, List<Field>> entities = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Class<?> mapperInterface : mapperInterfaces) {
+            if (!baseMapper.isAssignableFrom(mapperInterface)) continue;
+            Class<?> entity = ResolvableType.forClass(mapperInterface).as(baseMapper).resolveGeneric(0);
+            if (entity == null || entity == Object.class || entities.containsKey(entity)) continue;
+            try {
+                List<Field> fields = tableFields(entity);
+                entities.put(entity, fields);
+                HintMetrics.detail("precomputed mybatis-plus table fields " + entity.getName() + ": " + fields.size());
+            } catch (RuntimeException | LinkageError e) {
+                HintMetrics.detail("skipping mybatis-plus entity " + entity.getName() + ": " + e);
+                skipped++;
+            }
+        }
+        if (skipped > 0) HintMetrics.summary("mybatis-plus table fields: " + skipped + " entities failed, registered as regular result types");
+        return entities;
+    }
+
+    /**
+     * 注册实体及其父类的方法、构造器和表字段
+     * @param accessorTypes 已生成完整访问器的类型
+     */
+    public static void register(RuntimeHints hints, Map<Class<?>, List<Field>> entities, Set<String> accessorTypes) {
+        entities.forEach((entity, fields) -> {
+            MemberCategory[] members = accessorTypes.contains(entity.getName()) ? ACCESSOR_ENTITY_MEMBERS : ENTITY_MEMBERS;
+            for (Class<?> c = entity; c != null && c != Object.class && !c.getName().startsWith("java"); c = c.getSuperclass()) {
+                hints.reflection().registerType(c, members);
+            }
+            fields.forEach(hints.reflection()::registerField);
+        });
+    }
+
+    private static List<Field> tableFields(Class<?> entity) {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (Class<?> c = entity; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) continue;
+                // 子类先于父类遍历，同名字段保留子类的
+                if (fields.containsKey(field.getName())) continue;
+                fields.put(field.getName(), field);
+            }
+        }
+        fields.values().removeIf(field -> !exists(field));
+        return new ArrayList<>(fields.values());
+    }
+
+    private static boolean exists(Field field) {
+        for (Annotation annotation : field.getDeclaredAnnotations()) {
+            if (annotation.annotationType().getName().equals(TABLE_FIELD)) {
+                return !Boolean.FALSE.equals(AnnotationUtils.getValue(annotation, "exist"));
+            }
+        }
+        return true;
+    }
+
+}
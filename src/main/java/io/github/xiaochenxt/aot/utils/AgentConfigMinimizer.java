@@ -0,0 +1,632 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+/**
+ * native-image-agent收集结果的合并和精简，输出一个最小的{@code reachability-metadata.json}
+ * <ul>
+ *     <li>合并多个目录（多次运行）的结果，同一类型、同一条件的条目合并，成员去重</li>
+ *     <li>去掉idea、agent、instrument等开发环境的类</li>
+ *     <li>声明了allDeclaredMethods/allDeclaredConstructors/allDeclaredFields时去掉逐个列出的成员</li>
+ *     <li>去掉已由spring aot生成的元数据（包括本项目的注册器）及{@link HintMetrics}记录的注册覆盖的条目或成员</li>
+ * </ul>
+ * <p>构建（spring-boot:process-aot，最好也完成native-image）后执行，只依赖JDK：</p>
+ * <pre>
+ * java -cp xc-spring-boot-native.jar io.github.xiaochenxt.aot.utils.AgentConfigMinimizer agent-output [agent-output2 ...]
+ * </pre>
+ * <p>读取的输入：agent目录中的reflect/jni/proxy/serialization/resource-config.json或reachability-metadata.json；
+ * 目标目录（系统属性{@code xc.aot.agent.target}，默认target）中spring-aot生成的元数据和{@code xc-aot-report}中的注册明细</p>
+ * <p>结果默认写入{@code target/xc-aot-report/reachability-metadata.json}（系统属性{@code xc.aot.agent.output}修改），
+ * 确认后放入{@code src/main/resources/META-INF/native-image}并删除原来的agent配置文件；
+ * 无法用glob表示的资源正则和未被覆盖的lambda捕获类会输出提示，不会写入</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class AgentConfigMinimizer {
+
+    public static final String TARGET_PROPERTY = "xc.aot.agent.target";
+
+    public static final String OUTPUT_PROPERTY = "xc.aot.agent.output";
+
+    /**
+     * 开发工具、agent注入的类，agent运行在idea中时会被收集
+     */
+    private static final List<String> STRIPPED_PREFIXES = List.of("com.intellij.", "org.jetbrains.", "sun.instrument.",
+            "jdk.internal.agent.", "com.sun.tools.attach.", "sun.tools.attach.", "com.oracle.svm.agent.",
+            "org.graalvm.nativeimage.agent.");
+
+    private static final List<String> STRIPPED_RESOURCE_PREFIXES = List.of("com/intellij/", "org/jetbrains/", "idea/");
+
+    /**
+     * reachability-metadata.json中反射条目的标志，查询类标志（queryAll*、allDeclaredClasses等）在新格式中是默认的
+     */
+    private static final List<String> FLAGS = List.of("allDeclaredConstructors", "allPublicConstructors",
+            "allDeclaredMethods", "allPublicMethods", "allDeclaredFields", "allPublicFields", "unsafeAllocated");
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final Pattern QUOTED = Pattern.compile("\\\\Q(.*?)\\\\E");
+
+    private final Metadata agent = new Metadata();
+
+    private final Metadata covered = new Metadata();
+
+    private final Map<String, Integer> stripped = new TreeMap<>();
+
+    private int collapsedMembers;
+
+    private AgentConfigMinimizer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("usage: java -cp xc-spring-boot-native.jar " + AgentConfigMinimizer.class.getName() + " <agent output directory>...");
+            return;
+        }
+        Path target = Path.of(System.getProperty(TARGET_PROPERTY, "target"));
+        String dir = System.getProperty(HintMetrics.DIR_PROPERTY);
+        Path reportDirectory = dir == null || dir.isBlank() ? target.resolve("xc-aot-report") : Path.of(dir);
+        String outputProperty = System.getProperty(OUTPUT_PROPERTY);
+        Path output = outputProperty == null || outputProperty.isBlank() ? reportDirectory.resolve("reachability-metadata.json") : Path.of(outputProperty);
+        AgentConfigMinimizer minimizer = new AgentConfigMinimizer();
+        long inputBytes = 0;
+        for (String arg : args) {
+            inputBytes += minimizer.agent.read(Path.of(arg));
+        }
+        int inputEntries = minimizer.agent.size();
+        minimizer.readCoverage(target.resolve("spring-aot"), reportDirectory);
+        minimizer.strip();
+        minimizer.collapse();
+        int coveredEntries = minimizer.subtractCovered();
+        String json = Json.write(minimizer.agent.toJson()) + "\n";
+        if (output.toAbsolutePath().getParent() != null) Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, json);
+        System.out.println("agent metadata: " + inputEntries + " entries (" + inputBytes + " bytes) -> " + minimizer.agent.size()
+                + " entries (" + json.getBytes(java.nio.charset.StandardCharsets.UTF_8).length + " bytes)");
+        minimizer.stripped.forEach((prefix, count) -> System.out.println("  stripped " + count + " " + prefix + "* entries"));
+        System.out.println("  collapsed " + minimizer.collapsedMembers + " members covered by allDeclared* flags");
+        System.out.println("  dropped " + coveredEntries + " entries covered by spring aot and xc-aot registrations");
+        for (String pattern : minimizer.agent.regexResources) {
+            System.out.println("  skipping resource pattern " + pattern + ": cannot be expressed as a glob");
+        }
+        for (String type : minimizer.agent.lambdaCapturingTypes) {
+            System.out.println("  skipping lambda capturing type " + type + ": register it with FeatureUtils.registerSerializationLambdaCapturingClass");
+        }
+        System.out.println("reachability metadata " + output.toAbsolutePath());
+    }
+
+    /**
+     * spring aot生成的元数据，以及注册明细中不在生成元数据里的注册（native-image阶段的Feature）
+     */
+    private void readCoverage(Path springAot, Path reportDirectory) throws IOException {
+        if (Files.isDirectory(springAot)) {
+            try (Stream<Path> directories = Files.walk(springAot)) {
+                for (Path directory : directories.filter(Files::isDirectory).filter(path -> path.endsWith("native-image") || isMetadataDirectory(path)).toList()) {
+                    covered.read(directory);
+                }
+            }
+        }
+        for (String phase : List.of("aot", "native-image")) {
+            Path file = reportDirectory.resolve(phase + HintMetrics.REGISTRATIONS_SUFFIX);
+            if (!Files.exists(file)) continue;
+            for (String line : Files.readAllLines(file)) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) continue;
+                String category = parts[0], name = parts[2];
+                switch (HintMetrics.Category.valueOf(category)) {
+                    // 反射注册的成员无法从明细中得知，只以生成的元数据为准
+                    case REFLECTION -> {}
+                    case JNI -> {
+                        TypeEntry entry = new TypeEntry(null, name);
+                        entry.flags.addAll(FLAGS);
+                        covered.jni.putIfAbsent(entry.key(), entry);
+                    }
+                    case SERIALIZATION -> {
+                        covered.serialization.putIfAbsent(key(null, name), serializationEntry(null, name));
+                        covered.lambdaCapturingTypes.add(name);
+                    }
+                    case PROXY -> {
+                        List<String> interfaces = Arrays.stream(name.replace("[", "").replace("]", "").split(","))
+                                .map(String::trim).toList();
+                        TypeEntry entry = new TypeEntry(null, Map.of("proxy", interfaces));
+                        covered.reflection.putIfAbsent(entry.key(), entry);
+                    }
+                    case RESOURCE -> covered.resourcePatterns.add(ImageSizeAnalyzer.resourcePattern(name));
+                }
+            }
+        }
+    }
+
+    private static boolean isMetadataDirectory(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.anyMatch(file -> Metadata.FILES.contains(file.getFileName().toString()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void strip() {
+        stripTypes(agent.reflection);
+        stripTypes(agent.jni);
+        agent.serialization.values().removeIf(entry -> strippedPrefix(typeNames(entry.get("type")), condition(entry)) != null);
+        agent.lambdaCapturingTypes.removeIf(type -> strippedPrefix(List.of(type), null) != null);
+        agent.resources.values().removeIf(entry -> {
+            String glob = String.valueOf(entry.get("glob"));
+            for (String prefix : STRIPPED_RESOURCE_PREFIXES) {
+                if (glob.startsWith(prefix)) {
+                    stripped.merge(prefix, 1, Integer::sum);
+                    return true;
+                }
+            }
+            return strippedPrefix(List.of(), condition(entry)) != null;
+        });
+    }
+
+    private void stripTypes(Map<String, TypeEntry> entries) {
+        entries.values().removeIf(entry -> strippedPrefix(typeNames(entry.type), entry.condition) != null);
+    }
+
+    /**
+     * @return 类型或条件属于开发环境时返回匹配的前缀并计数
+     */
+    private String strippedPrefix(List<String> typeNames, Map<String, Object> condition) {
+        List<String> names = new ArrayList<>(typeNames);
+        if (condition != null) condition.values().forEach(value -> names.add(String.valueOf(value)));
+        for (String name : names) {
+            for (String prefix : STRIPPED_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    stripped.merge(prefix, 1, Integer::sum);
+                    return prefix;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void collapse() {
+        for (TypeEntry entry : agent.reflection.values()) collapsedMembers += entry.collapse();
+        for (TypeEntry entry : agent.jni.values()) collapsedMembers += entry.collapse();
+    }
+
+    /**
+     * 去掉被覆盖的条目，部分覆盖的只保留未覆盖的标志和成员
+     * @return 完全覆盖而去掉的条目数
+     */
+    private int subtractCovered() {
+        int dropped = subtractTypes(agent.reflection, covered.reflection) + subtractTypes(agent.jni, covered.jni);
+        int size = agent.serialization.size();
+        agent.serialization.entrySet().removeIf(entry -> isCovered(covered.serialization, entry.getKey(), entry.getValue()));
+        dropped += size - agent.serialization.size();
+        size = agent.lambdaCapturingTypes.size();
+        agent.lambdaCapturingTypes.removeAll(covered.lambdaCapturingTypes);
+        dropped += size - agent.lambdaCapturingTypes.size();
+        size = agent.resources.size();
+        agent.resources.values().removeIf(entry -> {
+            if (entry.get("module") != null) return false;
+            String glob = String.valueOf(entry.get("glob"));
+            for (Map<String, Object> coveredEntry : covered.resources.values()) {
+                if (glob.equals(coveredEntry.get("glob")) && coveredEntry.get("module") == null
+                        && (coveredEntry.get("condition") == null || Objects.equals(coveredEntry.get("condition"), entry.get("condition")))) return true;
+            }
+            if (glob.contains("*")) return false;
+            for (Pattern pattern : covered.resourcePatterns) {
+                if (pattern.matcher(glob).matches()) return true;
+            }
+            return false;
+        });
+        dropped += size - agent.resources.size();
+        size = agent.bundles.size();
+        agent.bundles.keySet().removeAll(covered.bundles.keySet());
+        dropped += size - agent.bundles.size();
+        return dropped;
+    }
+
+    private static int subtractTypes(Map<String, TypeEntry> entries, Map<String, TypeEntry> coveredEntries) {
+        Map<String, List<TypeEntry>> coveredByType = new HashMap<>();
+        for (TypeEntry entry : coveredEntries.values()) {
+            coveredByType.computeIfAbsent(entry.typeKey(), key -> new ArrayList<>()).add(entry);
+        }
+        int size = entries.size();
+        entries.values().removeIf(entry -> {
+            List<TypeEntry> candidates = coveredByType.get(entry.typeKey());
+            if (candidates == null) return false;
+            boolean typeCovered = false;
+            for (TypeEntry coveredEntry : candidates) {
+                if (coveredEntry.condition != null && !coveredEntry.condition.equals(entry.condition)) continue;
+                typeCovered = true;
+                entry.subtract(coveredEntry);
+            }
+            return typeCovered && entry.isEmpty();
+        });
+        return size - entries.size();
+    }
+
+    private static boolean isCovered(Map<String, Map<String, Object>> coveredEntries, String key, Map<String, Object> entry) {
+        return coveredEntries.containsKey(key) || coveredEntries.containsKey(key(null, entry.get("type")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> condition(Map<String, Object> entry) {
+        return entry.get("condition") instanceof Map<?, ?> map ? (Map<String, Object>) map : null;
+    }
+
+    /**
+     * 类型名，或代理的接口名
+     */
+    private static List<String> typeNames(Object type) {
+        if (type instanceof Map<?, ?> map && map.get("proxy") instanceof List<?> interfaces) {
+            return interfaces.stream().map(String::valueOf).toList();
+        }
+        return List.of(String.valueOf(type));
+    }
+
+    private static String key(Map<String, Object> condition, Object type) {
+        return (condition == null ? "" : new TreeMap<>(condition).toString()) + "|" + type;
+    }
+
+    private static Map<String, Object> serializationEntry(Map<String, Object> condition, Object type) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        if (condition != null) entry.put("condition", condition);
+        entry.put("type", type);
+        return entry;
+    }
+
+    /**
+     * 旧格式的条件typeReachable对应新格式的typeReached
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readCondition(Object value) {
+        if (!(value instanceof Map<?, ?> map) || map.isEmpty()) return null;
+        Map<String, Object> condition = new LinkedHashMap<>();
+        ((Map<String, Object>) map).forEach((key, conditionValue) ->
+                condition.put("typeReachable".equals(key) ? "typeReached" : key, conditionValue));
+        return condition;
+    }
+
+    /**
+     * 将旧格式的资源正则转换为glob，只支持\Q...\E、.*、[^/]*及普通字符
+     * @return 无法转换时返回null
+     */
+    static String toGlob(String regex) {
+        StringBuilder glob = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            Matcher matcher = QUOTED.matcher(regex);
+            if (matcher.find(i) && matcher.start() == i) {
+                glob.append(matcher.group(1));
+                i = matcher.end();
+            } else if (regex.startsWith(".*", i)) {
+                glob.append("**");
+                i += 2;
+            } else if (regex.startsWith("[^/]*", i)) {
+                glob.append('*');
+                i += 5;
+            } else if (regex.charAt(i) == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                glob.append(regex.charAt(i + 1));
+                i += 2;
+            } else if (Character.isLetterOrDigit(regex.charAt(i)) || "/-_@=,;:".indexOf(regex.charAt(i)) >= 0) {
+                glob.append(regex.charAt(i));
+                i++;
+            } else {
+                return null;
+            }
+        }
+        return glob.toString();
+    }
+
+    /**
+     * 一组元数据，可从旧格式的多个配置文件或新格式的reachability-metadata.json读取
+     */
+    private static final class Metadata {
+
+        private static final Set<String> FILES = Set.of("reflect-config.json", "jni-config.json", "proxy-config.json",
+                "serialization-config.json", "resource-config.json", "reachability-metadata.json");
+
+        private final Map<String, TypeEntry> reflection = new TreeMap<>();
+
+        private final Map<String, TypeEntry> jni = new TreeMap<>();
+
+        private final Map<String, Map<String, Object>> serialization = new TreeMap<>();
+
+        private final Map<String, Map<String, Object>> resources = new TreeMap<>();
+
+        private final Map<String, Map<String, Object>> bundles = new TreeMap<>();
+
+        private final Set<String> lambdaCapturingTypes = new TreeSet<>();
+
+        /**
+         * 注册明细中的资源模式，只用于覆盖判断
+         */
+        private final List<Pattern> resourcePatterns = new ArrayList<>();
+
+        private final Set<String> regexResources = new TreeSet<>();
+
+        /**
+         * @return 读取的文件总字节数
+         */
+        private long read(Path directory) throws IOException {
+            long bytes = 0;
+            for (String fileName : FILES) {
+                Path file = directory.resolve(fileName);
+                if (!Files.isRegularFile(file)) continue;
+                String text = Files.readString(file);
+                bytes += text.length();
+                Object json = Json.parse(text);
+                switch (fileName) {
+                    case "reflect-config.json" -> readTypes(json, reflection);
+                    case "jni-config.json" -> readTypes(json, jni);
+                    case "proxy-config.json" -> readProxies(json);
+                    case "serialization-config.json" -> readSerialization(json);
+                    case "resource-config.json" -> readResources(json);
+                    default -> readReachabilityMetadata(json);
+                }
+            }
+            return bytes;
+        }
+
+        private void readTypes(Object json, Map<String, TypeEntry> entries) {
+            for (Map<String, Object> map : maps(json)) {
+                Object type = map.containsKey("type") ? map.get("type") : map.get("name");
+                if (type == null) continue;
+                TypeEntry entry = new TypeEntry(readCondition(map.get("condition")), type);
+                for (String flag : FLAGS) {
+                    if (Boolean.TRUE.equals(map.get(flag))) entry.flags.add(flag);
+                }
+                for (String key : List.of("methods", "queriedMethods")) {
+                    for (Map<String, Object> method : maps(map.get(key))) {
+                        entry.methods.add(signature(method));
+                    }
+                }
+                for (Map<String, Object> field : maps(map.get("fields"))) {
+                    entry.fields.add(String.valueOf(field.get("name")));
+                }
+                entries.merge(entry.key(), entry, TypeEntry::merge);
+                if (entries == reflection) {
+                    if (Boolean.TRUE.equals(map.get("jniAccessible"))) {
+                        TypeEntry jniEntry = entry.copy();
+                        jni.merge(jniEntry.key(), jniEntry, TypeEntry::merge);
+                    }
+                    if (Boolean.TRUE.equals(map.get("serializable"))) {
+                        serialization.putIfAbsent(key(entry.condition, type), serializationEntry(entry.condition, type));
+                    }
+                }
+            }
+        }
+
+        private void readProxies(Object json) {
+            for (Object element : list(json)) {
+                Map<String, Object> condition = null;
+                Object interfaces = element;
+                if (element instanceof Map<?, ?> map) {
+                    condition = readCondition(map.get("condition"));
+                    interfaces = map.get("interfaces");
+                }
+                if (!(interfaces instanceof List<?> list)) continue;
+                TypeEntry entry = new TypeEntry(condition, Map.of("proxy", list.stream().map(String::valueOf).toList()));
+                reflection.merge(entry.key(), entry, TypeEntry::merge);
+            }
+        }
+
+        private void readSerialization(Object json) {
+            // 旧格式为数组，或包含types、lambdaCapturingTypes、proxies的对象
+            List<Map<String, Object>> types = json instanceof Map<?, ?> ? maps(Json.get(json, "types")) : maps(json);
+            for (Map<String, Object> map : types) {
+                Map<String, Object> condition = readCondition(map.get("condition"));
+                Object type = map.containsKey("type") ? map.get("type") : map.get("name");
+                serialization.putIfAbsent(key(condition, type), serializationEntry(condition, type));
+            }
+            for (Map<String, Object> map : maps(Json.get(json, "lambdaCapturingTypes"))) {
+                lambdaCapturingTypes.add(String.valueOf(map.get("name")));
+            }
+            for (Map<String, Object> map : maps(Json.get(json, "proxies"))) {
+                Map<String, Object> condition = readCondition(map.get("condition"));
+                Object type = Map.of("proxy", list(map.get("interfaces")).stream().map(String::valueOf).toList());
+                serialization.putIfAbsent(key(condition, type), serializationEntry(condition, type));
+            }
+        }
+
+        private void readResources(Object json) {
+            Object includes = Json.get(json, "resources", "includes");
+            if (includes == null) includes = Json.get(json, "resources");
+            for (Map<String, Object> map : maps(includes)) {
+                Object pattern = map.get("pattern");
+                if (pattern == null) {
+                    addResource(map);
+                    continue;
+                }
+                String glob = toGlob(String.valueOf(pattern));
+                if (glob == null) {
+                    regexResources.add(String.valueOf(pattern));
+                    try {
+                        resourcePatterns.add(Pattern.compile(String.valueOf(pattern)));
+                    } catch (PatternSyntaxException ignored) {}
+                    continue;
+                }
+                Map<String, Object> resource = new LinkedHashMap<>();
+                if (map.get("condition") != null) resource.put("condition", readCondition(map.get("condition")));
+                if (map.get("module") != null) resource.put("module", map.get("module"));
+                resource.put("glob", glob);
+                addResource(resource);
+            }
+            for (Map<String, Object> map : maps(Json.get(json, "bundles"))) {
+                addBundle(map);
+            }
+        }
+
+        private void readReachabilityMetadata(Object json) {
+            readTypes(Json.get(json, "reflection"), reflection);
+            readTypes(Json.get(json, "jni"), jni);
+            for (Map<String, Object> map : maps(Json.get(json, "serialization"))) {
+                Map<String, Object> condition = readCondition(map.get("condition"));
+                serialization.putIfAbsent(key(condition, map.get("type")), serializationEntry(condition, map.get("type")));
+            }
+            for (Map<String, Object> map : maps(Json.get(json, "resources"))) {
+                addResource(map);
+            }
+            for (Map<String, Object> map : maps(Json.get(json, "bundles"))) {
+                addBundle(map);
+            }
+        }
+
+        private void addResource(Map<String, Object> map) {
+            if (map.get("glob") == null) return;
+            Map<String, Object> resource = new LinkedHashMap<>(map);
+            Map<String, Object> condition = readCondition(map.get("condition"));
+            if (condition == null) resource.remove("condition");
+            else resource.put("condition", condition);
+            resources.putIfAbsent(key(condition, map.get("module") + ":" + map.get("glob")), resource);
+        }
+
+        private void addBundle(Map<String, Object> map) {
+            if (map.get("name") != null) bundles.putIfAbsent(String.valueOf(map.get("name")), map);
+        }
+
+        private int size() {
+            return reflection.size() + jni.size() + serialization.size() + lambdaCapturingTypes.size() + resources.size() + bundles.size();
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            if (!reflection.isEmpty()) json.put("reflection", reflection.values().stream().map(TypeEntry::toJson).toList());
+            if (!jni.isEmpty()) json.put("jni", jni.values().stream().map(TypeEntry::toJson).toList());
+            if (!serialization.isEmpty()) json.put("serialization", new ArrayList<>(serialization.values()));
+            if (!resources.isEmpty()) json.put("resources", new ArrayList<>(resources.values()));
+            if (!bundles.isEmpty()) json.put("bundles", new ArrayList<>(bundles.values()));
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Map<String, Object>> maps(Object value) {
+            List<Map<String, Object>> maps = new ArrayList<>();
+            for (Object element : list(value)) {
+                if (element instanceof Map<?, ?> map) maps.add((Map<String, Object>) map);
+            }
+            return maps;
+        }
+
+        private static List<?> list(Object value) {
+            return value instanceof List<?> list ? list : List.of();
+        }
+
+        /**
+         * 方法签名，如{@code name(int,java.lang.String)}，旧格式未指定参数时为{@code name}，表示所有重载
+         */
+        private static String signature(Map<String, Object> method) {
+            String name = String.valueOf(method.get("name"));
+            if (!(method.get("parameterTypes") instanceof List<?> parameterTypes)) return name;
+            StringJoiner joiner = new StringJoiner(",", name + "(", ")");
+            for (Object parameterType : parameterTypes) joiner.add(String.valueOf(parameterType));
+            return joiner.toString();
+        }
+
+    }
+
+    /**
+     * 反射或jni条目
+     */
+    private static final class TypeEntry {
+
+        private final Map<String, Object> condition;
+
+        /**
+         * 类名，或{@code {"proxy": [接口]}}
+         */
+        private final Object type;
+
+        private final Set<String> flags = new TreeSet<>();
+
+        private final Set<String> methods = new TreeSet<>();
+
+        private final Set<String> fields = new TreeSet<>();
+
+        private TypeEntry(Map<String, Object> condition, Object type) {
+            this.condition = condition;
+            this.type = type;
+        }
+
+        private String key() {
+            return AgentConfigMinimizer.key(condition, typeKey());
+        }
+
+        private String typeKey() {
+            return type instanceof Map<?, ?> ? "proxy:" + typeNames(type) : String.valueOf(type);
+        }
+
+        private TypeEntry merge(TypeEntry other) {
+            flags.addAll(other.flags);
+            methods.addAll(other.methods);
+            fields.addAll(other.fields);
+            return this;
+        }
+
+        private TypeEntry copy() {
+            return new TypeEntry(condition, type).merge(this);
+        }
+
+        /**
+         * 去掉已被allDeclared*包含的成员，agent只在声明成员的类下列出成员
+         * @return 去掉的成员数
+         */
+        private int collapse() {
+            int size = methods.size() + fields.size();
+            removeDeclared(flags);
+            return size - methods.size() - fields.size();
+        }
+
+        private void removeDeclared(Set<String> declaredFlags) {
+            boolean declaredMethods = declaredFlags.contains("allDeclaredMethods");
+            boolean declaredConstructors = declaredFlags.contains("allDeclaredConstructors");
+            methods.removeIf(method -> method.startsWith(CONSTRUCTOR) ? declaredConstructors : declaredMethods);
+            if (declaredFlags.contains("allDeclaredFields")) fields.clear();
+        }
+
+        /**
+         * 去掉other已包含的标志和成员
+         */
+        private void subtract(TypeEntry other) {
+            flags.removeAll(other.flags);
+            removeDeclared(other.flags);
+            methods.removeIf(method -> other.methods.contains(method)
+                    || other.methods.contains(method.contains("(") ? method.substring(0, method.indexOf('(')) : method));
+            fields.removeAll(other.fields);
+        }
+
+        private boolean isEmpty() {
+            return flags.isEmpty() && methods.isEmpty() && fields.isEmpty();
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            if (condition != null) json.put("condition", condition);
+            json.put("type", type);
+            for (String flag : FLAGS) {
+                if (flags.contains(flag)) json.put(flag, true);
+            }
+            if (!methods.isEmpty()) {
+                List<Map<String, Object>> methodList = new ArrayList<>();
+                for (String method : methods) {
+                    Map<String, Object> methodJson = new LinkedHashMap<>();
+                    int index = method.indexOf('(');
+                    methodJson.put("name", index < 0 ? method : method.substring(0, index));
+                    if (index >= 0) {
+                        String parameters = method.substring(index + 1, method.length() - 1);
+                        methodJson.put("parameterTypes", parameters.isEmpty() ? List.of() : List.of(parameters.split(",")));
+                    }
+                    methodList.add(methodJson);
+                }
+                json.put("methods", methodList);
+            }
+            if (!fields.isEmpty()) json.put("fields", fields.stream().map(field -> Map.of("name", field)).toList());
+            return json;
+        }
+
+    }
+
+}
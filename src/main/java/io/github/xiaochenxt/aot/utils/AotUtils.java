@@ -3,25 +3,13 @@ package io.github.xiaochenxt.aot.utils;
 import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.TypeReference;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.io.support.ResourcePatternResolver;
-import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
-import org.springframework.core.type.classreading.MetadataReader;
-import org.springframework.core.type.classreading.MetadataReaderFactory;
 import org.springframework.util.ClassUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * 基于spring的aot处理操作简化工具
@@ -34,6 +22,8 @@ public class AotUtils {
 
     private final ClassLoader classLoader;
 
+    private volatile ClasspathIndex classpathIndex;
+
     public static AotUtils newInstance(RuntimeHints hints, ClassLoader classLoader) {
         return new AotUtils(hints, classLoader);
     }
@@ -51,6 +41,16 @@ public class AotUtils {
         return classLoader;
     }
 
+    /**
+     * 当前类加载器的类路径索引，整个构建过程共享；同一实例只在第一次调用时检查类路径是否变化
+     * @return
+     */
+    public ClasspathIndex classpathIndex() {
+        ClasspathIndex index = classpathIndex;
+        if (index == null) classpathIndex = index = ClasspathIndex.of(classLoader);
+        return index;
+    }
+
     public boolean isPresent(String className) {
         try {
             classLoader.loadClass(className);
@@ -70,29 +70,42 @@ public class AotUtils {
 
     public static final MemberCategory[] defaultMemberCategory = new MemberCategory[]{MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_CLASSES, MemberCategory.UNSAFE_ALLOCATED};
 
+    /**
+     * 去掉字段相关的成员类别，用于字段需要单独注册的类
+     * @param memberCategories
+     * @return
+     */
+    public static MemberCategory[] withoutFields(MemberCategory[] memberCategories) {
+        return Arrays.stream(memberCategories)
+                .filter(category -> category != MemberCategory.DECLARED_FIELDS && category != MemberCategory.PUBLIC_FIELDS)
+                .toArray(MemberCategory[]::new);
+    }
+
     public void registerPattern(String... resources) {
         for (String resource : resources) {
             hints.resources().registerPattern(resource);
-            System.out.println("include resource " + resource);
+            HintMetrics.record(HintMetrics.Category.RESOURCE, resource);
         }
     }
 
     public void registerPattern(TypeReference typeReference, String... resources) {
         for (String resource : resources) {
             hints.resources().registerPattern(builder -> builder.includes(typeReference, resource));
+            HintMetrics.record(HintMetrics.Category.RESOURCE, resource);
         }
     }
 
     public void registerPatternIfPresent(String location, String... resources) {
         for (String resource : resources) {
             hints.resources().registerPatternIfPresent(classLoader, location, builder -> builder.includes(resource));
+            HintMetrics.record(HintMetrics.Category.RESOURCE, resource);
         }
     }
 
     public void excludePattern(String... resources) {
         for (String resource : resources) {
             hints.resources().registerPattern(builder -> builder.excludes(resource));
-            System.out.println("exclude resource " + resource);
+            HintMetrics.detail("exclude resource " + resource);
         }
     }
 
@@ -107,7 +120,7 @@ public class AotUtils {
             try {
                 if (isPresent(clazz)) {
                     hints.reflection().registerType(classLoader.loadClass(clazz), memberCategories);
-                    System.out.println("registering reflect " + clazz);
+                    HintMetrics.record(HintMetrics.Category.REFLECTION, clazz);
                 }
             } catch (LinkageError | ClassNotFoundException ignored) {}
         }
@@ -121,7 +134,7 @@ public class AotUtils {
         for (Class<?> clazz : classes) {
             try {
                 hints.reflection().registerType(clazz, memberCategories);
-                System.out.println("registering reflect " + clazz.getName());
+                HintMetrics.record(HintMetrics.Category.REFLECTION, clazz.getName());
             } catch (LinkageError e) {
                 System.err.println("Unable to load class: " + clazz.getName() + ", error: " + e.getMessage());
             }
@@ -132,7 +145,7 @@ public class AotUtils {
         for (Class<?> clazz : classes) {
             try {
                 hints.reflection().registerType(clazz, memberCategories);
-                System.out.println("registering reflect " + clazz.getName());
+                HintMetrics.record(HintMetrics.Category.REFLECTION, clazz.getName());
             } catch (LinkageError e) {
                 System.err.println("Unable to load class: " + clazz.getName() + ", error: " + e.getMessage());
             }
@@ -151,17 +164,49 @@ public class AotUtils {
         registerReflection(new MemberCategory[]{memberCategory}, classes);
     }
 
+    /**
+     * 按类名注册反射，不加载类
+     * @param memberCategories
+     * @param classNames
+     */
+    public void registerReflectionTypes(MemberCategory[] memberCategories, Collection<String> classNames) {
+        for (String className : classNames) {
+            hints.reflection().registerType(TypeReference.of(className), memberCategories);
+            HintMetrics.record(HintMetrics.Category.REFLECTION, className);
+        }
+    }
+
+    /**
+     * 按{@link MemberUsageAnalyzer}的分析结果注册反射，不加载类
+     * @param usages 每个类需要的成员
+     */
+    public void registerReflectionUsages(Collection<MemberUsageAnalyzer.MemberUsage> usages) {
+        for (MemberUsageAnalyzer.MemberUsage usage : usages) {
+            hints.reflection().registerType(TypeReference.of(usage.className()), usage::applyTo);
+            HintMetrics.record(HintMetrics.Category.REFLECTION, usage.className());
+        }
+    }
+
+    /**
+     * 按接口名注册jdk代理，不加载类
+     * @param interfaceNames 代理实现的接口，按顺序
+     */
+    public void registerJdkProxyTypes(List<String> interfaceNames) {
+        hints.proxies().registerJdkProxy(interfaceNames.stream().map(TypeReference::of).toArray(TypeReference[]::new));
+        HintMetrics.record(HintMetrics.Category.PROXY, interfaceNames.toString());
+    }
+
     public void registerJni(MemberCategory[] memberCategories, List<Class<?>> classes) {
         for (Class<?> c : classes) {
             hints.jni().registerType(c, memberCategories);
-            System.out.println("registering jni " + c.getName());
+            HintMetrics.record(HintMetrics.Category.JNI, c.getName());
         }
     }
 
     public void registerJni(MemberCategory[] memberCategories, Class<?>... classes) {
         for (Class<?> c : classes) {
             hints.jni().registerType(c, memberCategories);
-            System.out.println("registering jni " + c.getName());
+            HintMetrics.record(HintMetrics.Category.JNI, c.getName());
         }
     }
 
@@ -180,7 +225,7 @@ public class AotUtils {
     public void registerJniIfPresent(MemberCategory[] memberCategory, String... classes) {
         for (String c : classes) {
             hints.jni().registerTypeIfPresent(classLoader, c, memberCategory);
-            System.out.println("registering jni " + c);
+            HintMetrics.record(HintMetrics.Category.JNI, c);
         }
     }
 
@@ -188,7 +233,7 @@ public class AotUtils {
     public final void registerSerializable(Class<? extends Serializable>... classes) {
         for (Class<? extends Serializable> c : classes) {
             hints.serialization().registerType(c);
-            System.out.println("registering serializable " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
         }
     }
 
@@ -197,7 +242,18 @@ public class AotUtils {
         for (Class<?> c : classes) {
             if (!Serializable.class.isAssignableFrom(c)) continue;
             hints.serialization().registerType((Class<? extends Serializable>) c);
-            System.out.println("registering serializable " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
+        }
+    }
+
+    /**
+     * 按类名注册序列化，不加载类，调用方需确保这些类实现了Serializable
+     * @param classNames
+     */
+    public void registerSerializableTypes(Collection<String> classNames) {
+        for (String className : classNames) {
+            hints.serialization().registerType(TypeReference.of(className));
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, className);
         }
     }
 
@@ -208,7 +264,7 @@ public class AotUtils {
                 Class<?> clazz = classLoader.loadClass(c);
                 if (!Serializable.class.isAssignableFrom(clazz)) continue;
                 hints.serialization().registerType((Class<? extends Serializable>) clazz);
-                System.out.println("registering serializable " + c);
+                HintMetrics.record(HintMetrics.Category.SERIALIZATION, c);
             } catch (ClassNotFoundException ignored) {}
         }
     }
@@ -217,109 +273,87 @@ public class AotUtils {
         return collectClass(null , packages);
     }
 
+    /**
+     * 收集指定包及其子包下的类，按类路径条目并行加载，结果顺序固定
+     * @param predicate 为null时不过滤，可能被多个线程同时调用
+     * @param packages
+     * @return
+     */
     public List<Class<?>> collectClass(Predicate<Class<?>> predicate, String... packages) {
-        List<Class<?>> classes = new ArrayList<>();
-        for (String basePackage : packages) {
-            try {
-                // 扫描该包及其子包下的所有类
-                String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-                        ClassUtils.convertClassNameToResourcePath(basePackage) + "/**/*.class";
-                ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver(classLoader);
-                MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
-                Resource[] resources = resourcePatternResolver.getResources(packageSearchPath);
-                for (Resource resource : resources) {
-                    if (resource.isReadable()) {
-                        MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
-                        String className = metadataReader.getClassMetadata().getClassName();
-                        // 过滤掉Spring相关的生成类
-                        // 详见：org.springframework.aot.generate.ClassNameGenerator
-                        if (className.contains("__")) continue;
-                        try {
-                            Class<?> clazz = ClassUtils.forName(className, classLoader);
-                            if (predicate == null || predicate.test(clazz)) {
-                                classes.add(clazz);
-                            }
-                        } catch (ClassNotFoundException | LinkageError ignored) {
-
-                        }
+        return classpathIndex().processByEntry(collectClassNames(packages), classNames -> {
+            List<Class<?>> classes = new ArrayList<>();
+            for (String className : classNames) {
+                try {
+                    Class<?> clazz = ClassUtils.forName(className, classLoader);
+                    if (predicate == null || predicate.test(clazz)) {
+                        classes.add(clazz);
                     }
+                } catch (ClassNotFoundException | LinkageError ignored) {
+
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("Error scanning classes", e);
             }
-        }
-        return classes;
+            return classes;
+        });
     }
 
     public Set<String> collectClassNames(String... packages) {
-        Set<String> classes = new HashSet<>();
+        ClasspathIndex index = classpathIndex();
+        Set<String> classes = new LinkedHashSet<>();
         for (String basePackage : packages) {
-            try {
-                // 扫描该包及其子包下的所有类
-                String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-                        ClassUtils.convertClassNameToResourcePath(basePackage) + "/**/*.class";
-                ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver(classLoader);
-                MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
-                Resource[] resources = resourcePatternResolver.getResources(packageSearchPath);
-                for (Resource resource : resources) {
-                    if (resource.isReadable()) {
-                        MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
-                        String className = metadataReader.getClassMetadata().getClassName();
-                        // 过滤掉Spring相关的生成类
-                        // 详见：org.springframework.aot.generate.ClassNameGenerator
-                        if (className.contains("__")) continue;
-                        classes.add(className);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error scanning classes", e);
+            // 扫描该包及其子包下的所有类
+            for (String className : index.classNames(basePackage)) {
+                // 过滤掉Spring相关的生成类
+                // 详见：org.springframework.aot.generate.ClassNameGenerator
+                if (className.contains("__")) continue;
+                classes.add(className);
             }
         }
         return classes;
     }
 
+    /**
+     * 查找标注了{@code @SpringBootApplication}的类，只读取class文件定位，仅加载找到的类
+     * @see ClasspathIndex#springBootApplicationClassNames()
+     * @return
+     * @throws IOException
+     */
     public List<Class<?>> findSpringBootApplicationClasses() throws IOException {
         List<Class<?>> result = new ArrayList<>();
-        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
-        CachingMetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resolver);
-        // 扫描所有类文件
-        Resource[] resources = resolver.getResources("classpath*:/**/*.class");
-        for (Resource resource : resources) {
-            if (resource.isReadable()) {
-                MetadataReader reader = readerFactory.getMetadataReader(resource);
-                String className = reader.getClassMetadata().getClassName();
-                // 检查是否有 @SpringBootApplication 注解
-                if (reader.getAnnotationMetadata().hasAnnotation(SpringBootApplication.class.getName())) {
-                    try {
-                        Class<?> clazz = Class.forName(className, false, classLoader);
-                        result.add(clazz);
-                    } catch (ClassNotFoundException ignored) {
+        for (String className : classpathIndex().springBootApplicationClassNames()) {
+            try {
+                Class<?> clazz = Class.forName(className, false, classLoader);
+                result.add(clazz);
+            } catch (ClassNotFoundException | LinkageError ignored) {
 
-                    }
-                }
             }
         }
         return result;
     }
 
+    /**
+     * 获取标注了{@code @SpringBootApplication}的类所在包名，不会加载任何类
+     * @return
+     */
+    public Set<String> findMainPackages() {
+        Set<String> packages = new LinkedHashSet<>();
+        for (String className : classpathIndex().springBootApplicationClassNames()) {
+            int index = className.lastIndexOf('.');
+            packages.add(index < 0 ? "" : className.substring(0, index));
+        }
+        return packages;
+    }
+
     public List<Class<?>> findClasses(Predicate<Class<?>> predicate) throws IOException {
         List<Class<?>> result = new ArrayList<>();
-        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
-        CachingMetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resolver);
-        // 扫描所有类文件
-        Resource[] resources = resolver.getResources("classpath*:/**/*.class");
-        for (Resource resource : resources) {
-            if (resource.isReadable()) {
-                MetadataReader reader = readerFactory.getMetadataReader(resource);
-                String className = reader.getClassMetadata().getClassName();
-                try {
-                    Class<?> clazz = Class.forName(className, false, classLoader);
-                    if (predicate.test(clazz)) {
-                        result.add(clazz);
-                    }
-                } catch (ClassNotFoundException ignored) {
-
+        // 扫描所有类
+        for (String className : classpathIndex().classNames()) {
+            try {
+                Class<?> clazz = Class.forName(className, false, classLoader);
+                if (predicate.test(clazz)) {
+                    result.add(clazz);
                 }
+            } catch (ClassNotFoundException | LinkageError ignored) {
+
             }
         }
         return result;
@@ -346,48 +380,14 @@ public class AotUtils {
     }
 
     /**
-     * 查找指定包下的资源
-     * @param packageName
+     * 查找指定包及其子包下的资源，结果来自{@link ClasspathIndex}
+     * @param packageName 为空时查找根目录（类路径中的目录）下的资源
      * @return
      * @throws IOException
      */
     public Set<String> findResources(String packageName) throws IOException {
-        Set<String> resources = new HashSet<>();
-        String path = packageName.replace('.', '/');
-        Enumeration<URL> roots = classLoader.getResources(path);
-        while (roots.hasMoreElements()) {
-            URL root = roots.nextElement();
-            String protocol = root.getProtocol();
-
-            if ("file".equals(protocol)) {
-                try {
-                    String decodedPath = URLDecoder.decode(root.getFile(), StandardCharsets.UTF_8);
-                    File rootDir = new File(decodedPath);
-
-                    if (rootDir.exists() && rootDir.isDirectory()) {
-                        findResourcesInDirectory(rootDir, "", resources);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            } else if ("jar".equals(protocol)) {
-                String jarPath = root.getFile().substring(5, root.getFile().indexOf('!'));
-                try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
-                    Enumeration<JarEntry> entries = jar.entries();
-                    while (entries.hasMoreElements()) {
-                        JarEntry entry = entries.nextElement();
-                        String entryName = entry.getName();
-                        if (!entryName.endsWith(".class") && !entry.isDirectory()) {
-                            resources.add(entryName);
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        return resources;
+        ClasspathIndex index = classpathIndex();
+        return packageName.isEmpty() ? index.applicationResourceNames() : index.resourceNames(packageName);
     }
 
     /**
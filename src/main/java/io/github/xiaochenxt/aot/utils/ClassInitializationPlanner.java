@@ -0,0 +1,406 @@
+package io.github.xiaochenxt.aot.utils;
+
+import org.springframework.asm.*;
+
+import java.util.*;
+
+/**
+ * 分析静态初始化块（{@code <clinit>}）能否安全地在构建期执行，不加载类
+ * <p>只有满足以下条件的类会被计划为构建期初始化：</p>
+ * <ul>
+ *     <li>父类为Object、Enum、Record或同样可在构建期初始化的类</li>
+ *     <li>静态初始化块及其调用的本类方法、构造器中只有常量、枚举表、不可变集合、白名单中的纯JDK方法，
+ *     以及同样可在构建期初始化的类的静态字段和方法</li>
+ *     <li>不读写其他类的静态状态，不使用锁，不调用时间、随机数、系统属性、默认语言/时区/字符集、线程、IO、日志等与运行环境相关的方法；
+ *     JDK值类型按方法白名单检查，如允许{@code LocalDate.of}而不允许{@code LocalDate.now}</li>
+ * </ul>
+ * <p>无法确定安全的类会记录跳过原因，例如最常见的{@code LoggerFactory.getLogger}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ClassInitializationPlanner {
+
+    private static final Set<String> TRIVIAL_SUPER_CLASSES = Set.of("java/lang/Object", "java/lang/Enum", "java/lang/Record");
+
+    /**
+     * 可任意调用的JDK类型，所有方法都只依赖参数，或是只在本类内部使用的集合
+     */
+    private static final Set<String> PURE_OWNERS = Set.of(
+            "java/lang/Object", "java/lang/Enum", "java/lang/Record", "java/lang/StringBuilder",
+            "java/lang/Short", "java/lang/Byte", "java/lang/Character", "java/lang/Double", "java/lang/Float",
+            "java/math/BigDecimal", "java/math/BigInteger", "java/util/Objects", "java/util/Arrays",
+            "java/util/List", "java/util/Set", "java/util/Map", "java/util/Map$Entry",
+            "java/util/Collection", "java/util/Iterator", "java/util/AbstractMap$SimpleImmutableEntry",
+            "java/util/HashMap", "java/util/LinkedHashMap", "java/util/TreeMap", "java/util/EnumMap",
+            "java/util/ArrayList", "java/util/LinkedList", "java/util/HashSet", "java/util/LinkedHashSet",
+            "java/util/TreeSet", "java/util/EnumSet", "java/util/ArrayDeque", "java/util/BitSet",
+            "java/util/concurrent/ConcurrentHashMap", "java/util/concurrent/CopyOnWriteArrayList",
+            "java/util/regex/Pattern", "java/time/Duration", "java/util/concurrent/TimeUnit",
+            "java/nio/charset/StandardCharsets");
+
+    /**
+     * 只允许调用白名单方法的类型，方法名匹配全部重载，带描述符的只匹配该重载；
+     * 这些类型的其他方法会读取时间、随机数、系统属性、默认时区、默认语言或默认字符集（如now、random、getInteger、
+     * getBoolean、defaultCharset、format、无参的toUpperCase），在构建期执行会把构建机器的环境固化到镜像中
+     */
+    private static final Map<String, Set<String>> PURE_METHODS = Map.ofEntries(
+            Map.entry("java/lang/Class", Set.of("desiredAssertionStatus", "getName", "getSimpleName")),
+            Map.entry("java/lang/invoke/MethodHandles", Set.of("lookup")),
+            Map.entry("java/lang/invoke/MethodHandles$Lookup", Set.of("findVarHandle", "findStaticVarHandle")),
+            Map.entry("java/lang/String", Set.of("<init>()V", "<init>([C)V", "<init>([CII)V",
+                    "<init>(Ljava/lang/String;)V", "<init>(Ljava/lang/StringBuilder;)V", "<init>([BLjava/nio/charset/Charset;)V",
+                    "valueOf", "copyValueOf", "join", "length", "isEmpty", "isBlank", "charAt", "codePointAt",
+                    "substring", "subSequence", "indexOf", "lastIndexOf", "startsWith", "endsWith", "contains",
+                    "equals", "equalsIgnoreCase", "contentEquals", "compareTo", "compareToIgnoreCase", "regionMatches",
+                    "hashCode", "toString", "intern", "trim", "strip", "stripLeading", "stripTrailing", "concat",
+                    "repeat", "replace", "replaceAll", "replaceFirst", "matches", "split", "toCharArray", "chars",
+                    "getBytes(Ljava/nio/charset/Charset;)[B",
+                    "toUpperCase(Ljava/util/Locale;)Ljava/lang/String;", "toLowerCase(Ljava/util/Locale;)Ljava/lang/String;",
+                    "format(Ljava/util/Locale;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/String;")),
+            Map.entry("java/lang/Integer", Set.of("valueOf", "parseInt", "parseUnsignedInt", "decode", "toString",
+                    "toHexString", "toBinaryString", "toOctalString", "hashCode", "equals", "compare", "compareTo",
+                    "intValue", "longValue", "doubleValue", "sum", "max", "min", "signum", "bitCount", "reverse",
+                    "highestOneBit", "lowestOneBit", "numberOfLeadingZeros", "numberOfTrailingZeros", "rotateLeft", "rotateRight")),
+            Map.entry("java/lang/Long", Set.of("valueOf", "parseLong", "parseUnsignedLong", "decode", "toString",
+                    "toHexString", "toBinaryString", "toOctalString", "hashCode", "equals", "compare", "compareTo",
+                    "intValue", "longValue", "doubleValue", "sum", "max", "min", "signum", "bitCount", "reverse",
+                    "highestOneBit", "lowestOneBit", "numberOfLeadingZeros", "numberOfTrailingZeros", "rotateLeft", "rotateRight")),
+            Map.entry("java/lang/Boolean", Set.of("valueOf", "parseBoolean", "booleanValue", "toString", "hashCode",
+                    "equals", "compare", "compareTo", "logicalAnd", "logicalOr", "logicalXor")),
+            Map.entry("java/lang/Math", Set.of("abs", "max", "min", "clamp", "pow", "sqrt", "cbrt", "hypot", "exp", "log",
+                    "log10", "floor", "ceil", "rint", "round", "signum", "sin", "cos", "tan", "asin", "acos", "atan", "atan2",
+                    "toRadians", "toDegrees", "floorDiv", "floorMod", "ceilDiv", "addExact", "subtractExact",
+                    "multiplyExact", "negateExact", "incrementExact", "decrementExact", "toIntExact")),
+            Map.entry("java/lang/StrictMath", Set.of("abs", "max", "min", "pow", "sqrt", "cbrt", "hypot", "exp", "log",
+                    "log10", "floor", "ceil", "rint", "round", "signum", "floorDiv", "floorMod")),
+            Map.entry("java/util/Collections", Set.of("emptyList", "emptySet", "emptyMap", "emptySortedSet",
+                    "emptySortedMap", "emptyNavigableSet", "emptyNavigableMap", "emptyIterator", "singleton",
+                    "singletonList", "singletonMap", "nCopies", "unmodifiableCollection", "unmodifiableList",
+                    "unmodifiableSet", "unmodifiableMap", "unmodifiableSortedSet", "unmodifiableSortedMap",
+                    "unmodifiableNavigableSet", "unmodifiableNavigableMap", "synchronizedList", "synchronizedSet",
+                    "synchronizedMap", "newSetFromMap", "addAll", "sort", "reverse", "reverseOrder", "max", "min",
+                    "frequency", "disjoint", "binarySearch")),
+            Map.entry("java/time/LocalDate", Set.of("of", "ofYearDay", "ofEpochDay", "parse(Ljava/lang/CharSequence;)Ljava/time/LocalDate;",
+                    "getYear", "getMonthValue", "getMonth", "getDayOfMonth", "getDayOfYear", "getDayOfWeek", "toEpochDay",
+                    "plusDays", "plusWeeks", "plusMonths", "plusYears", "minusDays", "minusWeeks", "minusMonths",
+                    "minusYears", "withYear", "withMonth", "withDayOfMonth", "withDayOfYear", "lengthOfMonth",
+                    "lengthOfYear", "isLeapYear", "isBefore", "isAfter", "isEqual", "compareTo", "equals", "hashCode",
+                    "toString", "atStartOfDay()Ljava/time/LocalDateTime;", "atTime")),
+            Map.entry("java/time/LocalTime", Set.of("of", "ofSecondOfDay", "ofNanoOfDay", "parse(Ljava/lang/CharSequence;)Ljava/time/LocalTime;",
+                    "getHour", "getMinute", "getSecond", "getNano", "toSecondOfDay", "toNanoOfDay", "plusHours",
+                    "plusMinutes", "plusSeconds", "plusNanos", "minusHours", "minusMinutes", "minusSeconds", "minusNanos",
+                    "withHour", "withMinute", "withSecond", "withNano", "isBefore", "isAfter", "compareTo", "equals",
+                    "hashCode", "toString", "atDate")),
+            Map.entry("java/time/format/DateTimeFormatter", Set.of(
+                    "ofPattern(Ljava/lang/String;Ljava/util/Locale;)Ljava/time/format/DateTimeFormatter;",
+                    "withLocale", "withZone", "withResolverStyle", "withDecimalStyle", "withChronology", "getLocale",
+                    "getZone", "format", "parse", "toString")),
+            Map.entry("java/nio/charset/Charset", Set.of("forName", "isSupported", "name", "aliases", "canEncode",
+                    "newEncoder", "newDecoder", "encode", "decode", "equals", "hashCode", "compareTo", "toString")),
+            Map.entry("java/util/Locale", Set.of("of", "forLanguageTag", "getLanguage", "getCountry", "getVariant",
+                    "toLanguageTag", "equals", "hashCode", "toString")));
+
+    /**
+     * 读取时间、随机数、系统属性、环境变量、默认语言、时区或字符集的方法，构建期执行会把构建机器的环境固化到镜像中，
+     * verify时检查构建期初始化的类的静态初始化块不会调用
+     */
+    private static final Map<String, Set<String>> ENVIRONMENT_METHODS = Map.ofEntries(
+            Map.entry("java/lang/System", Set.of("currentTimeMillis", "nanoTime", "getProperty", "getProperties", "getenv", "lineSeparator")),
+            Map.entry("java/lang/Integer", Set.of("getInteger")),
+            Map.entry("java/lang/Long", Set.of("getLong")),
+            Map.entry("java/lang/Boolean", Set.of("getBoolean")),
+            Map.entry("java/lang/Math", Set.of("random")),
+            Map.entry("java/lang/StrictMath", Set.of("random")),
+            Map.entry("java/util/Collections", Set.of("shuffle")),
+            Map.entry("java/lang/String", Set.of("format", "formatted", "toUpperCase()Ljava/lang/String;",
+                    "toLowerCase()Ljava/lang/String;", "getBytes()[B", "<init>([B)V", "<init>([BII)V")),
+            Map.entry("java/nio/charset/Charset", Set.of("defaultCharset", "displayName()Ljava/lang/String;")),
+            Map.entry("java/util/Locale", Set.of("getDefault")),
+            Map.entry("java/util/TimeZone", Set.of("getDefault")),
+            Map.entry("java/time/ZoneId", Set.of("systemDefault")),
+            Map.entry("java/time/Clock", Set.of("systemDefaultZone", "systemUTC")),
+            Map.entry("java/time/Instant", Set.of("now")),
+            Map.entry("java/time/LocalDate", Set.of("now")),
+            Map.entry("java/time/LocalTime", Set.of("now")),
+            Map.entry("java/time/LocalDateTime", Set.of("now")),
+            Map.entry("java/time/ZonedDateTime", Set.of("now")),
+            Map.entry("java/time/OffsetDateTime", Set.of("now")),
+            Map.entry("java/time/format/DateTimeFormatter", Set.of(
+                    "ofPattern(Ljava/lang/String;)Ljava/time/format/DateTimeFormatter;",
+                    "ofLocalizedDate", "ofLocalizedTime", "ofLocalizedDateTime")));
+
+    private static final Set<String> PURE_BOOTSTRAPS = Set.of(
+            "java/lang/invoke/StringConcatFactory", "java/lang/invoke/LambdaMetafactory", "java/lang/runtime/ObjectMethods");
+
+    private final ClasspathIndex index;
+
+    private final Map<String, ClassCode> classes = new HashMap<>();
+
+    private final Map<String, String> results = new HashMap<>();
+
+    private final Set<String> analysing = new HashSet<>();
+
+    public ClassInitializationPlanner(ClasspathIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * 分析一批类
+     * @param classNames 候选类，通常是启动类所在包下的类
+     * @return 按classNames顺序排列的结果
+     */
+    public Plan plan(Collection<String> classNames) {
+        load(classNames);
+        Plan plan = new Plan();
+        for (String className : classNames) {
+            ClassCode code = classes.get(className.replace('.', '/'));
+            if (code == null) {
+                plan.skipped.put(className, "class file not found");
+                continue;
+            }
+            // 没有静态初始化块的类不需要注册，native-image会直接视为已初始化
+            if (!code.methods.containsKey("<clinit>()V")) continue;
+            Set<String> known = new HashSet<>(results.keySet());
+            String reason = reason(code.name);
+            if (reason == null) {
+                plan.safe.add(className);
+            } else {
+                plan.skipped.put(className, reason);
+                // 依赖环中先被判定为安全的类可能依赖了这个不安全的类，需要重新分析
+                results.entrySet().removeIf(result -> result.getValue() == null && !known.contains(result.getKey()));
+            }
+        }
+        return plan;
+    }
+
+    private void load(Collection<String> classNames) {
+        for (ClassCode code : index.processByEntry(classNames, group -> {
+            List<ClassCode> list = new ArrayList<>(group.size());
+            ClasspathIndex.Entry entry = index.entry(group.getFirst());
+            if (entry == null) return list;
+            entry.readClasses(group, (className, bytes) -> {
+                try {
+                    ClassCode code = new ClassCode();
+                    new ClassReader(bytes).accept(code, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    list.add(code);
+                } catch (RuntimeException ignored) {}
+            });
+            return list;
+        })) {
+            classes.put(code.name, code);
+        }
+    }
+
+    /**
+     * @return 不安全的原因，安全时为null
+     */
+    private String reason(String internalName) {
+        if (results.containsKey(internalName)) return results.get(internalName);
+        ClassCode code = classes.get(internalName);
+        if (code == null) return "class " + internalName.replace('/', '.') + " is not a candidate";
+        // 循环依赖时按安全处理，由环上其他类的结果决定
+        if (!analysing.add(internalName)) return null;
+        String reason = null;
+        if (code.superName != null && !TRIVIAL_SUPER_CLASSES.contains(code.superName)) {
+            String superReason = reason(code.superName);
+            if (superReason != null) reason = "superclass " + code.superName.replace('/', '.') + ": " + superReason;
+        }
+        if (reason == null) reason = methodReason(code, "<clinit>()V", new HashSet<>());
+        analysing.remove(internalName);
+        results.put(internalName, reason);
+        return reason;
+    }
+
+    private String methodReason(ClassCode code, String method, Set<String> visited) {
+        if (!visited.add(code.name + '.' + method)) return null;
+        List<Insn> insns = code.methods.get(method);
+        if (insns == null) return method.startsWith("<clinit>") ? null : "method " + method + " not declared";
+        for (Insn insn : insns) {
+            String reason = switch (insn.kind) {
+                case MONITOR -> "uses synchronization";
+                // 白名单类型的构造器在INVOKE时按描述符检查
+                case NEW -> isPureOwner(insn.owner) || PURE_METHODS.containsKey(insn.owner) || insn.owner.equals(code.name)
+                        ? null : classReason(insn.owner);
+                // JDK白名单类型的静态字段都是常量（如Boolean.TRUE、Locale.ROOT、DateTimeFormatter.ISO_DATE）
+                case GET_STATIC -> insn.owner.equals(code.name) || isPureOwner(insn.owner) || PURE_METHODS.containsKey(insn.owner)
+                        ? null : classReason(insn.owner);
+                case PUT_STATIC -> insn.owner.equals(code.name) ? null : "writes static field of " + insn.owner.replace('/', '.');
+                case INDY -> !PURE_BOOTSTRAPS.contains(insn.owner) ? "invokedynamic " + insn.owner.replace('/', '.')
+                        // lambda可能在静态初始化中被执行（如forEach），按直接调用其实现方法处理
+                        : insn.name.isEmpty() ? null : invokeReason(code, new Insn(Kind.INVOKE,
+                        insn.name.substring(0, insn.name.indexOf('.')), insn.name.substring(insn.name.indexOf('.') + 1), insn.descriptor), visited);
+                case INVOKE -> invokeReason(code, insn, visited);
+            };
+            if (reason != null) return reason;
+        }
+        return null;
+    }
+
+    private String invokeReason(ClassCode code, Insn insn, Set<String> visited) {
+        if (isPureOwner(insn.owner)) return null;
+        if (matches(ENVIRONMENT_METHODS, insn)) return "reads runtime environment via " + describe(insn);
+        if (matches(PURE_METHODS, insn)) return null;
+        if (insn.owner.equals(code.name)) return methodReason(code, insn.name + insn.descriptor, visited);
+        ClassCode owner = classes.get(insn.owner);
+        if (owner == null) return "calls " + insn.owner.replace('/', '.') + "." + insn.name;
+        String reason = reason(owner.name);
+        if (reason != null) return reason;
+        // 继承的方法沿父类查找，到达Object、Enum等JDK父类时视为安全
+        String method = insn.name + insn.descriptor;
+        while (!owner.methods.containsKey(method) && owner.superName != null) {
+            if (isPureOwner(owner.superName)) return null;
+            ClassCode superClass = classes.get(owner.superName);
+            if (superClass == null) break;
+            owner = superClass;
+        }
+        return methodReason(owner, method, visited);
+    }
+
+    private String classReason(String internalName) {
+        if (internalName.startsWith("[")) return null;
+        String reason = reason(internalName);
+        return reason == null ? null : "depends on " + internalName.replace('/', '.');
+    }
+
+    private static boolean isPureOwner(String owner) {
+        return owner.startsWith("[") || PURE_OWNERS.contains(owner);
+    }
+
+    private static boolean matches(Map<String, Set<String>> methods, Insn insn) {
+        Set<String> names = methods.get(insn.owner);
+        return names != null && (names.contains(insn.name) || names.contains(insn.name + insn.descriptor));
+    }
+
+    private static String describe(Insn insn) {
+        return insn.owner.replace('/', '.') + "." + insn.name;
+    }
+
+    /**
+     * 检查类的静态初始化块（及其调用的本类方法、lambda）是否直接调用了读取运行环境的方法，不依赖白名单，
+     * 用于在verify时复查构建期初始化的类
+     * @param classNames 构建期初始化的类
+     * @return 类名及调用的方法，没有的类不包含在内
+     */
+    public Map<String, String> environmentAccess(Collection<String> classNames) {
+        Map<String, String> result = new LinkedHashMap<>();
+        load(classNames.stream().filter(className -> !classes.containsKey(className.replace('.', '/'))).toList());
+        for (String className : classNames) {
+            ClassCode code = classes.get(className.replace('.', '/'));
+            if (code == null) continue;
+            String call = environmentCall(code, "<clinit>()V", new HashSet<>());
+            if (call != null) result.put(className, call);
+        }
+        return result;
+    }
+
+    private String environmentCall(ClassCode code, String method, Set<String> visited) {
+        if (!visited.add(method)) return null;
+        List<Insn> insns = code.methods.get(method);
+        if (insns == null) return null;
+        for (Insn insn : insns) {
+            Insn invoked = insn.kind == Kind.INVOKE ? insn
+                    : insn.kind == Kind.INDY && !insn.name.isEmpty() ? new Insn(Kind.INVOKE,
+                    insn.name.substring(0, insn.name.indexOf('.')), insn.name.substring(insn.name.indexOf('.') + 1), insn.descriptor)
+                    : null;
+            if (invoked == null) continue;
+            if (matches(ENVIRONMENT_METHODS, invoked)) return describe(invoked);
+            if (invoked.owner.equals(code.name)) {
+                String call = environmentCall(code, invoked.name + invoked.descriptor, visited);
+                if (call != null) return call;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 分析结果
+     */
+    public static final class Plan {
+
+        private final List<String> safe = new ArrayList<>();
+
+        private final Map<String, String> skipped = new LinkedHashMap<>();
+
+        /**
+         * 可在构建期初始化的类
+         * @return
+         */
+        public List<String> safe() {
+            return safe;
+        }
+
+        /**
+         * 跳过的类及原因
+         * @return
+         */
+        public Map<String, String> skipped() {
+            return skipped;
+        }
+
+    }
+
+    private enum Kind { INVOKE, NEW, GET_STATIC, PUT_STATIC, INDY, MONITOR }
+
+    private record Insn(Kind kind, String owner, String name, String descriptor) {
+    }
+
+    private static final class ClassCode extends ClassVisitor {
+
+        private String name;
+
+        private String superName;
+
+        private final Map<String, List<Insn>> methods = new HashMap<>();
+
+        ClassCode() {
+            super(SpringAsmInfo.ASM_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name;
+            this.superName = superName;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature, String[] exceptions) {
+            // 抽象方法的实现未知，不记录，调用时按未声明处理
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) return null;
+            List<Insn> insns = new ArrayList<>();
+            methods.put(methodName + descriptor, insns);
+            return new MethodVisitor(api) {
+
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.MONITORENTER) insns.add(new Insn(Kind.MONITOR, "", "", ""));
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    if (opcode == Opcodes.NEW) insns.add(new Insn(Kind.NEW, type, "", ""));
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescriptor) {
+                    if (opcode == Opcodes.GETSTATIC) insns.add(new Insn(Kind.GET_STATIC, owner, fieldName, fieldDescriptor));
+                    else if (opcode == Opcodes.PUTSTATIC) insns.add(new Insn(Kind.PUT_STATIC, owner, fieldName, fieldDescriptor));
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String invokedName, String invokedDescriptor, boolean isInterface) {
+                    insns.add(new Insn(Kind.INVOKE, owner, invokedName, invokedDescriptor));
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String indyName, String indyDescriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+                    Handle implementation = bootstrapMethodArguments.length > 1 && bootstrapMethodArguments[1] instanceof Handle handle ? handle : null;
+                    insns.add(implementation == null ? new Insn(Kind.INDY, bootstrapMethodHandle.getOwner(), "", "")
+                            : new Insn(Kind.INDY, bootstrapMethodHandle.getOwner(), implementation.getOwner() + '.' + implementation.getName(), implementation.getDesc()));
+                }
+
+            };
+        }
+
+    }
+
+}
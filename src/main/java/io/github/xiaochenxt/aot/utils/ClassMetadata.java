@@ -0,0 +1,211 @@
+package io.github.xiaochenxt.aot.utils;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.Handle;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.util.*;
+
+/**
+ * 直接从class文件字节码读取的类元数据，不会加载类
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ClassMetadata {
+
+    private final String className;
+
+    private final int access;
+
+    private final String superClassName;
+
+    private final List<String> interfaceNames;
+
+    private final String signature;
+
+    private final Set<String> annotationNames;
+
+    private final boolean mainMethod;
+
+    private ClassMetadata(String className, int access, String superClassName, List<String> interfaceNames,
+                          String signature, Set<String> annotationNames, boolean mainMethod) {
+        this.className = className;
+        this.access = access;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.signature = signature;
+        this.annotationNames = annotationNames;
+        this.mainMethod = mainMethod;
+    }
+
+    /**
+     * 解析class文件，跳过方法体、调试信息和栈帧
+     * @param bytes class文件内容
+     * @return
+     */
+    public static ClassMetadata read(byte[] bytes) {
+        MetadataVisitor visitor = new MetadataVisitor();
+        new ClassReader(bytes).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return new ClassMetadata(visitor.className, visitor.access, visitor.superClassName,
+                List.copyOf(visitor.interfaceNames), visitor.signature, Collections.unmodifiableSet(visitor.annotationNames), visitor.mainMethod);
+    }
+
+    /**
+     * 是否含有可序列化的lambda或方法引用，即以{@link LambdaMetafactory#altMetafactory}为引导方法、
+     * 标志包含{@link LambdaMetafactory#FLAG_SERIALIZABLE}的invokedynamic，如mybatis-plus的{@code SFunction}；
+     * 这类类会生成{@code $deserializeLambda$}方法，需要注册为lambda捕获类
+     * @param bytes class文件内容
+     * @return
+     */
+    public static boolean hasSerializableLambda(byte[] bytes) {
+        return !serializableLambdaTypes(bytes).isEmpty();
+    }
+
+    /**
+     * 类中可序列化的lambda或方法引用实现的函数式接口
+     * @param bytes class文件内容
+     * @return 没有时返回空集合
+     * @see #hasSerializableLambda(byte[])
+     */
+    public static Set<String> serializableLambdaTypes(byte[] bytes) {
+        SerializableLambdaVisitor visitor = new SerializableLambdaVisitor();
+        new ClassReader(bytes).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return visitor.types;
+    }
+
+    public String className() {
+        return className;
+    }
+
+    public String packageName() {
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    public int access() {
+        return access;
+    }
+
+    public String superClassName() {
+        return superClassName;
+    }
+
+    public List<String> interfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * 类的泛型签名，如{@code Ljava/lang/Object;Lcom/example/BaseMapper<Lcom/example/User;>;}
+     * @return 没有泛型信息时返回null
+     */
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * 类上直接声明的运行时可见注解
+     * @return
+     */
+    public Set<String> annotationNames() {
+        return annotationNames;
+    }
+
+    public boolean hasAnnotation(String annotationName) {
+        return annotationNames.contains(annotationName);
+    }
+
+    /**
+     * 是否声明了{@code public static void main(String[])}
+     * @return
+     */
+    public boolean hasMainMethod() {
+        return mainMethod;
+    }
+
+    private static final class SerializableLambdaVisitor extends ClassVisitor {
+
+        private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+
+        private static final String ALT_METAFACTORY = "altMetafactory";
+
+        private final Set<String> types = new LinkedHashSet<>();
+
+        SerializableLambdaVisitor() {
+            super(SpringAsmInfo.ASM_VERSION);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(SpringAsmInfo.ASM_VERSION) {
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+                    // altMetafactory的参数依次为samMethodType、implMethod、instantiatedMethodType、flags
+                    if (LAMBDA_METAFACTORY.equals(bootstrapMethodHandle.getOwner()) && ALT_METAFACTORY.equals(bootstrapMethodHandle.getName())
+                            && bootstrapMethodArguments.length > 3 && bootstrapMethodArguments[3] instanceof Integer flags
+                            && (flags & LambdaMetafactory.FLAG_SERIALIZABLE) != 0) {
+                        // invokedynamic的返回值即函数式接口
+                        types.add(Type.getReturnType(descriptor).getClassName());
+                    }
+                }
+            };
+        }
+
+    }
+
+    private static final class MetadataVisitor extends ClassVisitor {
+
+        private String className;
+
+        private int access;
+
+        private String superClassName;
+
+        private final List<String> interfaceNames = new ArrayList<>();
+
+        private String signature;
+
+        private final Set<String> annotationNames = new LinkedHashSet<>();
+
+        private boolean mainMethod;
+
+        MetadataVisitor() {
+            super(SpringAsmInfo.ASM_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.className = name.replace('/', '.');
+            this.access = access;
+            this.signature = signature;
+            this.superClassName = superName == null ? null : superName.replace('/', '.');
+            if (interfaces != null) {
+                for (String anInterface : interfaces) {
+                    interfaceNames.add(anInterface.replace('/', '.'));
+                }
+            }
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (visible) annotationNames.add(Type.getType(descriptor).getClassName());
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ("main".equals(name) && "([Ljava/lang/String;)V".equals(descriptor)
+                    && (access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC)) == (Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC)) {
+                mainMethod = true;
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,1046 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 类路径索引
+ * <p>每个类加载器只枚举、打开一次类路径上的目录和jar，记录类名、资源名、包与类路径条目的映射以及类的注解元数据，
+ * spring aot阶段的{@link AotUtils}和graalvm Feature阶段的{@link FeatureUtils}的find/collect方法都从这里查询，
+ * 不再各自重复扫描类路径</p>
+ * <p>建立索引、按条件查找类以及{@link #processByEntry}都按类路径条目拆分，通过{@link ParallelScanner}并行执行</p>
+ * <p>jar的条目通过{@link JarDirectory}从映射到内存的中央目录中读取，不创建JarEntry；读取文件时每个jar只打开一次，
+ * 同一索引内共用，{@link #release()}后关闭，再次读取时重新打开</p>
+ * <p>类路径或其中的文件变化（jar的大小、修改时间，目录中文件的数量、修改时间）后，{@link #of}会重新建立索引，
+ * 常驻的构建进程（如gradle daemon）不会拿到过期的类路径</p>
+ * <p>spring boot可执行jar（war）会被展开为loader、{@code BOOT-INF/classes}和{@code BOOT-INF/lib}中的每个jar，
+ * 支持{@code jar:file:...!/BOOT-INF/lib/x.jar!/}和{@code nested:}两种嵌套url，嵌套jar在原文件中直接读取，不会解压到临时文件</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ClasspathIndex {
+
+    private static final Map<ClassLoader, ClasspathIndex> INDEXES = new WeakHashMap<>();
+
+    private static final String SPRING_BOOT_APPLICATION = "org.springframework.boot.autoconfigure.SpringBootApplication";
+
+    /**
+     * 详见：org.springframework.context.aot.ApplicationContextAotGenerator
+     */
+    private static final String AOT_INITIALIZER_SUFFIX = "__ApplicationContextInitializer";
+
+    private static final byte[] MAIN_DESCRIPTOR = "([Ljava/lang/String;)V".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ALT_METAFACTORY = "altMetafactory".getBytes(StandardCharsets.UTF_8);
+
+    private static final String START_CLASS = "Start-Class";
+
+    private static final String NESTED_PROTOCOL = "nested";
+
+    private static final String NESTED_SEPARATOR = "/!";
+
+    private static final String JAR_SEPARATOR = "!/";
+
+    /**
+     * 可执行jar和war中类、依赖所在的目录，顶层只保留loader等其余条目
+     */
+    private static final List<String> NESTED_CLASSES = List.of("BOOT-INF/classes/", "WEB-INF/classes/");
+
+    private static final List<String> NESTED_LIBS = List.of("BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/");
+
+    private static final byte[][] NESTED_ROOTS = {"BOOT-INF/".getBytes(StandardCharsets.UTF_8), "WEB-INF/".getBytes(StandardCharsets.UTF_8)};
+
+    /**
+     * 依赖的顺序，详见：org.springframework.boot.loader.launch.ClassPathIndexFile
+     */
+    private static final String CLASSPATH_INDEX = "BOOT-INF/classpath.idx";
+
+    private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] META_INF = "META-INF/".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] MODULE_INFO = "module-info.class".getBytes(StandardCharsets.UTF_8);
+
+    private final List<Location> locations;
+
+    /**
+     * 建立索引时各类路径位置的修改标记
+     */
+    private final Map<Path, String> stamps;
+
+    /**
+     * 已打开的jar，包括展开的可执行jar和读取过文件的jar
+     */
+    private final Map<Path, JarDirectory> archives = new ConcurrentHashMap<>();
+
+    private final List<Entry> entries;
+
+    /**
+     * 包名 -> 包内的类名（不含子包），按包名排序
+     */
+    private final NavigableMap<String, List<String>> packageClassNames = new TreeMap<>();
+
+    /**
+     * 资源所在目录（以.分隔） -> 资源名，按目录排序
+     */
+    private final NavigableMap<String, List<String>> packageResourceNames = new TreeMap<>();
+
+    /**
+     * 包名 -> 含有该包的类路径条目
+     */
+    private final Map<String, List<Entry>> packageEntries = new HashMap<>();
+
+    /**
+     * 类名 -> 所在的类路径条目，同名类以类路径中靠前的为准
+     */
+    private final Map<String, Entry> classEntries = new HashMap<>();
+
+    private final Map<String, ClassMetadata> metadata = new ConcurrentHashMap<>();
+
+
+    private ClasspathIndex(List<Location> locations) {
+        this.locations = List.copyOf(locations);
+        // 先于扫描记录，扫描期间发生的修改会在下次获取时发现
+        this.stamps = stamps(locations);
+        // 可执行jar的中央目录在展开和扫描嵌套条目时共用
+        Set<Location> expanded = new LinkedHashSet<>();
+        ParallelScanner.map(locations, location -> expand(location, archives)).forEach(expanded::addAll);
+        List<Entry> list = new ArrayList<>(expanded.size());
+        for (Entry entry : ParallelScanner.map(new ArrayList<>(expanded), location -> scan(location, archives))) {
+            if (entry != null) list.add(entry);
+        }
+        this.entries = List.copyOf(list);
+        for (Entry entry : entries) {
+            for (String className : entry.classNames) {
+                if (classEntries.putIfAbsent(className, entry) != null) continue;
+                String packageName = packageName(className, '.');
+                packageClassNames.computeIfAbsent(packageName, k -> new ArrayList<>()).add(className);
+                List<Entry> packageEntryList = packageEntries.computeIfAbsent(packageName, k -> new ArrayList<>());
+                if (packageEntryList.isEmpty() || packageEntryList.getLast() != entry) packageEntryList.add(entry);
+            }
+            for (String resourceName : entry.resourceNames) {
+                packageResourceNames.computeIfAbsent(packageName(resourceName, '/').replace('/', '.'), k -> new ArrayList<>()).add(resourceName);
+            }
+        }
+        packageClassNames.values().forEach(Collections::sort);
+        packageResourceNames.values().forEach(Collections::sort);
+    }
+
+    /**
+     * 获取类加载器对应的索引，类路径及其中的文件没有变化时复用已建立的索引
+     * <p>每次调用都会检查修改标记（目录需遍历文件属性），调用方应在一个阶段内持有返回的索引</p>
+     * @param classLoader
+     * @return
+     */
+    public static ClasspathIndex of(ClassLoader classLoader) {
+        List<Location> locations = resolveLocations(classLoader);
+        synchronized (INDEXES) {
+            ClasspathIndex index = INDEXES.get(classLoader);
+            if (index != null && index.locations.equals(locations) && index.stamps.equals(stamps(locations))) return index;
+            if (index != null) index.release();
+            index = new ClasspathIndex(locations);
+            INDEXES.put(classLoader, index);
+            return index;
+        }
+    }
+
+    /**
+     * 关闭已打开的jar，释放嵌套jar中央目录的映射；索引仍可使用，之后的读取会重新打开
+     */
+    public void release() {
+        for (Entry entry : entries) entry.nestedDirectory = null;
+        for (Iterator<JarDirectory> iterator = archives.values().iterator(); iterator.hasNext(); ) {
+            JarDirectory jar = iterator.next();
+            iterator.remove();
+            try {
+                jar.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * 所有类路径条目，按类路径顺序
+     * @return
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * 类路径中的目录条目，即应用自身编译输出的类（如target/classes）
+     * @return
+     */
+    public List<Entry> applicationEntries() {
+        return entries.stream().filter(entry -> !entry.archive).toList();
+    }
+
+    /**
+     * 含有指定包（不含子包）的类路径条目
+     * @param packageName
+     * @return
+     */
+    public List<Entry> entries(String packageName) {
+        return packageEntries.getOrDefault(packageName, List.of());
+    }
+
+    /**
+     * 类所在的类路径条目
+     * @param className
+     * @return 不存在时返回null
+     */
+    public Entry entry(String className) {
+        return classEntries.get(className);
+    }
+
+    public boolean containsClass(String className) {
+        return classEntries.containsKey(className);
+    }
+
+    /**
+     * 所有类名
+     * @return
+     */
+    public Set<String> classNames() {
+        return classNames("");
+    }
+
+    /**
+     * 指定包及其子包下的类名
+     * @param packageName 为空时返回所有类名
+     * @return
+     */
+    public Set<String> classNames(String packageName) {
+        return collect(packageClassNames, packageName);
+    }
+
+    /**
+     * 所有资源名
+     * @return
+     */
+    public Set<String> resourceNames() {
+        return resourceNames("");
+    }
+
+    /**
+     * 指定包（目录）及其子目录下的资源名
+     * @param packageName 为空时返回所有资源名
+     * @return
+     */
+    public Set<String> resourceNames(String packageName) {
+        return collect(packageResourceNames, packageName.replace('/', '.'));
+    }
+
+    /**
+     * 目录条目中的类名
+     * @return
+     */
+    public Set<String> applicationClassNames() {
+        Set<String> classNames = new LinkedHashSet<>();
+        for (Entry entry : applicationEntries()) classNames.addAll(entry.classNames);
+        return classNames;
+    }
+
+    /**
+     * 目录条目中的资源名
+     * @return
+     */
+    public Set<String> applicationResourceNames() {
+        Set<String> resourceNames = new LinkedHashSet<>();
+        for (Entry entry : applicationEntries()) resourceNames.addAll(entry.resourceNames);
+        return resourceNames;
+    }
+
+    /**
+     * 读取类的元数据，结果会被缓存
+     * @param className
+     * @return 类不存在或无法解析时返回null
+     */
+    public ClassMetadata metadata(String className) {
+        ClassMetadata classMetadata = metadata.get(className);
+        if (classMetadata != null) return classMetadata;
+        Entry entry = classEntries.get(className);
+        if (entry == null) return null;
+        try {
+            classMetadata = ClassMetadata.read(entry.read(toClassFileName(className)));
+            metadata.putIfAbsent(className, classMetadata);
+            return classMetadata;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 查找直接标注了指定注解的类
+     * @param annotationName 注解的全限定名
+     * @return
+     */
+    public Set<String> annotatedClassNames(String annotationName) {
+        return annotatedClassNames(entries, annotationName);
+    }
+
+    /**
+     * 在指定的类路径条目中查找直接标注了指定注解的类，常量池中不含该注解描述符的类不会被解析
+     * @param scope 类路径条目
+     * @param annotationName 注解的全限定名
+     * @return
+     */
+    public Set<String> annotatedClassNames(List<Entry> scope, String annotationName) {
+        String descriptor = "L" + annotationName.replace('.', '/') + ";";
+        return find(scope, descriptor.getBytes(StandardCharsets.UTF_8), metadata -> metadata.hasAnnotation(annotationName));
+    }
+
+    /**
+     * 在指定的类路径条目中查找直接实现或继承了指定接口的类，常量池中不含该接口名的类不会被解析
+     * @param scope 类路径条目
+     * @param interfaceName 接口的全限定名
+     * @return
+     */
+    public Set<String> implementingClassNames(List<Entry> scope, String interfaceName) {
+        return find(scope, interfaceName.replace('.', '/').getBytes(StandardCharsets.UTF_8),
+                metadata -> metadata.interfaceNames().contains(interfaceName));
+    }
+
+    /**
+     * 在指定的类路径条目中查找声明了{@code public static void main(String[])}的类
+     * @param scope 类路径条目
+     * @return
+     */
+    public Set<String> mainMethodClassNames(List<Entry> scope) {
+        return find(scope, MAIN_DESCRIPTOR, ClassMetadata::hasMainMethod);
+    }
+
+    /**
+     * 类中可序列化的lambda或方法引用实现的函数式接口，常量池中不含{@code altMetafactory}的类不会被解析
+     * @param className
+     * @return 没有、类不存在或无法解析时返回空集合
+     * @see ClassMetadata#serializableLambdaTypes(byte[])
+     */
+    public Set<String> serializableLambdaTypes(String className) {
+        Entry entry = classEntries.get(className);
+        if (entry == null) return Set.of();
+        try {
+            byte[] bytes = entry.read(toClassFileName(className));
+            return contains(bytes, ALT_METAFACTORY) ? ClassMetadata.serializableLambdaTypes(bytes) : Set.of();
+        } catch (IOException | RuntimeException e) {
+            return Set.of();
+        }
+    }
+
+    /**
+     * 查找启动类，依次尝试以下来源，某一级找到后不再继续：
+     * <ol>
+     *     <li>jar清单中的{@code Start-Class}</li>
+     *     <li>spring aot为启动类生成的{@code 启动类__ApplicationContextInitializer}</li>
+     *     <li>目录条目中标注了{@code @SpringBootApplication}的类</li>
+     *     <li>目录条目中声明了main方法的类</li>
+     * </ol>
+     * 全程只读取class文件，不会加载类
+     * @return
+     */
+    public Set<String> mainClassNames() {
+        Set<String> classNames = startClassNames();
+        if (!classNames.isEmpty()) return classNames;
+        classNames = aotInitializedClassNames();
+        if (!classNames.isEmpty()) return classNames;
+        List<Entry> applicationEntries = applicationEntries();
+        classNames = annotatedClassNames(applicationEntries, SPRING_BOOT_APPLICATION);
+        if (!classNames.isEmpty()) return classNames;
+        return mainMethodClassNames(applicationEntries);
+    }
+
+    /**
+     * 查找标注了{@code @SpringBootApplication}的类，依次尝试以下来源，某一级找到后不再继续：
+     * <ol>
+     *     <li>jar清单中的{@code Start-Class}及spring aot生成的{@code 启动类__ApplicationContextInitializer}（需标注了该注解）</li>
+     *     <li>目录条目中标注了该注解的类</li>
+     *     <li>整个类路径中标注了该注解的类</li>
+     * </ol>
+     * 全程只读取class文件，不会加载类
+     * @return
+     */
+    public Set<String> springBootApplicationClassNames() {
+        Set<String> classNames = new LinkedHashSet<>(startClassNames());
+        classNames.addAll(aotInitializedClassNames());
+        classNames.removeIf(className -> {
+            ClassMetadata classMetadata = metadata(className);
+            return classMetadata == null || !classMetadata.hasAnnotation(SPRING_BOOT_APPLICATION);
+        });
+        if (!classNames.isEmpty()) return classNames;
+        classNames = annotatedClassNames(applicationEntries(), SPRING_BOOT_APPLICATION);
+        if (!classNames.isEmpty()) return classNames;
+        return annotatedClassNames(entries, SPRING_BOOT_APPLICATION);
+    }
+
+    /**
+     * jar清单中声明的{@code Start-Class}
+     * @return
+     */
+    public Set<String> startClassNames() {
+        Set<String> classNames = new LinkedHashSet<>();
+        for (Entry entry : entries) {
+            if (entry.startClass != null && containsClass(entry.startClass)) classNames.add(entry.startClass);
+        }
+        return classNames;
+    }
+
+    /**
+     * 根据spring aot生成的{@code 启动类__ApplicationContextInitializer}反推出的启动类
+     * @return
+     */
+    public Set<String> aotInitializedClassNames() {
+        Set<String> classNames = new LinkedHashSet<>();
+        for (Entry entry : applicationEntries()) {
+            for (String className : entry.classNames) {
+                if (className.endsWith(AOT_INITIALIZER_SUFFIX)) {
+                    String mainClassName = className.substring(0, className.length() - AOT_INITIALIZER_SUFFIX.length());
+                    if (containsClass(mainClassName)) classNames.add(mainClassName);
+                }
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * 依次读取条目内尚未缓存元数据的类，常量池不含marker的直接跳过，其余解析后缓存并交给predicate判断
+     */
+    private Set<String> find(List<Entry> scope, byte[] marker, Predicate<ClassMetadata> predicate) {
+        Set<String> classNames = new LinkedHashSet<>();
+        for (List<String> matched : ParallelScanner.map(scope, entry -> find(entry, marker, predicate))) {
+            classNames.addAll(matched);
+        }
+        return classNames;
+    }
+
+    private List<String> find(Entry entry, byte[] marker, Predicate<ClassMetadata> predicate) {
+        Set<String> matched = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        for (String className : entry.classNames) {
+            if (classEntries.get(className) != entry) continue;
+            ClassMetadata classMetadata = metadata.get(className);
+            if (classMetadata == null) {
+                pending.add(className);
+            } else if (predicate.test(classMetadata)) {
+                matched.add(className);
+            }
+        }
+        if (!pending.isEmpty()) {
+            entry.readClasses(pending, (className, bytes) -> {
+                if (!contains(bytes, marker)) return;
+                try {
+                    ClassMetadata classMetadata = ClassMetadata.read(bytes);
+                    metadata.putIfAbsent(className, classMetadata);
+                    if (predicate.test(classMetadata)) matched.add(className);
+                } catch (RuntimeException ignored) {
+                    // 忽略无法解析的类
+                }
+            });
+        }
+        if (matched.isEmpty()) return List.of();
+        return entry.classNames.stream().filter(matched::contains).toList();
+    }
+
+    /**
+     * 将类名按所在的类路径条目分组，每组交给processor并行处理，结果按分组顺序合并
+     * <p>分组顺序即类名首次出现的顺序，同样的输入总是得到同样顺序的输出</p>
+     * @param classNames 类名
+     * @param processor 处理同一条目内的类名，可能被多个线程同时调用
+     * @return
+     */
+    public <R> List<R> processByEntry(Collection<String> classNames, Function<List<String>, List<R>> processor) {
+        Map<Entry, List<String>> groups = new LinkedHashMap<>();
+        for (String className : classNames) {
+            groups.computeIfAbsent(classEntries.get(className), k -> new ArrayList<>()).add(className);
+        }
+        List<R> results = new ArrayList<>();
+        for (List<R> group : ParallelScanner.map(new ArrayList<>(groups.values()), processor)) {
+            results.addAll(group);
+        }
+        return results;
+    }
+
+    private static boolean contains(byte[] bytes, byte[] marker) {
+        byte first = marker[0];
+        int max = bytes.length - marker.length;
+        outer:
+        for (int i = 0; i <= max; i++) {
+            if (bytes[i] != first) continue;
+            for (int j = 1; j < marker.length; j++) {
+                if (bytes[i + j] != marker[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static Set<String> collect(NavigableMap<String, List<String>> packages, String packageName) {
+        Set<String> names = new LinkedHashSet<>();
+        if (packageName.isEmpty()) {
+            packages.values().forEach(names::addAll);
+            return names;
+        }
+        List<String> direct = packages.get(packageName);
+        if (direct != null) names.addAll(direct);
+        // 子包的key都以"packageName."开头，在排序后连续分布在"packageName."与"packageName/"之间
+        packages.subMap(packageName + '.', true, packageName + '/', false).values().forEach(names::addAll);
+        return names;
+    }
+
+    private static String packageName(String name, char separator) {
+        int index = name.lastIndexOf(separator);
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+    static String toClassFileName(String className) {
+        return className.replace('.', '/').concat(".class");
+    }
+
+    /**
+     * 解析类加载器可见的类路径条目，按父加载器在前的顺序：URLClassLoader取{@code getURLs()}，
+     * 系统类加载器取{@code java.class.path}，这两种来源的jar不需要有清单；
+     * 其他类加载器的目录通过{@code getResources("")}、jar通过{@code getResources("META-INF/MANIFEST.MF")}补充
+     */
+    private static List<Location> resolveLocations(ClassLoader classLoader) {
+        Set<Location> locations = new LinkedHashSet<>();
+        Deque<ClassLoader> loaders = new ArrayDeque<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) loaders.addFirst(loader);
+        for (ClassLoader loader : loaders) {
+            if (loader instanceof URLClassLoader urlClassLoader) {
+                addLocations(locations, Collections.enumeration(Arrays.asList(urlClassLoader.getURLs())));
+            } else if (loader == ClassLoader.getSystemClassLoader()) {
+                String classPath = System.getProperty("java.class.path");
+                if (classPath == null || classPath.isEmpty()) continue;
+                for (String element : classPath.split(File.pathSeparator)) {
+                    if (!element.isEmpty()) locations.add(new Location(Path.of(element).toAbsolutePath().normalize(), null));
+                }
+            }
+        }
+        try {
+            addLocations(locations, classLoader.getResources(""));
+            addLocations(locations, classLoader.getResources(JarFile.MANIFEST_NAME));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>(locations);
+    }
+
+    private static void addLocations(Set<Location> locations, Enumeration<URL> urls) {
+        while (urls.hasMoreElements()) {
+            Location location = toLocation(urls.nextElement());
+            if (location != null) locations.add(location);
+        }
+    }
+
+    private static Map<Path, String> stamps(List<Location> locations) {
+        List<Path> paths = locations.stream().map(Location::path).distinct().toList();
+        List<String> stamps = ParallelScanner.map(paths, ClasspathIndex::stamp);
+        Map<Path, String> result = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++) result.put(paths.get(i), stamps.get(i));
+        return result;
+    }
+
+    /**
+     * 修改标记：jar为大小和修改时间，目录为其中文件、子目录的数量和最大修改时间，不存在时为空字符串
+     */
+    private static String stamp(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isDirectory()) return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+            long[] stamp = {0, 0};
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return visitFile(dir, attrs);
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    stamp[0]++;
+                    stamp[1] = Math.max(stamp[1], attrs.lastModifiedTime().toMillis());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return stamp[0] + "/" + stamp[1];
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * 将url转换为类路径条目，支持以下形式：
+     * <ul>
+     *     <li>{@code file:/app/classes/}、{@code jar:file:/app/x.jar!/META-INF/MANIFEST.MF}</li>
+     *     <li>{@code jar:file:/app.jar!/BOOT-INF/lib/x.jar!/META-INF/MANIFEST.MF}、{@code jar:file:/app.jar!/BOOT-INF/classes!/}</li>
+     *     <li>{@code jar:nested:/app.jar/!BOOT-INF/lib/x.jar!/META-INF/MANIFEST.MF}、{@code nested:/app.jar/!BOOT-INF/classes/}（spring boot 3.2及以上）</li>
+     * </ul>
+     */
+    private static Location toLocation(URL url) {
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return new Location(Path.of(url.toURI()).toAbsolutePath().normalize(), null);
+            }
+            String container;
+            if ("jar".equals(url.getProtocol())) {
+                // 最后一个!/之后是条目内的资源名，之前是资源所在的jar或目录
+                String file = url.getFile();
+                int separator = file.lastIndexOf(JAR_SEPARATOR);
+                container = separator < 0 ? file : file.substring(0, separator);
+            } else if (NESTED_PROTOCOL.equals(url.getProtocol())) {
+                container = url.toString();
+            } else {
+                return null;
+            }
+            String outer;
+            String nested;
+            if (container.startsWith(NESTED_PROTOCOL + ":")) {
+                String nestedPath = container.substring(NESTED_PROTOCOL.length() + 1);
+                int separator = nestedPath.indexOf(NESTED_SEPARATOR);
+                outer = "file:" + (separator < 0 ? nestedPath : nestedPath.substring(0, separator));
+                nested = separator < 0 ? null : nestedPath.substring(separator + NESTED_SEPARATOR.length());
+            } else {
+                int separator = container.indexOf(JAR_SEPARATOR);
+                outer = separator < 0 ? container : container.substring(0, separator);
+                nested = separator < 0 ? null : container.substring(separator + JAR_SEPARATOR.length());
+            }
+            URI uri = new URI(outer);
+            if (!"file".equals(uri.getScheme())) return null;
+            return new Location(Path.of(uri).toAbsolutePath().normalize(), nestedName(nested));
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException ignored) {}
+        return null;
+    }
+
+    /**
+     * 嵌套的jar保持原名，嵌套的目录统一以/结尾
+     */
+    private static String nestedName(String nested) {
+        if (nested == null) return null;
+        while (nested.endsWith(JAR_SEPARATOR)) nested = nested.substring(0, nested.length() - JAR_SEPARATOR.length());
+        while (nested.startsWith("/")) nested = nested.substring(1);
+        if (nested.isEmpty()) return null;
+        return nested.endsWith(".jar") || nested.endsWith("/") ? nested : nested + '/';
+    }
+
+    /**
+     * 将可执行jar展开为顶层、类目录和依赖，依赖按{@code classpath.idx}的顺序，没有时按jar中的顺序；其他条目原样返回
+     */
+    private static List<Location> expand(Location location, Map<Path, JarDirectory> archives) {
+        if (location.nested() != null) {
+            try {
+                archive(location.path(), archives);
+                return List.of(location);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return List.of();
+            }
+        }
+        if (!Files.isRegularFile(location.path())) return List.of(location);
+        try {
+            JarDirectory jar = JarDirectory.open(location.path());
+            List<Location> locations = new ArrayList<>();
+            locations.add(location);
+            for (String prefix : NESTED_CLASSES) {
+                int[] found = {0};
+                jar.forEach(prefix, entry -> found[0]++);
+                if (found[0] > 0) locations.add(new Location(location.path(), prefix));
+            }
+            Set<String> libs = new LinkedHashSet<>();
+            int classpathIndex = jar.find(CLASSPATH_INDEX);
+            if (classpathIndex >= 0) {
+                for (String line : new String(jar.read(classpathIndex), StandardCharsets.UTF_8).split("\\R")) {
+                    String lib = line.trim();
+                    if (lib.startsWith("- ")) lib = lib.substring(2).trim();
+                    if (lib.length() > 2 && lib.startsWith("\"") && lib.endsWith("\"")) libs.add(lib.substring(1, lib.length() - 1));
+                }
+            }
+            for (String prefix : NESTED_LIBS) {
+                jar.forEach(prefix, entry -> {
+                    String name = jar.name(entry);
+                    if (name.endsWith(".jar") && name.indexOf('/', prefix.length()) < 0) libs.add(name);
+                });
+            }
+            libs.forEach(lib -> locations.add(new Location(location.path(), lib)));
+            if (locations.size() == 1) {
+                jar.close();
+            } else {
+                JarDirectory previous = archives.putIfAbsent(location.path(), jar);
+                if (previous != null) jar.close();
+            }
+            return locations;
+        } catch (IOException e) {
+            // 不是zip文件等情况交给scan处理
+            return List.of(location);
+        }
+    }
+
+    private static JarDirectory archive(Path path, Map<Path, JarDirectory> archives) throws IOException {
+        try {
+            return archives.computeIfAbsent(path, key -> {
+                try {
+                    return JarDirectory.open(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Entry scan(Location location, Map<Path, JarDirectory> archives) {
+        Path path = location.path();
+        List<String> classNames = new ArrayList<>();
+        List<String> resourceNames = new ArrayList<>();
+        if (location.nested() != null) {
+            JarDirectory outer = archives.get(path);
+            if (outer == null) return null;
+            try {
+                if (location.nested().endsWith("/")) {
+                    String prefix = location.nested();
+                    outer.forEach(prefix, jarEntry -> {
+                        if (!outer.isDirectory(jarEntry)) add(outer.name(jarEntry).substring(prefix.length()), classNames, resourceNames);
+                    });
+                    return new Entry(path, location.nested(), false, classNames, resourceNames, null, null, this);
+                }
+                int nestedEntry = outer.get(location.nested());
+                if (nestedEntry < 0) return null;
+                JarDirectory jar = outer.nested(nestedEntry);
+                MessageDigest digest = sha256();
+                String startClass = scan(jar, false, digest, classNames, resourceNames);
+                Entry entry = new Entry(path, location.nested(), true, classNames, resourceNames, startClass, HexFormat.of().formatHex(digest.digest()), this);
+                entry.nestedDirectory = jar;
+                return entry;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile).forEach(file ->
+                        add(path.relativize(file).toString().replace(File.separatorChar, '/'), classNames, resourceNames));
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            return new Entry(path, null, false, classNames, resourceNames, readStartClass(path.resolve(JarFile.MANIFEST_NAME)), null, this);
+        }
+        if (Files.isRegularFile(path)) {
+            // 中央目录中每个条目的名称、CRC和大小构成jar的校验和，无需解压任何内容
+            MessageDigest digest = sha256();
+            String startClass;
+            JarDirectory archive = archives.get(path);
+            try {
+                if (archive != null) {
+                    startClass = scan(archive, true, digest, classNames, resourceNames);
+                } else {
+                    try (JarDirectory jar = JarDirectory.open(path)) {
+                        startClass = scan(jar, false, digest, classNames, resourceNames);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            return new Entry(path, null, true, classNames, resourceNames, startClass, HexFormat.of().formatHex(digest.digest()), this);
+        }
+        return null;
+    }
+
+    /**
+     * 枚举jar的条目并计算校验和
+     * @param executable 是否为展开后的可执行jar，是则跳过已作为独立条目的BOOT-INF、WEB-INF
+     * @return 清单中的{@code Start-Class}
+     */
+    private static String scan(JarDirectory jar, boolean executable, MessageDigest digest, List<String> classNames, List<String> resourceNames) throws IOException {
+        jar.forEach("", jarEntry -> {
+            if (jar.isDirectory(jarEntry)) return;
+            jar.digest(jarEntry, digest);
+            if (executable && (jar.startsWith(jarEntry, NESTED_ROOTS[0]) || jar.startsWith(jarEntry, NESTED_ROOTS[1]))) return;
+            add(jar, jarEntry, classNames, resourceNames);
+        });
+        int manifest = jar.find(JarFile.MANIFEST_NAME);
+        return manifest < 0 ? null : readStartClass(jar.read(manifest));
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readStartClass(Path manifestFile) {
+        if (!Files.isRegularFile(manifestFile)) return null;
+        try (InputStream in = Files.newInputStream(manifestFile)) {
+            return new Manifest(in).getMainAttributes().getValue(START_CLASS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String readStartClass(byte[] manifest) throws IOException {
+        return new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes().getValue(START_CLASS);
+    }
+
+    /**
+     * 先在原始字节上判断类型，多版本jar中的类和模块描述不会解码名称
+     */
+    private static void add(JarDirectory jar, int jarEntry, List<String> classNames, List<String> resourceNames) {
+        if (jar.endsWith(jarEntry, CLASS_SUFFIX)) {
+            if (jar.startsWith(jarEntry, META_INF) || jar.endsWith(jarEntry, MODULE_INFO)) return;
+            String name = jar.name(jarEntry);
+            classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+        } else {
+            resourceNames.add(jar.name(jarEntry));
+        }
+    }
+
+    private static void add(String name, List<String> classNames, List<String> resourceNames) {
+        if (name.endsWith(".class")) {
+            // 跳过多版本jar中的类和模块描述
+            if (name.startsWith("META-INF/") || name.endsWith("module-info.class")) return;
+            classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+        } else {
+            resourceNames.add(name);
+        }
+    }
+
+    /**
+     * 类路径位置
+     * @param path 目录或jar
+     * @param nested 可执行jar中嵌套的jar或目录（以/结尾），非嵌套时为null
+     */
+    private record Location(Path path, String nested) {
+    }
+
+    /**
+     * 类路径条目，一个目录或一个jar，也可以是可执行jar中嵌套的jar或目录
+     */
+    public static final class Entry {
+
+        private final Path path;
+
+        private final String nested;
+
+        private final boolean archive;
+
+        private final List<String> classNames;
+
+        private final List<String> resourceNames;
+
+        private final String startClass;
+
+        private final String checksum;
+
+        private final ClasspathIndex index;
+
+        /**
+         * 嵌套jar在外层jar中原地打开的中央目录，第一次读取时打开，{@link ClasspathIndex#release()}后为null
+         */
+        private volatile JarDirectory nestedDirectory;
+
+        Entry(Path path, String nested, boolean archive, List<String> classNames, List<String> resourceNames, String startClass, String checksum, ClasspathIndex index) {
+            this.path = path;
+            this.nested = nested;
+            this.archive = archive;
+            this.classNames = List.copyOf(classNames);
+            this.resourceNames = List.copyOf(resourceNames);
+            this.startClass = startClass == null || startClass.isBlank() ? null : startClass.trim();
+            this.checksum = checksum;
+            this.index = index;
+        }
+
+        /**
+         * 目录或jar，嵌套条目为外层的可执行jar
+         * @return
+         */
+        public Path path() {
+            return path;
+        }
+
+        /**
+         * 在可执行jar中的名称，如{@code BOOT-INF/lib/x.jar}、{@code BOOT-INF/classes/}
+         * @return 非嵌套条目返回null
+         */
+        public String nested() {
+            return nested;
+        }
+
+        /**
+         * 是否为jar
+         * @return
+         */
+        public boolean archive() {
+            return archive;
+        }
+
+        public List<String> classNames() {
+            return classNames;
+        }
+
+        public List<String> resourceNames() {
+            return resourceNames;
+        }
+
+        /**
+         * 清单中的{@code Start-Class}，spring boot可执行jar才会有
+         * @return 没有时返回null
+         */
+        public String startClass() {
+            return startClass;
+        }
+
+        /**
+         * jar的校验和，由中央目录中所有条目的名称、CRC和大小计算得出
+         * @return 目录条目返回null，需使用{@link #checksum(String)}
+         */
+        public String checksum() {
+            return checksum;
+        }
+
+        /**
+         * 条目内单个文件的校验和，jar直接取中央目录中的CRC，目录则计算文件内容的CRC
+         * @param name 以/分隔的相对路径
+         * @return 文件不存在时返回null
+         */
+        public String checksum(String name) {
+            try {
+                JarDirectory directory = directory();
+                if (directory != null) {
+                    int jarEntry = directory.get(nestedName(name));
+                    return jarEntry < 0 ? null : Long.toHexString(directory.crc(jarEntry)) + ':' + directory.size(jarEntry);
+                }
+                byte[] bytes = Files.readAllBytes(path.resolve(name));
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                return Long.toHexString(crc.getValue()) + ':' + bytes.length;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * 读取条目内的文件
+         * @param name 以/分隔的相对路径
+         * @return
+         * @throws IOException
+         */
+        public byte[] read(String name) throws IOException {
+            JarDirectory directory = directory();
+            if (directory == null) return Files.readAllBytes(path.resolve(name));
+            int jarEntry = directory.get(nestedName(name));
+            if (jarEntry < 0) throw new IOException(name + " not found in " + this);
+            return directory.read(jarEntry);
+        }
+
+        /**
+         * 依次读取条目内的所有类，jar只会打开一次
+         * @param consumer 类名与class文件内容
+         */
+        public void readClasses(BiConsumer<String, byte[]> consumer) {
+            readClasses(classNames, consumer);
+        }
+
+        /**
+         * 依次读取条目内的指定类，jar只会打开一次
+         * @param classNames 条目内的类名
+         * @param consumer 类名与class文件内容
+         */
+        public void readClasses(Collection<String> classNames, BiConsumer<String, byte[]> consumer) {
+            read(classNames, ClasspathIndex::toClassFileName, consumer);
+        }
+
+        /**
+         * 依次读取条目内的指定资源，jar只会打开一次
+         * @param resourceNames 以/分隔的相对路径
+         * @param consumer 资源名与文件内容
+         */
+        public void readResources(Collection<String> resourceNames, BiConsumer<String, byte[]> consumer) {
+            read(resourceNames, Function.identity(), consumer);
+        }
+
+        private void read(Collection<String> names, Function<String, String> fileName, BiConsumer<String, byte[]> consumer) {
+            if (!archive && nested == null) {
+                for (String name : names) {
+                    try {
+                        consumer.accept(name, Files.readAllBytes(path.resolve(fileName.apply(name))));
+                    } catch (IOException ignored) {}
+                }
+                return;
+            }
+            try {
+                JarDirectory directory = directory();
+                for (String name : names) {
+                    int jarEntry = directory.get(nestedName(fileName.apply(name)));
+                    if (jarEntry >= 0) consumer.accept(name, directory.read(jarEntry));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * 条目所在jar的中央目录：jar和嵌套的目录为索引中共用的外层jar，嵌套的jar在外层jar中原地打开
+         * @return 目录条目返回null
+         */
+        private JarDirectory directory() throws IOException {
+            if (!archive && nested == null) return null;
+            if (nested == null || !archive) return ClasspathIndex.archive(path, index.archives);
+            JarDirectory directory = nestedDirectory;
+            if (directory != null) return directory;
+            synchronized (this) {
+                if (nestedDirectory == null) {
+                    JarDirectory outer = ClasspathIndex.archive(path, index.archives);
+                    int jarEntry = outer.get(nested);
+                    if (jarEntry < 0) throw new IOException(nested + " not found in " + path);
+                    nestedDirectory = outer.nested(jarEntry);
+                }
+                return nestedDirectory;
+            }
+        }
+
+        /**
+         * 条目内的文件在所在jar中的名称，嵌套的目录需加上目录前缀
+         */
+        private String nestedName(String name) {
+            return archive ? name : nested + name;
+        }
+
+        @Override
+        public String toString() {
+            return nested == null ? path.toString() : path + JAR_SEPARATOR + nested;
+        }
+
+    }
+
+}
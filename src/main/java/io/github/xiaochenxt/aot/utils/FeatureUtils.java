@@ -1,22 +1,23 @@
 package io.github.xiaochenxt.aot.utils;
 
 import org.graalvm.nativeimage.hosted.*;
+import org.graalvm.nativeimage.hosted.Feature.BeforeAnalysisAccess;
+import org.graalvm.nativeimage.hosted.Feature.DuringAnalysisAccess;
 import org.graalvm.nativeimage.impl.ConfigurationCondition;
 import org.graalvm.nativeimage.impl.RuntimeResourceSupport;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.asm.Type;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
 
 /**
  * 简化注册，仅限在{@link Feature}中使用
@@ -27,6 +28,8 @@ public class FeatureUtils {
 
     private final ClassLoader classLoader;
 
+    private volatile ClasspathIndex classpathIndex;
+
     public static FeatureUtils newInstance(ClassLoader classLoader) {
         return new FeatureUtils(classLoader);
     }
@@ -39,6 +42,16 @@ public class FeatureUtils {
         return classLoader;
     }
 
+    /**
+     * 当前类加载器的类路径索引，整个构建过程共享；同一实例只在第一次调用时检查类路径是否变化
+     * @return
+     */
+    public ClasspathIndex classpathIndex() {
+        ClasspathIndex index = classpathIndex;
+        if (index == null) classpathIndex = index = ClasspathIndex.of(classLoader);
+        return index;
+    }
+
     public boolean isPresent(String className) {
         try {
             classLoader.loadClass(className);
@@ -67,7 +80,7 @@ public class FeatureUtils {
             RuntimeReflection.register(c.getDeclaredConstructors());
             RuntimeReflection.register(c.getDeclaredMethods());
             RuntimeReflection.register(c.getDeclaredFields());
-            System.out.println("registering reflect " + c.getName());
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
         }
     }
 
@@ -77,10 +90,86 @@ public class FeatureUtils {
             RuntimeReflection.register(c.getConstructors());
             RuntimeReflection.register(c.getMethods());
             RuntimeReflection.register(c.getDeclaredFields());
-            System.out.println("registering reflect " + c.getName());
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
+        }
+    }
+
+    /**
+     * 注册类自身声明的内部类、构造器、方法、字段，与{@link AotUtils#defaultMemberCategory}对应
+     * @param classes
+     */
+    public void registerReflectionDeclared(Class<?>... classes) {
+        for (Class<?> c : classes) {
+            try {
+                RuntimeReflection.register(c);
+                RuntimeReflection.register(c.getDeclaredClasses());
+                RuntimeReflection.register(c.getDeclaredConstructors());
+                RuntimeReflection.register(c.getDeclaredMethods());
+                RuntimeReflection.register(c.getDeclaredFields());
+                HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
+            } catch (LinkageError e) {
+                System.err.println("Unable to load class: " + c.getName() + ", error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 注册类自身声明的内部类、构造器、方法，不注册字段，用于字段需要单独注册的类
+     * @param classes
+     */
+    public void registerReflectionDeclaredExceptFields(Class<?>... classes) {
+        for (Class<?> c : classes) {
+            try {
+                RuntimeReflection.register(c);
+                RuntimeReflection.register(c.getDeclaredClasses());
+                RuntimeReflection.register(c.getDeclaredConstructors());
+                RuntimeReflection.register(c.getDeclaredMethods());
+                HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
+            } catch (LinkageError e) {
+                System.err.println("Unable to load class: " + c.getName() + ", error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按{@link MemberUsageAnalyzer}的分析结果注册反射
+     * @param c 类
+     * @param usage 该类需要的成员
+     */
+    public void registerReflection(Class<?> c, MemberUsageAnalyzer.MemberUsage usage) {
+        try {
+            RuntimeReflection.register(c);
+            for (MemberCategory category : usage.categories()) {
+                switch (category) {
+                    case PUBLIC_FIELDS -> RuntimeReflection.register(c.getFields());
+                    case DECLARED_FIELDS -> RuntimeReflection.register(c.getDeclaredFields());
+                    case INVOKE_PUBLIC_CONSTRUCTORS -> RuntimeReflection.register(c.getConstructors());
+                    case INVOKE_DECLARED_CONSTRUCTORS -> RuntimeReflection.register(c.getDeclaredConstructors());
+                    case INVOKE_PUBLIC_METHODS -> RuntimeReflection.register(c.getMethods());
+                    case INVOKE_DECLARED_METHODS -> RuntimeReflection.register(c.getDeclaredMethods());
+                    case DECLARED_CLASSES -> RuntimeReflection.register(c.getDeclaredClasses());
+                    case PUBLIC_CLASSES -> RuntimeReflection.register(c.getClasses());
+                    default -> {}
+                }
+            }
+            for (Constructor<?> constructor : c.getDeclaredConstructors()) {
+                if (usage.constructors().contains(typeNames(constructor.getParameterTypes()))) RuntimeReflection.register(constructor);
+            }
+            for (Method method : c.getDeclaredMethods()) {
+                if (usage.methods().containsKey(method.getName() + Type.getMethodDescriptor(method))) {
+                    RuntimeReflection.register(method);
+                }
+            }
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
+        } catch (LinkageError e) {
+            System.err.println("Unable to load class: " + c.getName() + ", error: " + e.getMessage());
         }
     }
 
+    private static List<String> typeNames(Class<?>[] types) {
+        return Arrays.stream(types).map(Class::getTypeName).toList();
+    }
+
     public void registerReflectionIfPresent(String... classes) {
         for (String cs : classes) {
             Class<?> c = loadClass(cs);
@@ -94,7 +183,7 @@ public class FeatureUtils {
             RuntimeReflection.register(c.getDeclaredConstructors());
             RuntimeReflection.register(c.getDeclaredMethods());
             RuntimeReflection.register(c.getDeclaredFields());
-            System.out.println("registering reflect " + c.getName());
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
         }
     }
 
@@ -106,7 +195,7 @@ public class FeatureUtils {
             RuntimeReflection.register(c.getConstructors());
             RuntimeReflection.register(c.getMethods());
             RuntimeReflection.register(c.getDeclaredFields());
-            System.out.println("registering reflect " + c.getName());
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
         }
     }
 
@@ -116,7 +205,7 @@ public class FeatureUtils {
             if (c == null) continue;
             RuntimeReflection.register(c);
             RuntimeReflection.register(c.getDeclaredConstructors());
-            System.out.println("registering reflect " + c.getName());
+            HintMetrics.record(HintMetrics.Category.REFLECTION, c.getName());
         }
     }
 
@@ -129,7 +218,7 @@ public class FeatureUtils {
             RuntimeJNIAccess.register(c.getMethods());
             RuntimeJNIAccess.register(c.getFields());
             RuntimeJNIAccess.register(c.getDeclaredFields());
-            System.out.println("registering jni " + c.getName());
+            HintMetrics.record(HintMetrics.Category.JNI, c.getName());
         }
     }
 
@@ -144,7 +233,7 @@ public class FeatureUtils {
             RuntimeJNIAccess.register(c.getMethods());
             RuntimeJNIAccess.register(c.getFields());
             RuntimeJNIAccess.register(c.getDeclaredFields());
-            System.out.println("registering jni " + c.getName());
+            HintMetrics.record(HintMetrics.Category.JNI, c.getName());
         }
     }
 
@@ -152,14 +241,14 @@ public class FeatureUtils {
         for (String resource : resources) {
             Module module = c.getModule();
             RuntimeResourceAccess.addResource(module, resource);
-            System.out.println("registering module " + module.getName()+" resource "+resource);
+            HintMetrics.record(HintMetrics.Category.RESOURCE, resource);
         }
     }
 
     public void registerResourceBundle(Class<?> c, String beanName, Locale... locales) {
         Module module = c.getModule();
         RuntimeResourceAccess.addResourceBundle(module, beanName, locales);
-        System.out.println("registering resourceBundle module " + module.getName() + " beanName " + beanName + " locales " + Arrays.toString(locales));
+        HintMetrics.record(HintMetrics.Category.RESOURCE, beanName.replace('.', '/'));
     }
 
     /**
@@ -170,7 +259,7 @@ public class FeatureUtils {
     public void ignoreResources(String... resources) {
         for (String resource : resources) {
             RuntimeResourceSupport.singleton().ignoreResources(ConfigurationCondition.alwaysTrue(), resource);
-            System.out.println("ignore resource " + resource);
+            HintMetrics.detail("ignore resource " + resource);
         }
     }
 
@@ -189,7 +278,7 @@ public class FeatureUtils {
         for (Class<?> c : classes) {
             if (!Serializable.class.isAssignableFrom(c)) continue;
             RuntimeSerialization.register(c);
-            System.out.println("registering serializable " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
         }
     }
 
@@ -199,7 +288,7 @@ public class FeatureUtils {
             if (c == null) continue;
             if (!Serializable.class.isAssignableFrom(c)) continue;
             RuntimeSerialization.register(c);
-            System.out.println("registering serializable " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
         }
     }
 
@@ -208,24 +297,33 @@ public class FeatureUtils {
             for (Method declaredMethod : c.getDeclaredMethods()) {
                 if (declaredMethod.getName().contains("$deserializeLambda$")) {
                     RuntimeSerialization.registerLambdaCapturingClass(c);
-                    System.out.println("registering serializationLambdaCapturing " + c.getName());
+                    HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
                     break;
                 }
             }
         }
     }
 
+    public void registerSerializationLambdaCapturingClassIfPresent(String... classes) {
+        for (String cs : classes) {
+            Class<?> c = loadClass(cs);
+            if (c == null) continue;
+            RuntimeSerialization.registerLambdaCapturingClass(c);
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
+        }
+    }
+
     public void registerSerializationIncludingAssociatedClasses(Class<?>... classes) {
         for (Class<?> c : classes) {
             RuntimeSerialization.registerIncludingAssociatedClasses(c);
-            System.out.println("registering serializationIncludingAssociated " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
         }
     }
 
     public void registerSerializationProxyClass(Class<?>... classes) {
         for (Class<?> c : classes) {
             RuntimeSerialization.registerProxyClass(c);
-            System.out.println("registering serializationProxy " + c.getName());
+            HintMetrics.record(HintMetrics.Category.SERIALIZATION, c.getName());
         }
     }
 
@@ -235,8 +333,64 @@ public class FeatureUtils {
             if (c == null) continue;
             if (!Serializable.class.isAssignableFrom(c)) continue;
             RuntimeProxyCreation.register(c);
-            System.out.println("registering proxy " + c.getName());
+            HintMetrics.record(HintMetrics.Category.PROXY, c.getName());
+        }
+    }
+
+    /**
+     * 按可达性延迟处理指定包及其子包下的类：不会预先查找、加载任何类，
+     * 分析阶段每发现一个可达的类型才按包名过滤并回调，未被使用的类不产生任何开销
+     * <p>与{@link #collectClassNames}的范围一致：包名为空时为类路径中目录条目（应用自身）的类，并排除spring生成的类</p>
+     * @param access
+     * @param packages 包名
+     * @param callback 每个可达的类只调用一次，回调中可继续注册反射、序列化等
+     */
+    public void onReachable(BeforeAnalysisAccess access, Collection<String> packages, BiConsumer<DuringAnalysisAccess, Class<?>> callback) {
+        if (packages.isEmpty()) return;
+        List<String> prefixes = new ArrayList<>();
+        boolean rootPackage = false;
+        for (String packageName : packages) {
+            if (packageName.isEmpty()) rootPackage = true;
+            else prefixes.add(packageName + '.');
         }
+        Set<String> applicationClassNames = rootPackage ? classpathIndex().applicationClassNames() : Set.of();
+        onSubtypeReachable(access, Object.class, c -> {
+            String className = c.getName();
+            // 过滤掉Spring相关的生成类
+            // 详见：org.springframework.aot.generate.ClassNameGenerator
+            if (c.isHidden() || c.isArray() || className.contains("__")) return false;
+            for (String prefix : prefixes) {
+                if (className.startsWith(prefix)) return true;
+            }
+            return applicationClassNames.contains(className);
+        }, callback);
+    }
+
+    /**
+     * 分析阶段发现baseClass的子类型（包括自身）可达时回调
+     * @param access
+     * @param baseClass 类或接口，{@code Object.class}表示所有类型
+     * @param filter 在回调之前过滤，为null时不过滤
+     * @param callback 每个可达的子类型只调用一次
+     */
+    public void onSubtypeReachable(BeforeAnalysisAccess access, Class<?> baseClass, Predicate<Class<?>> filter, BiConsumer<DuringAnalysisAccess, Class<?>> callback) {
+        Set<Class<?>> handled = ConcurrentHashMap.newKeySet();
+        access.registerSubtypeReachabilityHandler((duringAnalysisAccess, subtype) -> {
+            if ((filter == null || filter.test(subtype)) && handled.add(subtype)) callback.accept(duringAnalysisAccess, subtype);
+        }, baseClass);
+    }
+
+    /**
+     * 分析阶段发现baseMethod的重写方法（包括自身）可达时回调，如只为实际被调用的实现类注册反射
+     * @param access
+     * @param baseMethod 方法
+     * @param callback 每个可达的重写方法只调用一次
+     */
+    public void onOverrideReachable(BeforeAnalysisAccess access, Executable baseMethod, BiConsumer<DuringAnalysisAccess, Executable> callback) {
+        Set<Executable> handled = ConcurrentHashMap.newKeySet();
+        access.registerMethodOverrideReachabilityHandler((duringAnalysisAccess, override) -> {
+            if (handled.add(override)) callback.accept(duringAnalysisAccess, override);
+        }, baseMethod);
     }
 
     public List<Class<?>> collectClass(String... packages) {
@@ -247,34 +401,31 @@ public class FeatureUtils {
         return collectClass(null, packages.toArray(new String[0]));
     }
 
+    /**
+     * 收集指定包及其子包下的类，按类路径条目并行加载，结果顺序固定
+     * @param predicate 为null时不过滤，可能被多个线程同时调用
+     * @param packages
+     * @return
+     */
     public List<Class<?>> collectClass(Predicate<Class<?>> predicate, String... packages) {
-        List<Class<?>> classes = new ArrayList<>();
-        for (String basePackage : packages) {
-            try {
-                Set<String> classNames = findClassNames(basePackage);
-                for (String className : classNames) {
-                    // 过滤掉Spring相关的生成类
-                    // 详见：org.springframework.aot.generate.ClassNameGenerator
-                    if (className.contains("__")) continue;
-
-                    try {
-                        Class<?> clazz = Class.forName(className, false, classLoader);
-                        if (predicate == null || predicate.test(clazz)) {
-                            classes.add(clazz);
-                        }
-                    } catch (ClassNotFoundException | LinkageError e) {
-                        // 忽略无法加载的类
+        return classpathIndex().processByEntry(collectClassNames(packages), classNames -> {
+            List<Class<?>> classes = new ArrayList<>();
+            for (String className : classNames) {
+                try {
+                    Class<?> clazz = Class.forName(className, false, classLoader);
+                    if (predicate == null || predicate.test(clazz)) {
+                        classes.add(clazz);
                     }
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // 忽略无法加载的类
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
-        }
-        return classes;
+            return classes;
+        });
     }
 
     public Set<String> collectClassNames(String... packages) {
-        Set<String> classNames = new HashSet<>();
+        Set<String> classNames = new LinkedHashSet<>();
         for (String basePackage : packages) {
             try {
                 Set<String> names = findClassNames(basePackage);
@@ -291,8 +442,13 @@ public class FeatureUtils {
         return classNames;
     }
 
+    /**
+     * 查找标注了{@code @SpringBootApplication}的类，只读取class文件定位，仅加载找到的类
+     * @return
+     * @throws IOException
+     */
     public List<Class<?>> findSpringBootApplicationClasses() throws IOException {
-        return findClasses(c -> Arrays.stream(c.getAnnotations()).anyMatch(annotation -> annotation.annotationType().getName().equals("org.springframework.boot.autoconfigure.SpringBootApplication")));
+        return loadClasses(classpathIndex().springBootApplicationClassNames());
     }
 
     public List<Class<?>> findClasses(Predicate<Class<?>> predicate) throws IOException {
@@ -350,45 +506,14 @@ public class FeatureUtils {
     }
 
     /**
-     * 查找指定包下的类
-     * @param packageName
+     * 查找指定包及其子包下的类，结果来自{@link ClasspathIndex}
+     * @param packageName 为空时查找根目录（类路径中的目录）下的类
      * @return
      * @throws IOException
      */
     public Set<String> findClassNames(String packageName) throws IOException {
-        Set<String> classNames = new HashSet<>();
-        String path = packageName.replace('.', '/');
-        Enumeration<URL> resources = classLoader.getResources(path);
-        while (resources.hasMoreElements()) {
-            URL resource = resources.nextElement();
-            String protocol = resource.getProtocol();
-            if ("file".equals(protocol)) {
-                try {
-                    File directory = new File(URLDecoder.decode(resource.getFile(), StandardCharsets.UTF_8));
-                    if (directory.exists()) {
-                        findClassesInDirectory(directory, packageName, classNames);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            } else if ("jar".equals(protocol)) {
-                String jarPath = resource.getFile().substring(5, resource.getFile().indexOf('!'));
-                try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
-                    Enumeration<JarEntry> entries = jar.entries();
-                    while (entries.hasMoreElements()) {
-                        JarEntry entry = entries.nextElement();
-                        String entryName = entry.getName();
-                        if (entryName.endsWith(".class") && !entry.isDirectory()) {
-                            String className = entryName.replace('/', '.').substring(0, entryName.length() - 6);
-                            classNames.add(className);
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return classNames;
+        ClasspathIndex index = classpathIndex();
+        return packageName.isEmpty() ? index.applicationClassNames() : index.classNames(packageName);
     }
 
     /**
@@ -401,48 +526,14 @@ public class FeatureUtils {
     }
 
     /**
-     * 查找指定包下的资源
-     * @param packageName
+     * 查找指定包及其子包下的资源，结果来自{@link ClasspathIndex}
+     * @param packageName 为空时查找根目录（类路径中的目录）下的资源
      * @return
      * @throws IOException
      */
     public Set<String> findResources(String packageName) throws IOException {
-        Set<String> resources = new HashSet<>();
-        String path = packageName.replace('.', '/');
-        Enumeration<URL> roots = classLoader.getResources(path);
-        while (roots.hasMoreElements()) {
-            URL root = roots.nextElement();
-            String protocol = root.getProtocol();
-
-            if ("file".equals(protocol)) {
-                try {
-                    String decodedPath = URLDecoder.decode(root.getFile(), StandardCharsets.UTF_8);
-                    File rootDir = new File(decodedPath);
-
-                    if (rootDir.exists() && rootDir.isDirectory()) {
-                        findResourcesInDirectory(rootDir, "", resources);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            } else if ("jar".equals(protocol)) {
-                String jarPath = root.getFile().substring(5, root.getFile().indexOf('!'));
-                try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
-                    Enumeration<JarEntry> entries = jar.entries();
-                    while (entries.hasMoreElements()) {
-                        JarEntry entry = entries.nextElement();
-                        String entryName = entry.getName();
-                        if (!entryName.endsWith(".class") && !entry.isDirectory()) {
-                            resources.add(entryName);
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        return resources;
+        ClasspathIndex index = classpathIndex();
+        return packageName.isEmpty() ? index.applicationResourceNames() : index.resourceNames(packageName);
     }
 
     /**
@@ -455,22 +546,40 @@ public class FeatureUtils {
     }
 
     /**
-     * 获取启动类
+     * 获取启动类，只读取class文件定位，仅加载找到的类
+     * @see ClasspathIndex#mainClassNames()
      * @return
      * @throws IOException
      */
     public List<Class<?>> findMainClasses() throws IOException {
-        return findClasses(c -> Arrays.stream(c.getMethods()).anyMatch(m -> m.getName().equals("main") && Modifier.isPublic(m.getModifiers()) && Modifier.isStatic(m.getModifiers())));
+        return loadClasses(classpathIndex().mainClassNames());
     }
 
 
     /**
-     * 获取启动类所在包名
+     * 获取启动类所在包名，不会加载任何类
      * @return
      * @throws IOException
      */
     public Set<String> findMainPackages() throws IOException {
-        return findMainClasses().stream().map(Class::getPackageName).collect(Collectors.toSet());
+        Set<String> packages = new LinkedHashSet<>();
+        for (String className : classpathIndex().mainClassNames()) {
+            int index = className.lastIndexOf('.');
+            packages.add(index < 0 ? "" : className.substring(0, index));
+        }
+        return packages;
+    }
+
+    private List<Class<?>> loadClasses(Collection<String> classNames) {
+        List<Class<?>> result = new ArrayList<>();
+        for (String className : classNames) {
+            try {
+                result.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                // 忽略无法加载的类
+            }
+        }
+        return result;
     }
 
 }
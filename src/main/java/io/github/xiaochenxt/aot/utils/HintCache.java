@@ -0,0 +1,272 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 持久化的增量hint缓存
+ * <p>以类路径条目为单位保存计算出的反射、序列化、资源、代理等hint，下次构建时只重新计算发生变化的部分：</p>
+ * <ul>
+ *     <li>jar：以jar的校验和（中央目录中的名称、CRC、大小）加上本次涉及的类名为键</li>
+ *     <li>目录：每个类单独缓存，以class文件及其在类路径中可找到的父类、接口的校验和为键</li>
+ * </ul>
+ * <p>缓存文件默认位于当前模块构建目录下的{@code xc-aot-cache}（由类路径中第一个目录条目，即模块的
+ * {@code target/classes}推断，多模块构建时各模块互不覆盖），可通过系统属性{@code xc.aot.cache.dir}修改，
+ * {@code xc.aot.cache.enabled=false}时关闭缓存</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class HintCache {
+
+    public static final String ENABLED_PROPERTY = "xc.aot.cache.enabled";
+
+    public static final String DIR_PROPERTY = "xc.aot.cache.dir";
+
+    public static final String REFLECTION = "reflection";
+
+    public static final String SERIALIZATION = "serialization";
+
+    public static final String RESOURCE = "resource";
+
+    public static final String PROXY = "proxy";
+
+    private static final Map<String, HintCache> CACHES = new ConcurrentHashMap<>();
+
+    private static final String CHECKSUM_SUFFIX = "#checksum";
+
+    private final String name;
+
+    private final Path file;
+
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+
+    /**
+     * 本次构建中用到的记录，保存时只写入这些，不再存在的类自然被清理
+     */
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+    private HintCache(String name, Path file) {
+        this.name = name;
+        this.file = file;
+        load();
+    }
+
+    /**
+     * 获取指定名称的缓存，一般每个注册器使用一个
+     * @param name 缓存名称，也是缓存文件名
+     * @param index 类路径索引，用于确定当前模块的构建目录
+     * @return
+     */
+    public static HintCache of(String name, ClasspathIndex index) {
+        Path file = directory(index).resolve(name + ".properties").toAbsolutePath().normalize();
+        return CACHES.computeIfAbsent(file.toString(), key -> new HintCache(name, file));
+    }
+
+    public static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    private static Path directory(ClasspathIndex index) {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir != null && !dir.isBlank()) return Path.of(dir);
+        // maven、gradle都将模块自身的输出目录放在类路径最前面，不能依赖工作目录（父工程中执行时所有模块相同）
+        List<ClasspathIndex.Entry> entries = index.applicationEntries();
+        Path output = entries.isEmpty() ? null : entries.getFirst().path().toAbsolutePath();
+        for (Path path = output; path != null; path = path.getParent()) {
+            Path fileName = path.getFileName();
+            if (fileName != null && (fileName.toString().equals("target") || fileName.toString().equals("build"))) {
+                return path.resolve("xc-aot-cache");
+            }
+        }
+        if (output != null && output.getParent() != null) return output.getParent().resolve("xc-aot-cache");
+        return Path.of("target", "xc-aot-cache");
+    }
+
+    /**
+     * 计算一批类的hint，未变化的类路径条目直接使用缓存，计算完成后写回缓存文件
+     * @param index 类路径索引
+     * @param classNames 需要计算的类
+     * @param computer 计算单个类的hint，可能被多个线程同时调用
+     * @return 合并后的hint，顺序与classNames一致
+     */
+    public Hints compute(ClasspathIndex index, Collection<String> classNames, Function<String, Hints> computer) {
+        return compute(index, classNames, "", computer);
+    }
+
+    /**
+     * 计算一批类的hint，未变化的类路径条目直接使用缓存，计算完成后写回缓存文件
+     * @param index 类路径索引
+     * @param classNames 需要计算的类
+     * @param dependency 类文件之外影响计算结果的内容摘要（如资源列表），变化时全部重新计算
+     * @param computer 计算单个类的hint，可能被多个线程同时调用
+     * @return 合并后的hint，顺序与classNames一致
+     */
+    public Hints compute(ClasspathIndex index, Collection<String> classNames, String dependency, Function<String, Hints> computer) {
+        if (!enabled()) {
+            Hints hints = new Hints();
+            for (Hints computed : index.processByEntry(classNames, group -> group.stream().map(computer).toList())) {
+                hints.merge(computed);
+            }
+            return hints;
+        }
+        Hints hints = new Hints();
+        AtomicInteger hits = new AtomicInteger();
+        for (Hints computed : index.processByEntry(classNames, group -> {
+            ClasspathIndex.Entry entry = index.entry(group.getFirst());
+            if (entry == null) return group.stream().map(computer).toList();
+            if (entry.archive()) {
+                String key = entry.toString();
+                String checksum = digest(entry.checksum(), dependency, String.join(",", group));
+                Hints cached = lookup(key, checksum);
+                if (cached != null) {
+                    hits.addAndGet(group.size());
+                    return List.of(cached);
+                }
+                Hints entryHints = new Hints();
+                group.stream().map(computer).forEach(entryHints::merge);
+                store(key, checksum, entryHints);
+                return List.of(entryHints);
+            }
+            List<Hints> list = new ArrayList<>(group.size());
+            for (String className : group) {
+                String checksum = digest(classChecksum(index, className), dependency);
+                Hints cached = lookup(className, checksum);
+                if (cached != null) {
+                    hits.incrementAndGet();
+                    list.add(cached);
+                    continue;
+                }
+                Hints classHints = computer.apply(className);
+                store(className, checksum, classHints);
+                list.add(classHints);
+            }
+            return list;
+        })) {
+            hints.merge(computed);
+        }
+        save();
+        HintMetrics.detail("hint cache " + name + ": " + hits.get() + "/" + classNames.size() + " classes reused");
+        return hints;
+    }
+
+    /**
+     * class文件本身及其在类路径中的父类、接口的校验和，父类型变化（如新实现了Serializable）时子类也会重新计算
+     */
+    private static String classChecksum(ClasspathIndex index, String className) {
+        StringBuilder builder = new StringBuilder();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (!visited.add(current)) continue;
+            ClasspathIndex.Entry entry = index.entry(current);
+            if (entry == null) continue;
+            builder.append(current).append('=')
+                    .append(entry.archive() ? entry.checksum() : entry.checksum(ClasspathIndex.toClassFileName(current))).append(';');
+            ClassMetadata metadata = index.metadata(current);
+            if (metadata == null) continue;
+            if (metadata.superClassName() != null) queue.add(metadata.superClassName());
+            queue.addAll(metadata.interfaceNames());
+        }
+        return builder.toString();
+    }
+
+    private static String digest(String... values) {
+        MessageDigest digest = ClasspathIndex.sha256();
+        for (String value : values) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Hints lookup(String key, String checksum) {
+        touched.add(key);
+        Record record = records.get(key);
+        return record != null && record.checksum.equals(checksum) ? record.hints : null;
+    }
+
+    private void store(String key, String checksum, Hints hints) {
+        touched.add(key);
+        records.put(key, new Record(checksum, hints));
+    }
+
+    private void load() {
+        if (!enabled() || !Files.isRegularFile(file)) return;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("Unable to read hint cache " + file + ", error: " + e.getMessage());
+            return;
+        }
+        for (String property : properties.stringPropertyNames()) {
+            if (!property.endsWith(CHECKSUM_SUFFIX)) continue;
+            String key = property.substring(0, property.length() - CHECKSUM_SUFFIX.length());
+            Hints hints = new Hints();
+            for (String category : List.of(REFLECTION, SERIALIZATION, RESOURCE, PROXY)) {
+                String value = properties.getProperty(key + '#' + category);
+                if (value == null || value.isEmpty()) continue;
+                for (String item : value.split("\n")) hints.add(category, item);
+            }
+            records.put(key, new Record(properties.getProperty(property), hints));
+        }
+    }
+
+    private synchronized void save() {
+        Properties properties = new Properties();
+        for (String key : touched) {
+            Record record = records.get(key);
+            if (record == null) continue;
+            properties.setProperty(key + CHECKSUM_SUFFIX, record.checksum);
+            record.hints.values.forEach((category, items) ->
+                    properties.setProperty(key + '#' + category, String.join("\n", items)));
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), name, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "xc-spring-boot-native hint cache, safe to delete");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to write hint cache " + file + ", error: " + e.getMessage());
+        }
+    }
+
+    private record Record(String checksum, Hints hints) {
+    }
+
+    /**
+     * 按类别分组的hint，值为类名、资源名，代理为逗号分隔的接口列表
+     */
+    public static final class Hints {
+
+        private final Map<String, List<String>> values = new LinkedHashMap<>();
+
+        public Hints add(String category, String value) {
+            values.computeIfAbsent(category, key -> new ArrayList<>()).add(value);
+            return this;
+        }
+
+        public List<String> get(String category) {
+            return values.getOrDefault(category, List.of());
+        }
+
+        public Hints merge(Hints other) {
+            other.values.forEach((category, items) -> values.computeIfAbsent(category, key -> new ArrayList<>()).addAll(items));
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,345 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * hint注册统计：按类别（反射、jni、序列化、资源、代理）、来源（注册器或Feature中的一项注册）、包统计注册数量，
+ * 并记录每个来源的耗时，构建结束时输出汇总表，同时写入{@code target/xc-aot-report}
+ * <p>spring aot阶段写入{@code aot.json}、{@code aot.txt}，native-image构建写入{@code native-image.json}、{@code native-image.txt}，
+ * 每一项注册写入{@code aot-registrations.tsv}、{@code native-image-registrations.tsv}，目录可通过系统属性{@code xc.aot.report.dir}修改</p>
+ * <p>系统属性{@code xc.aot.report.verbosity}：quiet只写入文件，summary（默认）额外输出汇总表，verbose再输出每一项注册</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class HintMetrics {
+
+    public static final String VERBOSITY_PROPERTY = "xc.aot.report.verbosity";
+
+    public static final String DIR_PROPERTY = "xc.aot.report.dir";
+
+    /**
+     * 注册明细文件的后缀，每行为制表符分隔的类别、来源、名称
+     */
+    public static final String REGISTRATIONS_SUFFIX = "-registrations.tsv";
+
+    /**
+     * 汇总表中输出的包数量，完整的统计见报告文件
+     */
+    private static final int SUMMARY_PACKAGES = 20;
+
+    public enum Category {
+
+        REFLECTION("reflect"), JNI("jni"), SERIALIZATION("serializable"), RESOURCE("resource"), PROXY("proxy");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+    }
+
+    private static final Counts TOTAL = new Counts();
+
+    private static final Map<String, Counts> SOURCES = new ConcurrentHashMap<>();
+
+    private static final Map<String, Counts> PACKAGES = new ConcurrentHashMap<>();
+
+    /**
+     * 每一项注册：类别、来源、名称，用于{@link ImageSizeAnalyzer}将镜像大小归属到来源
+     */
+    private static final Set<String> REGISTRATIONS = ConcurrentHashMap.newKeySet();
+
+    private static final ThreadLocal<String> SOURCE = new ThreadLocal<>();
+
+    /**
+     * 上次输出后是否有新的统计，构建结束时未输出的会在jvm退出时输出
+     */
+    private static final AtomicBoolean DIRTY = new AtomicBoolean();
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (DIRTY.get()) flush();
+        }, "xc-aot-report"));
+    }
+
+    private HintMetrics() {
+    }
+
+    private static String verbosity() {
+        return System.getProperty(VERBOSITY_PROPERTY, "summary").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 是否输出每一项注册
+     * @return
+     */
+    public static boolean verbose() {
+        return "verbose".equals(verbosity());
+    }
+
+    /**
+     * 记录一项注册
+     * @param category 类别
+     * @param name 类名或资源
+     */
+    public static void record(Category category, String name) {
+        String source = SOURCE.get();
+        if (source == null) source = caller();
+        TOTAL.increment(category);
+        SOURCES.computeIfAbsent(source, key -> new Counts()).increment(category);
+        PACKAGES.computeIfAbsent(packageName(category, name), key -> new Counts()).increment(category);
+        REGISTRATIONS.add(category.name() + '\t' + source + '\t' + name);
+        DIRTY.set(true);
+        if (verbose()) System.out.println("registering " + category.label + " " + name);
+    }
+
+    /**
+     * 输出不属于注册统计的明细，只在verbose时输出
+     * @param message
+     */
+    public static void detail(String message) {
+        if (verbose()) System.out.println(message);
+    }
+
+    /**
+     * 输出汇总信息（如跳过的数量），quiet时不输出
+     * @param message
+     */
+    public static void summary(String message) {
+        if (!"quiet".equals(verbosity())) System.out.println(message);
+    }
+
+    /**
+     * 执行并计时，期间当前线程的注册都归入source，嵌套时耗时同时计入外层
+     * @param source 来源名称，如注册器或Feature中的一项注册
+     * @param task
+     */
+    public static void time(String source, Runnable task) {
+        time(source, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 执行并计时，期间当前线程的注册都归入source，嵌套时耗时同时计入外层
+     * @param source 来源名称，如注册器或Feature中的一项注册
+     * @param task
+     * @return task的结果
+     */
+    public static <T> T time(String source, Supplier<T> task) {
+        String previous = SOURCE.get();
+        SOURCE.set(source);
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            Counts counts = SOURCES.computeIfAbsent(source, key -> new Counts());
+            counts.nanos.add(System.nanoTime() - start);
+            counts.calls.increment();
+            DIRTY.set(true);
+            if (previous == null) SOURCE.remove();
+            else SOURCE.set(previous);
+        }
+    }
+
+    /**
+     * 包装回调（如native-image的可达性回调），每次执行都计时并归入source
+     * @param source 来源名称
+     * @param consumer
+     * @return
+     */
+    public static <T> Consumer<T> timed(String source, Consumer<T> consumer) {
+        return value -> time(source, () -> consumer.accept(value));
+    }
+
+    /**
+     * 包装子类型、方法重写可达性回调，每次回调都计入来源的耗时
+     * @param source
+     * @param consumer
+     * @return
+     */
+    public static <T, U> BiConsumer<T, U> timed(String source, BiConsumer<T, U> consumer) {
+        return (first, second) -> time(source, () -> consumer.accept(first, second));
+    }
+
+    /**
+     * 输出汇总表并写入报告文件，构建结束时调用，未调用时在jvm退出时执行
+     */
+    public static synchronized void flush() {
+        DIRTY.set(false);
+        List<Map.Entry<String, Counts>> sources = sorted(SOURCES, Comparator.comparingLong((Counts counts) -> counts.nanos.sum())
+                .thenComparingLong(Counts::total));
+        List<Map.Entry<String, Counts>> packages = sorted(PACKAGES, Comparator.comparingLong(Counts::total));
+        String summary = summary(sources, packages);
+        if (!"quiet".equals(verbosity())) System.out.print(summary);
+        String phase = System.getProperty("org.graalvm.nativeimage.imagecode") != null ? "native-image" : "aot";
+        Path directory = directory();
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve(phase + ".txt"), summary);
+            Files.writeString(directory.resolve(phase + ".json"), json(phase, sources, packages));
+            List<String> registrations = new ArrayList<>(REGISTRATIONS);
+            Collections.sort(registrations);
+            Files.write(directory.resolve(phase + REGISTRATIONS_SUFFIX), registrations);
+        } catch (IOException e) {
+            System.err.println("Unable to write hint report " + directory + ", error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 报告目录
+     * @return
+     */
+    public static Path directory() {
+        String dir = System.getProperty(DIR_PROPERTY);
+        return dir == null || dir.isBlank() ? Path.of("target", "xc-aot-report") : Path.of(dir);
+    }
+
+    /**
+     * 调用方：第一个不在统计工具中的栈帧，lambda取其所在方法名，如{@code BasicFeature.caffeine}
+     */
+    private static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> {
+                    String className = frame.getClassName();
+                    return !className.equals(HintMetrics.class.getName()) && !className.equals(AotUtils.class.getName())
+                            && !className.equals(FeatureUtils.class.getName());
+                })
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                    String methodName = frame.getMethodName();
+                    if (methodName.startsWith("lambda$")) {
+                        int end = methodName.indexOf('$', "lambda$".length());
+                        methodName = end < 0 ? methodName.substring("lambda$".length()) : methodName.substring("lambda$".length(), end);
+                    }
+                    return simpleName + "." + methodName;
+                })
+                .orElse("unknown"));
+    }
+
+    /**
+     * 类按所在包，资源按所在目录，代理按第一个接口所在包
+     */
+    private static String packageName(Category category, String name) {
+        if (category == Category.RESOURCE) {
+            int index = name.lastIndexOf('/');
+            return index <= 0 ? "(root)" : name.substring(name.startsWith("/") ? 1 : 0, index).replace('/', '.');
+        }
+        if (category == Category.PROXY && name.startsWith("[")) {
+            int end = name.indexOf(',');
+            name = name.substring(1, end < 0 ? name.length() - 1 : end).trim();
+        }
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "(default)" : name.substring(0, index);
+    }
+
+    private static List<Map.Entry<String, Counts>> sorted(Map<String, Counts> map, Comparator<Counts> comparator) {
+        List<Map.Entry<String, Counts>> entries = new ArrayList<>(map.entrySet());
+        entries.sort(Map.Entry.<String, Counts>comparingByValue(comparator.reversed()).thenComparing(Map.Entry.comparingByKey()));
+        return entries;
+    }
+
+    private static String summary(List<Map.Entry<String, Counts>> sources, List<Map.Entry<String, Counts>> packages) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("xc-aot hint registrations\n");
+        String header = String.format("%-48s %10s %8s %8s %12s %10s %8s %8s%n", "", "total", "reflect", "jni", "serializable", "resource", "proxy", "ms");
+        builder.append(header);
+        row(builder, "total", TOTAL, -1);
+        builder.append("sources\n");
+        for (Map.Entry<String, Counts> entry : sources) {
+            row(builder, "  " + entry.getKey(), entry.getValue(), entry.getValue().calls.sum() == 0 ? -1 : entry.getValue().nanos.sum() / 1_000_000);
+        }
+        builder.append("packages");
+        if (packages.size() > SUMMARY_PACKAGES) builder.append(" (top ").append(SUMMARY_PACKAGES).append(" of ").append(packages.size()).append(")");
+        builder.append('\n');
+        for (Map.Entry<String, Counts> entry : packages.subList(0, Math.min(SUMMARY_PACKAGES, packages.size()))) {
+            row(builder, "  " + entry.getKey(), entry.getValue(), -1);
+        }
+        return builder.toString();
+    }
+
+    private static void row(StringBuilder builder, String name, Counts counts, long millis) {
+        if (name.length() > 48) name = name.substring(0, 45) + "...";
+        builder.append(String.format("%-48s %10d %8d %8d %12d %10d %8d %8s%n", name, counts.total(),
+                counts.get(Category.REFLECTION), counts.get(Category.JNI), counts.get(Category.SERIALIZATION),
+                counts.get(Category.RESOURCE), counts.get(Category.PROXY), millis < 0 ? "" : String.valueOf(millis)));
+    }
+
+    private static String json(String phase, List<Map.Entry<String, Counts>> sources, List<Map.Entry<String, Counts>> packages) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("phase", phase);
+        report.put("timestamp", Instant.now().toString());
+        report.put("total", TOTAL.toMap());
+        List<Map<String, Object>> sourceList = new ArrayList<>();
+        for (Map.Entry<String, Counts> entry : sources) {
+            Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", entry.getKey());
+            source.put("calls", entry.getValue().calls.sum());
+            source.put("millis", entry.getValue().nanos.sum() / 1_000_000);
+            source.put("registrations", entry.getValue().toMap());
+            sourceList.add(source);
+        }
+        report.put("sources", sourceList);
+        List<Map<String, Object>> packageList = new ArrayList<>();
+        for (Map.Entry<String, Counts> entry : packages) {
+            Map<String, Object> packageMap = new LinkedHashMap<>();
+            packageMap.put("name", entry.getKey());
+            packageMap.put("registrations", entry.getValue().toMap());
+            packageList.add(packageMap);
+        }
+        report.put("packages", packageList);
+        return Json.write(report) + "\n";
+    }
+
+    private static final class Counts {
+
+        private final LongAdder[] registrations = new LongAdder[Category.values().length];
+
+        private final LongAdder nanos = new LongAdder();
+
+        private final LongAdder calls = new LongAdder();
+
+        private Counts() {
+            for (int i = 0; i < registrations.length; i++) registrations[i] = new LongAdder();
+        }
+
+        private void increment(Category category) {
+            registrations[category.ordinal()].increment();
+        }
+
+        private long get(Category category) {
+            return registrations[category.ordinal()].sum();
+        }
+
+        private long total() {
+            long total = 0;
+            for (LongAdder registration : registrations) total += registration.sum();
+            return total;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("total", total());
+            for (Category category : Category.values()) map.put(category.name().toLowerCase(Locale.ROOT), get(category));
+            return map;
+        }
+
+    }
+
+}
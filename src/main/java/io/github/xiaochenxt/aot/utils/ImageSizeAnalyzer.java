@@ -0,0 +1,406 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 原生镜像大小归属分析：将镜像中的代码、镜像堆、资源字节数按{@link HintMetrics}记录的注册归属到各个注册来源和包，
+ * 用于找出代价最大的注册
+ * <p>构建完成后执行（只依赖JDK）：</p>
+ * <pre>
+ * java -cp xc-spring-boot-native.jar io.github.xiaochenxt.aot.utils.ImageSizeAnalyzer target
+ * </pre>
+ * <p>读取目标目录（默认target）中的以下文件，除注册明细外都是可选的：</p>
+ * <ul>
+ *     <li>注册明细：{@code xc-aot-report/aot-registrations.tsv}、{@code xc-aot-report/native-image-registrations.tsv}</li>
+ *     <li>{@code build-artifacts.json}（{@code -H:+GenerateBuildArtifactsFile}）：定位可执行文件及以下文件</li>
+ *     <li>构建输出（{@code -H:BuildOutputJSONFile=target/build-output.json}）：代码区、镜像堆、资源的总大小和反射注册数量</li>
+ *     <li>dashboard（{@code -H:DashboardDump=target/dashboard -H:+DashboardCode -H:+DashboardHeap}，生成{@code *.dump}）：
+ *     每个方法的代码大小、每个类型的堆大小，有它才能按类归属</li>
+ *     <li>{@code embedded-resources.json}（{@code -H:+GenerateEmbeddedResourcesFile}）：每个资源的大小</li>
+ * </ul>
+ * <p>被多个来源注册的类，字节数平均分给这些来源；代码按方法所在的类归属，只计算被注册的类自身，不含其内部类和lambda；
+ * 反射元数据本身没有按类的大小，只输出构建输出中的数量</p>
+ * <p>结果输出汇总表，并写入{@code xc-aot-report/image-size.txt}、{@code xc-aot-report/image-size.json}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ImageSizeAnalyzer {
+
+    /**
+     * 汇总表中输出的包数量，完整的统计见报告文件
+     */
+    private static final int SUMMARY_PACKAGES = 30;
+
+    private final Path target;
+
+    private final Path reportDirectory;
+
+    /**
+     * 类 -> 注册它的来源
+     */
+    private final Map<String, Set<String>> classSources = new HashMap<>();
+
+    /**
+     * 资源模式 -> 注册它的来源
+     */
+    private final Map<Pattern, Set<String>> resourceSources = new LinkedHashMap<>();
+
+    private final Map<String, Sizes> sources = new HashMap<>();
+
+    private final Map<String, Sizes> packages = new HashMap<>();
+
+    private final Sizes registered = new Sizes();
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+
+    private ImageSizeAnalyzer(Path target, Path reportDirectory) {
+        this.target = target;
+        this.reportDirectory = reportDirectory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path target = Path.of(args.length > 0 ? args[0] : "target");
+        String dir = System.getProperty(HintMetrics.DIR_PROPERTY);
+        Path reportDirectory = dir == null || dir.isBlank() ? target.resolve("xc-aot-report") : Path.of(dir);
+        ImageSizeAnalyzer analyzer = new ImageSizeAnalyzer(target, reportDirectory);
+        analyzer.analyze();
+        String summary = analyzer.summary();
+        System.out.print(summary);
+        Files.createDirectories(reportDirectory);
+        Files.writeString(reportDirectory.resolve("image-size.txt"), summary);
+        Files.writeString(reportDirectory.resolve("image-size.json"), Json.write(analyzer.report) + "\n");
+        System.out.println("image size report " + reportDirectory.resolve("image-size.json").toAbsolutePath());
+    }
+
+    private void analyze() throws IOException {
+        readRegistrations();
+        Artifacts artifacts = artifacts();
+        report.put("executable", artifacts.executable == null ? null : artifacts.executable.toString());
+        report.put("executableBytes", artifacts.executable != null && Files.exists(artifacts.executable) ? Files.size(artifacts.executable) : -1);
+        if (artifacts.buildOutput != null) {
+            Object buildOutput = Json.parse(Files.readString(artifacts.buildOutput));
+            Map<String, Object> image = new LinkedHashMap<>();
+            image.put("totalBytes", Json.getLong(buildOutput, "image_details", "total_bytes"));
+            image.put("codeAreaBytes", Json.getLong(buildOutput, "image_details", "code_area", "bytes"));
+            image.put("imageHeapBytes", Json.getLong(buildOutput, "image_details", "image_heap", "bytes"));
+            image.put("resourceBytes", Json.getLong(buildOutput, "image_details", "image_heap", "resources", "bytes"));
+            image.put("reflectionTypes", Json.getLong(buildOutput, "analysis_results", "types", "reflection"));
+            image.put("reflectionMethods", Json.getLong(buildOutput, "analysis_results", "methods", "reflection"));
+            image.put("reflectionFields", Json.getLong(buildOutput, "analysis_results", "fields", "reflection"));
+            image.put("jniTypes", Json.getLong(buildOutput, "analysis_results", "types", "jni"));
+            report.put("image", image);
+        }
+        if (artifacts.dashboard != null) {
+            Object dashboard = Json.parse(Files.readString(artifacts.dashboard));
+            for (Map<?, ?> method : entries(Json.get(dashboard, "code-breakdown", "code-size"))) {
+                String className = declaringClass(String.valueOf(method.get("name")));
+                attribute(className, Sizes.CODE, size(method));
+            }
+            for (Map<?, ?> type : entries(Json.get(dashboard, "heap-breakdown", "heap-size"))) {
+                attribute(String.valueOf(type.get("name")), Sizes.HEAP, size(type));
+            }
+        }
+        if (artifacts.resources != null) {
+            for (Map<?, ?> resource : entries(Json.parse(Files.readString(artifacts.resources)))) {
+                if (Boolean.TRUE.equals(resource.get("is_directory"))) continue;
+                attributeResource(String.valueOf(resource.get("name")), size(resource));
+            }
+        }
+        Map<String, Object> inputs = new LinkedHashMap<>();
+        inputs.put("buildOutput", artifacts.buildOutput == null ? null : artifacts.buildOutput.toString());
+        inputs.put("dashboard", artifacts.dashboard == null ? null : artifacts.dashboard.toString());
+        inputs.put("embeddedResources", artifacts.resources == null ? null : artifacts.resources.toString());
+        inputs.put("registeredClasses", classSources.size());
+        inputs.put("registeredResourcePatterns", resourceSources.size());
+        report.put("inputs", inputs);
+        report.put("registered", registered.toMap());
+        List<Map<String, Object>> sourceList = new ArrayList<>();
+        for (Map.Entry<String, Sizes> entry : sorted(sources)) {
+            Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", entry.getKey());
+            source.putAll(entry.getValue().toMap());
+            sourceList.add(source);
+        }
+        report.put("sources", sourceList);
+        List<Map<String, Object>> packageList = new ArrayList<>();
+        for (Map.Entry<String, Sizes> entry : sorted(packages)) {
+            Map<String, Object> packageMap = new LinkedHashMap<>();
+            packageMap.put("name", entry.getKey());
+            packageMap.putAll(entry.getValue().toMap());
+            packageList.add(packageMap);
+        }
+        report.put("packages", packageList);
+    }
+
+    /**
+     * 读取注册明细，反射、jni、序列化、代理归为类，资源归为模式
+     */
+    private void readRegistrations() throws IOException {
+        for (String phase : List.of("aot", "native-image")) {
+            Path file = reportDirectory.resolve(phase + HintMetrics.REGISTRATIONS_SUFFIX);
+            if (!Files.exists(file)) continue;
+            Map<String, Pattern> patterns = new HashMap<>();
+            for (String line : Files.readAllLines(file)) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) continue;
+                String category = parts[0], source = parts[1], name = parts[2];
+                if (HintMetrics.Category.RESOURCE.name().equals(category)) {
+                    Pattern pattern = patterns.computeIfAbsent(name, ImageSizeAnalyzer::resourcePattern);
+                    resourceSources.computeIfAbsent(pattern, key -> new TreeSet<>()).add(source);
+                } else if (HintMetrics.Category.PROXY.name().equals(category)) {
+                    for (String interfaceName : name.replace("[", "").replace("]", "").split(",")) {
+                        classSources.computeIfAbsent(interfaceName.trim(), key -> new TreeSet<>()).add(source);
+                    }
+                } else {
+                    classSources.computeIfAbsent(name, key -> new TreeSet<>()).add(source);
+                }
+            }
+        }
+        if (classSources.isEmpty() && resourceSources.isEmpty()) {
+            System.out.println("no hint registrations found in " + reportDirectory + ", sizes are only attributed to packages");
+        }
+    }
+
+    /**
+     * 从build-artifacts.json定位文件，没有时在目标目录中查找
+     */
+    private Artifacts artifacts() throws IOException {
+        Artifacts artifacts = new Artifacts();
+        List<Path> candidates = new ArrayList<>();
+        Path artifactsFile = target.resolve("build-artifacts.json");
+        if (Files.exists(artifactsFile)) {
+            Object json = Json.parse(Files.readString(artifactsFile));
+            if (json instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (!(entry.getValue() instanceof List<?> list)) continue;
+                    for (Object path : list) {
+                        Path file = artifactsFile.getParent().resolve(String.valueOf(path));
+                        if ("executables".equals(entry.getKey()) && artifacts.executable == null) artifacts.executable = file;
+                        candidates.add(file);
+                    }
+                }
+            }
+        }
+        if (Files.isDirectory(target)) {
+            try (Stream<Path> files = Files.walk(target, 2)) {
+                files.filter(Files::isRegularFile).forEach(candidates::add);
+            }
+        }
+        for (Path file : candidates) {
+            String fileName = file.getFileName().toString();
+            if (artifacts.buildOutput == null && fileName.endsWith(".json") && fileName.contains("build-output")) artifacts.buildOutput = file;
+            else if (artifacts.dashboard == null && fileName.endsWith(".dump")) artifacts.dashboard = file;
+            else if (artifacts.resources == null && fileName.equals("embedded-resources.json")) artifacts.resources = file;
+        }
+        return artifacts;
+    }
+
+    /**
+     * 将类的字节数计入其包，被注册的类再平均计入各个注册来源
+     */
+    private void attribute(String className, int kind, long size) {
+        if (size <= 0) return;
+        packages.computeIfAbsent(packageName(className), key -> new Sizes()).add(kind, size, null);
+        Set<String> classRegistrations = classSources.get(className);
+        if (classRegistrations == null) return;
+        packages.get(packageName(className)).add(Sizes.REGISTERED, size, null);
+        registered.add(kind, size, null);
+        split(classRegistrations, className, kind, size);
+    }
+
+    private void attributeResource(String name, long size) {
+        if (size <= 0) return;
+        int index = name.lastIndexOf('/');
+        String packageName = index <= 0 ? "(root)" : name.substring(name.startsWith("/") ? 1 : 0, index).replace('/', '.');
+        packages.computeIfAbsent(packageName, key -> new Sizes()).add(Sizes.RESOURCE, size, null);
+        String resourceName = name.startsWith("/") ? name.substring(1) : name;
+        Set<String> resourceRegistrations = new TreeSet<>();
+        resourceSources.forEach((pattern, registrations) -> {
+            if (pattern.matcher(resourceName).matches()) resourceRegistrations.addAll(registrations);
+        });
+        if (resourceRegistrations.isEmpty()) return;
+        packages.get(packageName).add(Sizes.REGISTERED, size, null);
+        registered.add(Sizes.RESOURCE, size, null);
+        split(resourceRegistrations, resourceName, Sizes.RESOURCE, size);
+    }
+
+    /**
+     * 平均分给各个来源，余数计入第一个
+     */
+    private void split(Set<String> registrations, String item, int kind, long size) {
+        long share = size / registrations.size();
+        long remainder = size - share * registrations.size();
+        boolean first = true;
+        for (String source : registrations) {
+            sources.computeIfAbsent(source, key -> new Sizes()).add(kind, first ? share + remainder : share, item);
+            first = false;
+        }
+    }
+
+    /**
+     * dashboard中的方法名，如{@code java.lang.String.hashCode()}
+     */
+    private static String declaringClass(String methodName) {
+        int end = methodName.indexOf('(');
+        String name = end < 0 ? methodName : methodName.substring(0, end);
+        int space = name.lastIndexOf(' ');
+        if (space >= 0) name = name.substring(space + 1);
+        int index = name.lastIndexOf('.');
+        return index < 0 ? name : name.substring(0, index);
+    }
+
+    private static String packageName(String className) {
+        if (className.contains(" ") || className.contains("[")) return "(other)";
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "(default)" : className.substring(0, index);
+    }
+
+    /**
+     * spring资源模式：*匹配目录内的任意字符，**匹配任意层目录
+     */
+    static Pattern resourcePattern(String pattern) {
+        if (pattern.startsWith("/")) pattern = pattern.substring(1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static List<Map<?, ?>> entries(Object value) {
+        List<Map<?, ?>> entries = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object element : list) {
+                if (element instanceof Map<?, ?> map) entries.add(map);
+            }
+        }
+        return entries;
+    }
+
+    private static long size(Map<?, ?> entry) {
+        return entry.get("size") instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static List<Map.Entry<String, Sizes>> sorted(Map<String, Sizes> map) {
+        List<Map.Entry<String, Sizes>> entries = new ArrayList<>(map.entrySet());
+        entries.sort(Map.Entry.<String, Sizes>comparingByValue(Comparator.comparingLong(Sizes::total).reversed())
+                .thenComparing(Map.Entry.comparingByKey()));
+        return entries;
+    }
+
+    private String summary() {
+        StringBuilder builder = new StringBuilder("xc-aot image size attribution\n");
+        if (report.get("image") instanceof Map<?, ?> image) {
+            builder.append(String.format("image %s, code area %s, image heap %s, resources %s%n",
+                    bytes(image.get("totalBytes")), bytes(image.get("codeAreaBytes")), bytes(image.get("imageHeapBytes")),
+                    bytes(image.get("resourceBytes"))));
+            builder.append(String.format("reflection: %s types, %s methods, %s fields%n",
+                    image.get("reflectionTypes"), image.get("reflectionMethods"), image.get("reflectionFields")));
+        } else {
+            builder.append("no build output found, add -H:BuildOutputJSONFile=target/build-output.json\n");
+        }
+        if (!(Json.get(report, "inputs", "dashboard") instanceof String)) {
+            builder.append("no dashboard dump found, add -H:DashboardDump=target/dashboard -H:+DashboardCode -H:+DashboardHeap for per-class sizes\n");
+        }
+        String format = "%-48s %10s %12s %12s %12s %12s%n";
+        builder.append(String.format(format, "", "classes", "code", "heap", "resources", "total"));
+        builder.append(String.format(format, "registered", "", bytes(registered.code), bytes(registered.heap),
+                bytes(registered.resource), bytes(registered.total())));
+        builder.append("sources\n");
+        for (Map.Entry<String, Sizes> entry : sorted(sources)) {
+            Sizes sizes = entry.getValue();
+            builder.append(String.format(format, "  " + abbreviate(entry.getKey()), sizes.items.size(), bytes(sizes.code),
+                    bytes(sizes.heap), bytes(sizes.resource), bytes(sizes.total())));
+        }
+        List<Map.Entry<String, Sizes>> packageEntries = sorted(packages);
+        builder.append("packages");
+        if (packageEntries.size() > SUMMARY_PACKAGES) builder.append(" (top ").append(SUMMARY_PACKAGES).append(" of ").append(packageEntries.size()).append(")");
+        builder.append(String.format("%n"));
+        String packageFormat = "%-48s %12s %12s %12s %12s %12s%n";
+        builder.append(String.format(packageFormat, "", "code", "heap", "resources", "total", "registered"));
+        for (Map.Entry<String, Sizes> entry : packageEntries.subList(0, Math.min(SUMMARY_PACKAGES, packageEntries.size()))) {
+            Sizes sizes = entry.getValue();
+            builder.append(String.format(packageFormat, "  " + abbreviate(entry.getKey()), bytes(sizes.code), bytes(sizes.heap),
+                    bytes(sizes.resource), bytes(sizes.total()), bytes(sizes.registered)));
+        }
+        return builder.toString();
+    }
+
+    private static String abbreviate(String name) {
+        return name.length() > 46 ? name.substring(0, 43) + "..." : name;
+    }
+
+    private static String bytes(Object value) {
+        long bytes = value instanceof Number number ? number.longValue() : -1;
+        if (bytes < 0) return "-";
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.2f MB", bytes / 1024.0 / 1024.0);
+    }
+
+    private static final class Artifacts {
+
+        private Path executable;
+
+        private Path buildOutput;
+
+        private Path dashboard;
+
+        private Path resources;
+
+    }
+
+    private static final class Sizes {
+
+        private static final int CODE = 0, HEAP = 1, RESOURCE = 2, REGISTERED = 3;
+
+        private long code, heap, resource, registered;
+
+        /**
+         * 来源中归属了字节数的类、资源
+         */
+        private final Set<String> items = new HashSet<>();
+
+        private void add(int kind, long size, String item) {
+            switch (kind) {
+                case CODE -> code += size;
+                case HEAP -> heap += size;
+                case RESOURCE -> resource += size;
+                default -> registered += size;
+            }
+            if (item != null) items.add(item);
+        }
+
+        private long total() {
+            return code + heap + resource;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("codeBytes", code);
+            map.put("heapBytes", heap);
+            map.put("resourceBytes", resource);
+            map.put("totalBytes", total());
+            if (registered > 0) map.put("registeredBytes", registered);
+            if (!items.isEmpty()) map.put("items", items.size());
+            return map;
+        }
+
+    }
+
+}
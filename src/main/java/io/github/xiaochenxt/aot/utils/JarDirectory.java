@@ -0,0 +1,404 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * jar的中央目录
+ * <p>只将中央目录映射到内存，直接在{@link MappedByteBuffer}上读取条目的名称、CRC和大小，
+ * 前缀、后缀的判断都在原始字节上完成，不会为每个条目创建{@link java.util.jar.JarEntry}和字符串，
+ * 只有需要的条目才解码名称</p>
+ * <p>支持zip64以及spring boot可执行jar前置启动脚本的情况，条目名称按UTF-8解码（与{@link java.util.jar.JarFile}一致）</p>
+ * <p>spring boot可执行jar中未压缩的嵌套jar（如{@code BOOT-INF/lib/*.jar}）通过{@link #nested(int)}原地读取，
+ * 与外层jar共用同一个文件通道，不会解压到临时文件</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+final class JarDirectory implements AutoCloseable {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int END_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+    /**
+     * 用于错误信息，嵌套jar为{@code 外层jar!/条目名}
+     */
+    private final String description;
+
+    private final FileChannel channel;
+
+    /**
+     * 是否由本实例打开通道，嵌套jar共用外层jar的通道
+     */
+    private final boolean owner;
+
+    private final MappedByteBuffer directory;
+
+    /**
+     * 前置内容（如启动脚本）的长度，中央目录中记录的偏移量需加上该值
+     */
+    private final long base;
+
+    private final int count;
+
+    /**
+     * 条目名 -> 条目位置，第一次按名称查找时建立
+     */
+    private volatile Map<String, Integer> positions;
+
+    private JarDirectory(String description, FileChannel channel, boolean owner, MappedByteBuffer directory, long base, int count) {
+        this.description = description;
+        this.channel = channel;
+        this.owner = owner;
+        this.directory = directory;
+        this.base = base;
+        this.count = count;
+    }
+
+    /**
+     * 定位并映射中央目录
+     * @param path jar文件
+     * @return
+     * @throws ZipException 不是有效的zip文件时
+     * @throws IOException
+     */
+    static JarDirectory open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return open(channel, true, path.toString(), 0, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开未压缩存储的嵌套jar，中央目录同样只做映射，通道与当前jar共用
+     * @param entry 嵌套jar的条目位置
+     * @return 无需关闭，随外层jar关闭
+     * @throws ZipException 嵌套jar被压缩或不是有效的zip文件时
+     * @throws IOException
+     */
+    JarDirectory nested(int entry) throws IOException {
+        String nestedDescription = description + "!/" + name(entry);
+        if (unsignedShort(directory, entry + 10) != STORED) throw new ZipException(nestedDescription + " is compressed, nested jars must be stored");
+        return open(channel, false, nestedDescription, dataOffset(entry), compressedSize(entry));
+    }
+
+    /**
+     * 在文件的[start, start + length)区间内定位并映射中央目录
+     */
+    private static JarDirectory open(FileChannel channel, boolean owner, String description, long start, long length) throws IOException {
+        if (length < END_SIZE) throw new ZipException("zip END header not found in " + description);
+        // 绝大多数jar没有注释，先只读取结束记录和zip64定位器，找不到时再读取注释可能占用的最大长度
+        int tailSize = (int) Math.min(length, END_SIZE + ZIP64_LOCATOR_SIZE);
+        long tailStart = start + length - tailSize;
+        ByteBuffer tail = read(channel, tailStart, tailSize);
+        int end = findEnd(tail);
+        if (end < 0 && length > tailSize) {
+            tailSize = (int) Math.min(length, END_SIZE + 0xFFFF + ZIP64_LOCATOR_SIZE);
+            tailStart = start + length - tailSize;
+            tail = read(channel, tailStart, tailSize);
+            end = findEnd(tail);
+        }
+        if (end < 0) throw new ZipException("zip END header not found in " + description);
+        long count = unsignedShort(tail, end + 10);
+        long directorySize = unsignedInt(tail, end + 12);
+        long directoryOffset = unsignedInt(tail, end + 16);
+        long directoryEnd = tailStart + end;
+        if (end >= ZIP64_LOCATOR_SIZE && tail.getInt(end - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64End = start + tail.getLong(end - ZIP64_LOCATOR_SIZE + 8);
+            ByteBuffer record = read(channel, zip64End, 56);
+            // 有前置内容时记录的位置不准确，此时按紧邻定位器之前查找
+            if (record.getInt(0) != ZIP64_END_SIGNATURE) {
+                zip64End = directoryEnd - ZIP64_LOCATOR_SIZE - 56;
+                record = read(channel, zip64End, 56);
+            }
+            if (record.getInt(0) == ZIP64_END_SIGNATURE) {
+                count = record.getLong(32);
+                directorySize = record.getLong(40);
+                directoryOffset = record.getLong(48);
+                directoryEnd = zip64End;
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE || count > Integer.MAX_VALUE || directorySize > directoryEnd - start) {
+            throw new ZipException("invalid central directory in " + description);
+        }
+        long directoryStart = directoryEnd - directorySize;
+        MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryStart, directorySize);
+        directory.order(ByteOrder.LITTLE_ENDIAN);
+        return new JarDirectory(description, channel, owner, directory, directoryStart - directoryOffset, (int) count);
+    }
+
+    private static int findEnd(ByteBuffer tail) {
+        int tailSize = tail.limit();
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            // 注释长度与实际剩余长度一致才是真正的结束记录，避免注释中恰好出现签名
+            if (tail.getInt(i) == END_SIGNATURE && i + END_SIZE + unsignedShort(tail, i + 20) == tailSize) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 条目数，包括目录
+     * @return
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * 依次访问名称以prefix开头的条目
+     * @param prefix 以/分隔，为空时访问所有条目
+     * @param visitor 参数为条目在中央目录中的位置，用于调用本类的其他方法
+     * @throws ZipException 中央目录损坏时
+     */
+    void forEach(String prefix, IntConsumer visitor) throws ZipException {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int position = 0;
+        int limit = directory.limit();
+        for (int i = 0; i < count; i++) {
+            if (position + CENTRAL_HEADER_SIZE > limit || directory.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new ZipException("invalid central directory header in " + description);
+            }
+            if (prefixBytes.length == 0 || startsWith(position, prefixBytes)) visitor.accept(position);
+            position += CENTRAL_HEADER_SIZE + nameLength(position) + unsignedShort(directory, position + 30) + unsignedShort(directory, position + 32);
+        }
+    }
+
+    /**
+     * 查找指定名称的条目
+     * @param name 以/分隔的相对路径
+     * @return 条目位置，不存在时返回-1
+     * @throws ZipException 中央目录损坏时
+     */
+    int find(String name) throws ZipException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int[] found = {-1};
+        forEach(name, entry -> {
+            if (found[0] < 0 && nameLength(entry) == nameBytes.length) found[0] = entry;
+        });
+        return found[0];
+    }
+
+    /**
+     * 按名称查找条目，第一次调用时解码所有条目名建立索引，适合多次随机读取
+     * @param name 以/分隔的相对路径
+     * @return 条目位置，不存在时返回-1
+     * @throws ZipException 中央目录损坏时
+     */
+    int get(String name) throws ZipException {
+        Map<String, Integer> index = positions;
+        if (index == null) {
+            synchronized (this) {
+                index = positions;
+                if (index == null) {
+                    Map<String, Integer> map = new HashMap<>(count * 4 / 3 + 1);
+                    forEach("", entry -> map.putIfAbsent(name(entry), entry));
+                    positions = index = map;
+                }
+            }
+        }
+        return index.getOrDefault(name, -1);
+    }
+
+    String name(int entry) {
+        byte[] bytes = new byte[nameLength(entry)];
+        directory.get(entry + CENTRAL_HEADER_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int nameLength(int entry) {
+        return unsignedShort(directory, entry + 28);
+    }
+
+    boolean startsWith(int entry, byte[] prefix) {
+        if (nameLength(entry) < prefix.length) return false;
+        int start = entry + CENTRAL_HEADER_SIZE;
+        for (int i = 0; i < prefix.length; i++) {
+            if (directory.get(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    boolean endsWith(int entry, byte[] suffix) {
+        int length = nameLength(entry);
+        if (length < suffix.length) return false;
+        int start = entry + CENTRAL_HEADER_SIZE + length - suffix.length;
+        for (int i = 0; i < suffix.length; i++) {
+            if (directory.get(start + i) != suffix[i]) return false;
+        }
+        return true;
+    }
+
+    boolean isDirectory(int entry) {
+        int length = nameLength(entry);
+        return length > 0 && directory.get(entry + CENTRAL_HEADER_SIZE + length - 1) == '/';
+    }
+
+    long crc(int entry) {
+        return unsignedInt(directory, entry + 16);
+    }
+
+    /**
+     * 解压后的大小
+     * @return
+     */
+    long size(int entry) {
+        long size = unsignedInt(directory, entry + 24);
+        return size == UNSIGNED_INT_MASK ? zip64(entry, 0) : size;
+    }
+
+    long compressedSize(int entry) {
+        long size = unsignedInt(directory, entry + 20);
+        if (size != UNSIGNED_INT_MASK) return size;
+        return zip64(entry, unsignedInt(directory, entry + 24) == UNSIGNED_INT_MASK ? 1 : 0);
+    }
+
+    private long localHeaderOffset(int entry) {
+        long offset = unsignedInt(directory, entry + 42);
+        if (offset != UNSIGNED_INT_MASK) return offset;
+        int index = 0;
+        if (unsignedInt(directory, entry + 24) == UNSIGNED_INT_MASK) index++;
+        if (unsignedInt(directory, entry + 20) == UNSIGNED_INT_MASK) index++;
+        return zip64(entry, index);
+    }
+
+    /**
+     * 读取zip64扩展字段中的第index个值，扩展字段只包含中央目录中为0xFFFFFFFF的值，依次为大小、压缩后大小、本地头偏移量
+     */
+    private long zip64(int entry, int index) {
+        int position = entry + CENTRAL_HEADER_SIZE + nameLength(entry);
+        int end = position + unsignedShort(directory, entry + 30);
+        while (position + 4 <= end) {
+            int id = unsignedShort(directory, position);
+            int size = unsignedShort(directory, position + 2);
+            if (id == ZIP64_EXTRA_ID && 8 * (index + 1) <= size) return directory.getLong(position + 4 + 8 * index);
+            position += 4 + size;
+        }
+        return UNSIGNED_INT_MASK;
+    }
+
+    /**
+     * 将条目的名称、CRC和大小写入摘要，名称直接取中央目录中的原始字节
+     */
+    void digest(int entry, MessageDigest digest) {
+        digest.update(directory.slice(entry + CENTRAL_HEADER_SIZE, nameLength(entry)));
+        digest.update(longBytes(crc(entry)));
+        digest.update(longBytes(size(entry)));
+    }
+
+    /**
+     * 读取条目内容，只支持未压缩和deflate压缩
+     * @param entry 条目位置
+     * @return
+     * @throws IOException
+     */
+    byte[] read(int entry) throws IOException {
+        long size = size(entry);
+        long compressedSize = compressedSize(entry);
+        if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE) throw new ZipException(name(entry) + " is too large");
+        ByteBuffer data = read(channel, dataOffset(entry), (int) compressedSize);
+        int method = unsignedShort(directory, entry + 10);
+        if (method == STORED) return data.array();
+        if (method != DEFLATED) throw new ZipException("unsupported compression method " + method + " for " + name(entry));
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] bytes = new byte[(int) size];
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += inflated;
+            }
+            if (length != bytes.length) throw new ZipException("invalid compressed data for " + name(entry) + " in " + description);
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new ZipException("invalid compressed data for " + name(entry) + " in " + description + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 条目数据在文件中的位置，需读取本地文件头中的名称和扩展字段长度
+     */
+    private long dataOffset(int entry) throws IOException {
+        long offset = base + localHeaderOffset(entry);
+        ByteBuffer header = read(channel, offset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_SIGNATURE) throw new ZipException("invalid local header for " + name(entry) + " in " + description);
+        return offset + LOCAL_HEADER_SIZE + unsignedShort(header, 26) + unsignedShort(header, 28);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (owner) channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new ZipException("unexpected end of zip file");
+        }
+        return buffer.flip();
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int position) {
+        return Short.toUnsignedInt(buffer.getShort(position));
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int position) {
+        return Integer.toUnsignedLong(buffer.getInt(position));
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+}
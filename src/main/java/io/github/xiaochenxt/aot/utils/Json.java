@@ -0,0 +1,264 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.util.*;
+
+/**
+ * 简单的json读写，用于读取native-image的构建输出、代理收集的配置等，不依赖json库
+ * <p>对象解析为{@link LinkedHashMap}（保持字段顺序），数组为{@link ArrayList}，整数为{@link Long}，小数为{@link Double}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class Json {
+
+    private final String text;
+
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * 解析json
+     * @param text json文本
+     * @return Map、List、String、Long、Double、Boolean或null
+     * @throws IllegalArgumentException 格式错误时
+     */
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        json.skipWhitespace();
+        Object value = json.value();
+        json.skipWhitespace();
+        if (json.position != text.length()) throw json.error("unexpected content");
+        return value;
+    }
+
+    /**
+     * 写出json，对象和数组每个元素一行，缩进两个空格
+     * @param value Map、Collection、数组、字符串、数字、布尔或null，其他类型按字符串写出
+     * @return
+     */
+    public static String write(Object value) {
+        StringBuilder builder = new StringBuilder();
+        write(builder, value, 0);
+        return builder.toString();
+    }
+
+    /**
+     * 按路径读取嵌套的对象字段
+     * @param value 解析结果
+     * @param path 字段名
+     * @return 不存在时返回null
+     */
+    public static Object get(Object value, String... path) {
+        for (String key : path) {
+            if (!(value instanceof Map<?, ?> map)) return null;
+            value = map.get(key);
+        }
+        return value;
+    }
+
+    /**
+     * 按路径读取数字
+     * @return 不存在或不是数字时返回-1
+     */
+    public static long getLong(Object value, String... path) {
+        return get(value, path) instanceof Number number ? number.longValue() : -1;
+    }
+
+    private Object value() {
+        if (position >= text.length()) throw error("unexpected end");
+        char c = text.charAt(position);
+        return switch (c) {
+            case '{' -> object();
+            case '[' -> array();
+            case '"' -> string();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) yield number();
+                throw error("unexpected character '" + c + "'");
+            }
+        };
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("expected field name");
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            map.put(key, value());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') return map;
+            if (c != ',') throw error("expected ',' or '}'");
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return list;
+        }
+        while (true) {
+            skipWhitespace();
+            list.add(value());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') return list;
+            if (c != ',') throw error("expected ',' or ']'");
+        }
+    }
+
+    private String string() {
+        position++;
+        StringBuilder builder = null;
+        int start = position;
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                if (builder == null) return text.substring(start, position - 1);
+                return builder.toString();
+            }
+            if (c != '\\') {
+                if (builder != null) builder.append(c);
+                continue;
+            }
+            if (builder == null) builder = new StringBuilder(text.substring(start, position - 1));
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append(escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) throw error("invalid unicode escape");
+                    builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                }
+                default -> throw error("invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private Number number() {
+        int start = position;
+        boolean decimal = false;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') decimal = true;
+            else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) break;
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            return decimal ? (Number) Double.parseDouble(number) : (Number) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw error("invalid number " + number);
+        }
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!text.startsWith(literal, position)) throw error("unexpected literal");
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) position++;
+    }
+
+    private char peek() {
+        if (position >= text.length()) throw error("unexpected end");
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) throw error("expected '" + expected + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid json at " + position + ": " + message);
+    }
+
+    private static void write(StringBuilder builder, Object value, int indent) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            builder.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            if (map.isEmpty()) {
+                builder.append("{}");
+                return;
+            }
+            builder.append('{');
+            String separator = "\n";
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                builder.append(separator).append("  ".repeat(indent + 1));
+                string(builder, String.valueOf(entry.getKey()));
+                builder.append(": ");
+                write(builder, entry.getValue(), indent + 1);
+                separator = ",\n";
+            }
+            builder.append('\n').append("  ".repeat(indent)).append('}');
+        } else if (value instanceof Collection<?> || value instanceof Object[]) {
+            Collection<?> collection = value instanceof Object[] array ? Arrays.asList(array) : (Collection<?>) value;
+            if (collection.isEmpty()) {
+                builder.append("[]");
+                return;
+            }
+            builder.append('[');
+            String separator = "\n";
+            for (Object element : collection) {
+                builder.append(separator).append("  ".repeat(indent + 1));
+                write(builder, element, indent + 1);
+                separator = ",\n";
+            }
+            builder.append('\n').append("  ".repeat(indent)).append(']');
+        } else {
+            string(builder, value.toString());
+        }
+    }
+
+    private static void string(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+                }
+            }
+        }
+        builder.append('"');
+    }
+
+}
@@ -0,0 +1,379 @@
+package io.github.xiaochenxt.aot.utils;
+
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.TypeHint;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.asm.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按实际用法收窄反射注册的成员范围，替代对每个类都使用{@link AotUtils#defaultMemberCategory}
+ * <p>只分析字节码和映射文件，不加载类，依次判断：</p>
+ * <ol>
+ *     <li>匿名类、package-info：不注册</li>
+ *     <li>以常量形式传给反射API（ReflectionUtils、Class.getDeclaredXxx、ObjectMapper.readValue等）的类：全部成员</li>
+ *     <li>JPA实体、mybatis映射文件中引用的类、带jackson注解的类：声明的字段、构造器、方法</li>
+ *     <li>枚举：声明的字段和公共方法</li>
+ *     <li>只有字段、getter/setter、构造器和equals/hashCode/toString的DTO：仅公共构造器和getter/setter</li>
+ *     <li>接口、注解：公共方法</li>
+ *     <li>其他无法判断的类：全部成员</li>
+ * </ol>
+ * <p>系统属性{@code xc.aot.reflection.members=usage}时启用</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class MemberUsageAnalyzer {
+
+    public static final String PROPERTY = "xc.aot.reflection.members";
+
+    /**
+     * mybatis的Reflector、JPA实现和jackson会读取类声明的全部字段和方法
+     */
+    public static final MemberCategory[] DECLARED_MEMBERS = new MemberCategory[]{MemberCategory.DECLARED_FIELDS,
+            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS};
+
+    private static final MemberCategory[] ENUM_MEMBERS = new MemberCategory[]{MemberCategory.DECLARED_FIELDS,
+            MemberCategory.INVOKE_PUBLIC_METHODS};
+
+    private static final MemberCategory[] PUBLIC_METHODS = new MemberCategory[]{MemberCategory.INVOKE_PUBLIC_METHODS};
+
+    private static final Set<String> PERSISTENCE_ANNOTATIONS = Set.of(
+            "jakarta.persistence.Entity", "jakarta.persistence.Embeddable", "jakarta.persistence.MappedSuperclass",
+            "javax.persistence.Entity", "javax.persistence.Embeddable", "javax.persistence.MappedSuperclass",
+            "com.baomidou.mybatisplus.annotation.TableName");
+
+    private static final List<String> JACKSON_ANNOTATION_PACKAGES = List.of(
+            "com.fasterxml.jackson.annotation.", "com.fasterxml.jackson.databind.annotation.");
+
+    /**
+     * 调用这些类的方法时，同一方法中出现的类常量视为被反射使用
+     */
+    private static final List<String> REFLECTIVE_OWNERS = List.of(
+            "org/springframework/util/ReflectionUtils", "org/springframework/beans/BeanUtils",
+            "org/springframework/beans/BeanWrapperImpl", "java/lang/reflect/",
+            "com/fasterxml/jackson/databind/ObjectMapper", "com/fasterxml/jackson/databind/ObjectReader",
+            "com/alibaba/fastjson", "cn/hutool/core/bean/BeanUtil", "cn/hutool/core/util/ReflectUtil",
+            "cn/hutool/json/JSONUtil");
+
+    private static final Set<String> REFLECTIVE_CLASS_METHODS = Set.of(
+            "forName", "newInstance", "getField", "getFields", "getMethod", "getMethods", "getConstructor", "getConstructors",
+            "getDeclaredField", "getDeclaredFields", "getDeclaredMethod", "getDeclaredMethods",
+            "getDeclaredConstructor", "getDeclaredConstructors", "getRecordComponents");
+
+    private static final Set<String> OBJECT_METHODS = Set.of("equals", "hashCode", "toString", "canEqual");
+
+    private static final Pattern XML_TYPE_ATTRIBUTE = Pattern.compile(
+            "(?:resultType|parameterType|type|ofType|javaType)\\s*=\\s*[\"']([\\w.$]+)[\"']");
+
+    private MemberUsageAnalyzer() {
+    }
+
+    public static boolean enabled() {
+        return "usage".equalsIgnoreCase(System.getProperty(PROPERTY));
+    }
+
+    /**
+     * 分析一批类需要注册的反射成员
+     * @param index 类路径索引
+     * @param classNames 需要注册反射的类
+     * @return 与classNames顺序一致，不需要注册的类不会出现
+     */
+    public static List<MemberUsage> analyze(ClasspathIndex index, Collection<String> classNames) {
+        List<ClassFacts> facts = index.processByEntry(classNames, group -> {
+            List<ClassFacts> list = new ArrayList<>(group.size());
+            ClasspathIndex.Entry entry = index.entry(group.getFirst());
+            if (entry == null) return list;
+            entry.readClasses(group, (className, bytes) -> {
+                try {
+                    ClassFacts classFacts = new ClassFacts();
+                    new ClassReader(bytes).accept(classFacts, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    list.add(classFacts);
+                } catch (RuntimeException ignored) {
+                    // 无法解析的类按全部成员注册
+                }
+            });
+            return list;
+        });
+        Map<String, ClassFacts> factsByName = new HashMap<>();
+        Set<String> reflected = new HashSet<>();
+        for (ClassFacts classFacts : facts) {
+            factsByName.put(classFacts.className, classFacts);
+            reflected.addAll(classFacts.reflectedTypes);
+        }
+        Set<String> mapped = mappedTypes(index);
+        List<MemberUsage> usages = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            ClassFacts classFacts = factsByName.get(className);
+            if (classFacts == null) {
+                usages.add(new MemberUsage(className, AotUtils.defaultMemberCategory));
+                continue;
+            }
+            MemberUsage usage = classify(classFacts, reflected, mapped);
+            if (usage != null) usages.add(usage);
+        }
+        return usages;
+    }
+
+    private static MemberUsage classify(ClassFacts facts, Set<String> reflected, Set<String> mapped) {
+        String className = facts.className;
+        if (isAnonymous(className) || className.endsWith(".package-info")) return null;
+        if (reflected.contains(className)) return new MemberUsage(className, AotUtils.defaultMemberCategory);
+        if (facts.annotations.stream().anyMatch(PERSISTENCE_ANNOTATIONS::contains) || mapped.contains(className)
+                || facts.annotations.stream().anyMatch(MemberUsageAnalyzer::isJacksonAnnotation)
+                || (facts.access & Opcodes.ACC_RECORD) != 0) {
+            return new MemberUsage(className, DECLARED_MEMBERS);
+        }
+        if ((facts.access & Opcodes.ACC_ENUM) != 0) return new MemberUsage(className, ENUM_MEMBERS);
+        if ((facts.access & Opcodes.ACC_INTERFACE) != 0) return new MemberUsage(className, PUBLIC_METHODS);
+        if (facts.isBeanProperties()) {
+            MemberUsage usage = new MemberUsage(className, new MemberCategory[0]);
+            for (MethodFacts method : facts.methods) {
+                if ((method.access & Opcodes.ACC_PUBLIC) == 0 || (method.access & Opcodes.ACC_SYNTHETIC) != 0) continue;
+                if ("<init>".equals(method.name)) {
+                    usage.constructors.add(method.parameterTypes());
+                } else if (method.isAccessor()) {
+                    usage.methods.put(method.name + method.descriptor, method.parameterTypes());
+                }
+            }
+            return usage;
+        }
+        return new MemberUsage(className, AotUtils.defaultMemberCategory);
+    }
+
+    /**
+     * 应用自身映射文件中通过resultType、parameterType等属性引用的类
+     */
+    private static Set<String> mappedTypes(ClasspathIndex index) {
+        Set<String> types = new HashSet<>();
+        for (ClasspathIndex.Entry entry : index.applicationEntries()) {
+            for (String resourceName : entry.resourceNames()) {
+                if (!resourceName.endsWith(".xml")) continue;
+                try {
+                    Matcher matcher = XML_TYPE_ATTRIBUTE.matcher(new String(entry.read(resourceName), StandardCharsets.UTF_8));
+                    while (matcher.find()) types.add(matcher.group(1));
+                } catch (IOException ignored) {}
+            }
+        }
+        return types;
+    }
+
+    private static boolean isJacksonAnnotation(String annotationName) {
+        for (String prefix : JACKSON_ANNOTATION_PACKAGES) {
+            if (annotationName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 形如Outer$1的匿名类，只会被编译器生成的代码直接引用
+     */
+    private static boolean isAnonymous(String className) {
+        int index = className.lastIndexOf('$');
+        return index > 0 && index < className.length() - 1 && Character.isDigit(className.charAt(index + 1));
+    }
+
+    /**
+     * 一个类需要注册的反射成员
+     */
+    public static final class MemberUsage {
+
+        private final String className;
+
+        private final MemberCategory[] categories;
+
+        private final List<List<String>> constructors = new ArrayList<>();
+
+        private final Map<String, List<String>> methods = new LinkedHashMap<>();
+
+        MemberUsage(String className, MemberCategory[] categories) {
+            this.className = className;
+            this.categories = categories;
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public MemberCategory[] categories() {
+            return categories;
+        }
+
+        /**
+         * 需要单独注册的构造器的参数类型
+         * @return
+         */
+        public List<List<String>> constructors() {
+            return constructors;
+        }
+
+        /**
+         * 需要单独注册的方法，key为方法名加描述符
+         * @return
+         */
+        public Map<String, List<String>> methods() {
+            return methods;
+        }
+
+        /**
+         * 去掉字段的副本，用于字段需要单独注册的类
+         * @return
+         */
+        public MemberUsage withoutFields() {
+            MemberUsage usage = new MemberUsage(className, AotUtils.withoutFields(categories));
+            usage.constructors.addAll(constructors);
+            usage.methods.putAll(methods);
+            return usage;
+        }
+
+        public void applyTo(TypeHint.Builder builder) {
+            builder.withMembers(categories);
+            for (List<String> parameterTypes : constructors) {
+                builder.withConstructor(parameterTypes.stream().map(TypeReference::of).toList(), ExecutableMode.INVOKE);
+            }
+            methods.forEach((key, parameterTypes) -> builder.withMethod(key.substring(0, key.indexOf('(')),
+                    parameterTypes.stream().map(TypeReference::of).toList(), ExecutableMode.INVOKE));
+        }
+
+    }
+
+    private static final class MethodFacts {
+
+        private final int access;
+
+        private final String name;
+
+        private final String descriptor;
+
+        MethodFacts(int access, String name, String descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        List<String> parameterTypes() {
+            return Arrays.stream(Type.getArgumentTypes(descriptor)).map(Type::getClassName).toList();
+        }
+
+        boolean isAccessor() {
+            int parameterCount = Type.getArgumentTypes(descriptor).length;
+            boolean returnsVoid = Type.getReturnType(descriptor) == Type.VOID_TYPE;
+            if (name.startsWith("get") && name.length() > 3) return parameterCount == 0 && !returnsVoid;
+            if (name.startsWith("is") && name.length() > 2) return parameterCount == 0 && Type.getReturnType(descriptor) == Type.BOOLEAN_TYPE;
+            if (name.startsWith("set") && name.length() > 3) return parameterCount == 1;
+            return false;
+        }
+
+    }
+
+    private static final class ClassFacts extends ClassVisitor {
+
+        private String className;
+
+        private int access;
+
+        private final Set<String> annotations = new HashSet<>();
+
+        private final List<MethodFacts> methods = new ArrayList<>();
+
+        private int instanceFields;
+
+        private final Set<String> reflectedTypes = new HashSet<>();
+
+        ClassFacts() {
+            super(SpringAsmInfo.ASM_VERSION);
+        }
+
+        /**
+         * 有实例字段且除构造器、getter/setter、静态方法和Object方法外没有其他方法
+         */
+        boolean isBeanProperties() {
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_ANNOTATION)) != 0) return false;
+            if (instanceFields == 0 || !annotations.isEmpty()) return false;
+            for (MethodFacts method : methods) {
+                if ((method.access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_STATIC)) != 0) continue;
+                if ("<init>".equals(method.name) || OBJECT_METHODS.contains(method.name) || method.isAccessor()) continue;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.className = name.replace('/', '.');
+            this.access = access;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            annotations.add(Type.getType(descriptor).getClassName());
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if ((access & Opcodes.ACC_STATIC) == 0) instanceFields++;
+            return new FieldVisitor(api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    // 字段和方法上的注解也决定了框架如何使用这个类
+                    annotations.add(Type.getType(annotationDescriptor).getClassName());
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            methods.add(new MethodFacts(access, name, descriptor));
+            return new MethodVisitor(api) {
+
+                private final Set<String> constants = new HashSet<>();
+
+                private boolean reflective;
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+                    annotations.add(Type.getType(annotationDescriptor).getClassName());
+                    return null;
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (value instanceof Type type && type.getSort() == Type.OBJECT) {
+                        constants.add(type.getClassName());
+                    } else if (value instanceof String string && string.indexOf('.') > 0 && string.indexOf(' ') < 0) {
+                        constants.add(string);
+                    }
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String methodName, String methodDescriptor, boolean isInterface) {
+                    if ("java/lang/Class".equals(owner)) {
+                        if (REFLECTIVE_CLASS_METHODS.contains(methodName)) reflective = true;
+                        return;
+                    }
+                    for (String reflectiveOwner : REFLECTIVE_OWNERS) {
+                        if (owner.startsWith(reflectiveOwner)) {
+                            reflective = true;
+                            return;
+                        }
+                    }
+                }
+
+                @Override
+                public void visitEnd() {
+                    if (reflective) reflectedTypes.addAll(constants);
+                }
+
+            };
+        }
+
+    }
+
+}
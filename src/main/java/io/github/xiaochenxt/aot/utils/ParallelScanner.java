@@ -0,0 +1,88 @@
+package io.github.xiaochenxt.aot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * 类路径扫描的并行执行器
+ * <p>任务按类路径条目（jar或目录）拆分，在独立的{@link ForkJoinPool}中执行，结果严格按输入顺序合并，
+ * 保证多次构建生成的hint完全一致</p>
+ * <p>并行度通过系统属性{@code xc.aot.scan.parallelism}配置，默认为CPU核数，设置为1时在当前线程顺序执行</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class ParallelScanner {
+
+    public static final String PARALLELISM_PROPERTY = "xc.aot.scan.parallelism";
+
+    private static ForkJoinPool pool;
+
+    private ParallelScanner() {
+    }
+
+    /**
+     * 当前配置的并行度
+     * @return
+     */
+    public static int parallelism() {
+        String value = System.getProperty(PARALLELISM_PROPERTY);
+        if (value != null && !value.isBlank()) {
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid " + PARALLELISM_PROPERTY + ": " + value + ", using available processors");
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 并行处理每个元素，返回的结果与输入一一对应、顺序一致
+     * @param items 通常是类路径条目或按条目分组的类名
+     * @param mapper 可能被多个线程同时调用
+     * @return
+     */
+    public static <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper) {
+        int parallelism = parallelism();
+        if (parallelism <= 1 || items.size() <= 1) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) results.add(mapper.apply(item));
+            return results;
+        }
+        List<Callable<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items) tasks.add(() -> mapper.apply(item));
+        List<R> results = new ArrayList<>(items.size());
+        try {
+            for (Future<R> future : pool(parallelism).invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Classpath scanning interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException("Error scanning classpath", cause);
+        }
+        return results;
+    }
+
+    /**
+     * 并行度变化时（如基准测试中切换配置）重建线程池
+     */
+    private static synchronized ForkJoinPool pool(int parallelism) {
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null) pool.shutdown();
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("xc-aot-scan-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+}
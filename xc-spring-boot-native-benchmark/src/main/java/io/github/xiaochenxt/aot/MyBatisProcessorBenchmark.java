@@ -0,0 +1,138 @@
+package io.github.xiaochenxt.aot;
+
+import io.github.xiaochenxt.aot.benchmark.SyntheticClasspath;
+import io.github.xiaochenxt.aot.utils.HintCache;
+import io.github.xiaochenxt.aot.utils.ParallelScanner;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aot.generate.*;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationCode;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.javapoet.ClassName;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MyBatisNativeConfiguration.MyBatisBeanFactoryInitializationAotProcessor}的吞吐量，
+ * 包括mapper hint、映射文件索引、映射快照及结果访问器代码的生成
+ * <p>处理器是包级私有的，因此放在同名包中</p>
+ * <p>运行：{@code java -jar target/benchmarks.jar MyBatisProcessorBenchmark -prof gc}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MyBatisProcessorBenchmark {
+
+    @Param({"50"})
+    public int jars;
+
+    @Param({"100"})
+    public int classesPerJar;
+
+    @Param({"50", "200"})
+    public int mappers;
+
+    @Param({"100"})
+    public int dtos;
+
+    @Param({"4"})
+    public String parallelism;
+
+    @Param({"false"})
+    public String cache;
+
+    private SyntheticClasspath classpath;
+
+    private Path cacheDirectory;
+
+    private URLClassLoader classLoader;
+
+    private ClassLoader contextClassLoader;
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        classpath = SyntheticClasspath.generate(jars, classesPerJar, 4, mappers, dtos);
+        cacheDirectory = Files.createTempDirectory("xc-aot-benchmark-cache");
+        System.setProperty(ParallelScanner.PARALLELISM_PROPERTY, parallelism);
+        System.setProperty(HintCache.ENABLED_PROPERTY, cache);
+        System.setProperty(HintCache.DIR_PROPERTY, cacheDirectory.toString());
+    }
+
+    /**
+     * 与spring aot阶段一致：mapper以MapperFactoryBean注册，处理器通过线程上下文类加载器扫描类路径
+     */
+    @Setup(Level.Invocation)
+    public void newBeanFactory() throws ClassNotFoundException {
+        classLoader = classpath.newClassLoader(MyBatisProcessorBenchmark.class.getClassLoader());
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(classLoader);
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.setBeanClassLoader(classLoader);
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of("mybatis.mapper-locations", SyntheticClasspath.MAPPER_LOCATIONS)));
+        beanFactory.registerSingleton("environment", environment);
+        for (String mapperClassName : classpath.mapperClassNames()) {
+            Class<?> mapperInterface = classLoader.loadClass(mapperClassName);
+            RootBeanDefinition beanDefinition = new RootBeanDefinition(MapperFactoryBean.class);
+            beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(MapperFactoryBean.class, mapperInterface));
+            beanDefinition.getPropertyValues().add("mapperInterface", mapperInterface);
+            beanFactory.registerBeanDefinition(mapperInterface.getSimpleName(), beanDefinition);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClassLoader() throws IOException {
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+        classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        System.clearProperty(ParallelScanner.PARALLELISM_PROPERTY);
+        System.clearProperty(HintCache.ENABLED_PROPERTY);
+        System.clearProperty(HintCache.DIR_PROPERTY);
+        classpath.close();
+        SyntheticClasspath.delete(cacheDirectory);
+    }
+
+    @Benchmark
+    public RuntimeHints processAheadOfTime() {
+        BeanFactoryInitializationAotContribution contribution =
+                new MyBatisNativeConfiguration.MyBatisBeanFactoryInitializationAotProcessor().processAheadOfTime(beanFactory);
+        DefaultGenerationContext context = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get(SyntheticClasspath.APP_PACKAGE, "App")), new InMemoryGeneratedFiles());
+        GeneratedClass registrations = context.getGeneratedClasses().addForFeature("BeanFactoryRegistrations", type -> {});
+        contribution.applyTo(context, new BeanFactoryInitializationCode() {
+            @Override
+            public GeneratedMethods getMethods() {
+                return registrations.getMethods();
+            }
+
+            @Override
+            public void addInitializer(MethodReference methodReference) {
+            }
+        });
+        context.writeGeneratedContent();
+        return context.getRuntimeHints();
+    }
+
+}
@@ -0,0 +1,102 @@
+package io.github.xiaochenxt.aot.benchmark;
+
+import io.github.xiaochenxt.aot.AllRuntimeHintsRegistrar;
+import io.github.xiaochenxt.aot.utils.FeatureUtils;
+import io.github.xiaochenxt.aot.utils.HintCache;
+import io.github.xiaochenxt.aot.utils.ParallelScanner;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aot.hint.RuntimeHints;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * aot hint流水线中类路径扫描相关步骤的吞吐量：{@link FeatureUtils#findClassNames}、{@link FeatureUtils#findMainPackages}
+ * 以及{@link AllRuntimeHintsRegistrar#registerHints}
+ * <p>每次调用都使用新的类加载器，包含建立类路径索引的耗时；{@code cache=true}时测量增量hint缓存命中后的耗时</p>
+ * <p>运行：{@code java -jar target/benchmarks.jar AotPipelineBenchmark -prof gc}，gc分析器会输出每次调用的分配量（gc.alloc.rate.norm）</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AotPipelineBenchmark {
+
+    @Param({"200"})
+    public int jars;
+
+    @Param({"100"})
+    public int classesPerJar;
+
+    @Param({"50"})
+    public int mappers;
+
+    @Param({"200"})
+    public int dtos;
+
+    @Param({"4"})
+    public String parallelism;
+
+    @Param({"false", "true"})
+    public String cache;
+
+    private SyntheticClasspath classpath;
+
+    private Path cacheDirectory;
+
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        classpath = SyntheticClasspath.generate(jars, classesPerJar, 4, mappers, dtos);
+        cacheDirectory = Files.createTempDirectory("xc-aot-benchmark-cache");
+        System.setProperty(ParallelScanner.PARALLELISM_PROPERTY, parallelism);
+        System.setProperty(HintCache.ENABLED_PROPERTY, cache);
+        System.setProperty(HintCache.DIR_PROPERTY, cacheDirectory.toString());
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        classLoader = classpath.newClassLoader(AotPipelineBenchmark.class.getClassLoader());
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        System.clearProperty(ParallelScanner.PARALLELISM_PROPERTY);
+        System.clearProperty(HintCache.ENABLED_PROPERTY);
+        System.clearProperty(HintCache.DIR_PROPERTY);
+        classpath.close();
+        SyntheticClasspath.delete(cacheDirectory);
+    }
+
+    @Benchmark
+    public Set<String> findClassNames() throws IOException {
+        return new FeatureUtils(classLoader).findClassNames(SyntheticClasspath.BASE_PACKAGE);
+    }
+
+    @Benchmark
+    public Set<String> findMainPackages() throws IOException {
+        return new FeatureUtils(classLoader).findMainPackages();
+    }
+
+    @Benchmark
+    public RuntimeHints allRuntimeHints() {
+        RuntimeHints hints = new RuntimeHints();
+        new AllRuntimeHintsRegistrar().registerHints(hints, classLoader);
+        return hints;
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.github.xiaochenxt.aot.benchmark;
+
+import io.github.xiaochenxt.aot.utils.AotUtils;
+import io.github.xiaochenxt.aot.utils.FeatureUtils;
+import io.github.xiaochenxt.aot.utils.ParallelScanner;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aot.hint.RuntimeHints;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比不同并行度下{@link AotUtils#collectClass}与{@link FeatureUtils#collectClass}的耗时
+ * <p>每次调用都使用新的类加载器，测量的是建立类路径索引加上加载所有类的完整耗时</p>
+ * <p>运行：{@code java -jar target/benchmarks.jar CollectClassBenchmark}</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CollectClassBenchmark {
+
+    @Param({"400"})
+    public int jars;
+
+    @Param({"100"})
+    public int classesPerJar;
+
+    @Param({"1", "4", "16"})
+    public String parallelism;
+
+    private SyntheticClasspath classpath;
+
+    private URLClassLoader classLoader;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        classpath = SyntheticClasspath.generate(jars, classesPerJar, 4);
+        System.setProperty(ParallelScanner.PARALLELISM_PROPERTY, parallelism);
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        classLoader = new URLClassLoader(classpath.urls(), CollectClassBenchmark.class.getClassLoader());
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        System.clearProperty(ParallelScanner.PARALLELISM_PROPERTY);
+        classpath.close();
+    }
+
+    @Benchmark
+    public List<Class<?>> aotCollectClass() {
+        return new AotUtils(new RuntimeHints(), classLoader).collectClass(SyntheticClasspath.BASE_PACKAGE);
+    }
+
+    @Benchmark
+    public List<Class<?>> featureCollectClass() {
+        return new FeatureUtils(classLoader).collectClass(SyntheticClasspath.BASE_PACKAGE);
+    }
+
+}
@@ -0,0 +1,306 @@
+package io.github.xiaochenxt.aot.benchmark;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * 生成由大量jar组成的合成类路径，类名形如{@code bench.lib3.p1.C42}
+ * <p>可选生成一个应用目录：{@code bench.app.App}启动类、{@code bench.app.dto}下可序列化的DTO、
+ * {@code bench.app.mapper}下的mybatis mapper接口及{@code mapper/}下对应的映射文件</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class SyntheticClasspath implements AutoCloseable {
+
+    public static final String BASE_PACKAGE = "bench";
+
+    public static final String APP_PACKAGE = BASE_PACKAGE + ".app";
+
+    public static final String MAPPER_PACKAGE = APP_PACKAGE + ".mapper";
+
+    public static final String MAPPER_LOCATIONS = "classpath*:mapper/*.xml";
+
+    private static final String SPRING_BOOT_APPLICATION = "Lorg/springframework/boot/autoconfigure/SpringBootApplication;";
+
+    private final Path directory;
+
+    private final List<Path> jars;
+
+    private final Path application;
+
+    private final List<String> mapperClassNames;
+
+    private SyntheticClasspath(Path directory, List<Path> jars, Path application, List<String> mapperClassNames) {
+        this.directory = directory;
+        this.jars = jars;
+        this.application = application;
+        this.mapperClassNames = mapperClassNames;
+    }
+
+    /**
+     * @param jarCount jar数量
+     * @param classesPerJar 每个jar中的类数量
+     * @param packagesPerJar 每个jar中的包数量
+     * @return
+     * @throws IOException
+     */
+    public static SyntheticClasspath generate(int jarCount, int classesPerJar, int packagesPerJar) throws IOException {
+        return generate(jarCount, classesPerJar, packagesPerJar, 0, 0);
+    }
+
+    /**
+     * @param jarCount jar数量
+     * @param classesPerJar 每个jar中的类数量
+     * @param packagesPerJar 每个jar中的包数量
+     * @param mapperCount 应用中的mapper接口数量，每个接口有一个映射文件
+     * @param dtoCount 应用中可序列化的DTO数量，mapper依次使用这些DTO作为结果和参数类型
+     * @return
+     * @throws IOException
+     */
+    public static SyntheticClasspath generate(int jarCount, int classesPerJar, int packagesPerJar,
+                                              int mapperCount, int dtoCount) throws IOException {
+        Path directory = Files.createTempDirectory("xc-aot-benchmark");
+        List<Path> jars = new ArrayList<>(jarCount);
+        for (int i = 0; i < jarCount; i++) {
+            Path jar = directory.resolve("lib" + i + ".jar");
+            writeJar(jar, BASE_PACKAGE + "/lib" + i, classesPerJar, Math.max(1, packagesPerJar));
+            jars.add(jar);
+        }
+        Path application = null;
+        List<String> mapperClassNames = new ArrayList<>(mapperCount);
+        if (mapperCount > 0 || dtoCount > 0) {
+            application = directory.resolve("classes");
+            if (mapperCount > 0) dtoCount = Math.max(1, dtoCount);
+            writeApplication(application, mapperCount, dtoCount, mapperClassNames);
+        }
+        return new SyntheticClasspath(directory, jars, application, List.copyOf(mapperClassNames));
+    }
+
+    public List<Path> jars() {
+        return jars;
+    }
+
+    /**
+     * 应用中的mapper接口
+     * @return
+     */
+    public List<String> mapperClassNames() {
+        return mapperClassNames;
+    }
+
+    /**
+     * 应用目录（如果有）和所有jar
+     * @return
+     */
+    public URL[] urls() {
+        List<Path> paths = new ArrayList<>(jars.size() + 1);
+        if (application != null) paths.add(application);
+        paths.addAll(jars);
+        URL[] urls = new URL[paths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = paths.get(i).toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 新的类加载器，{@code ClasspathIndex}按类加载器缓存，每次使用新的类加载器才能测量完整的扫描耗时
+     * @param parent
+     * @return
+     */
+    public URLClassLoader newClassLoader(ClassLoader parent) {
+        return new URLClassLoader(urls(), parent);
+    }
+
+    private static void writeApplication(Path application, int mapperCount, int dtoCount, List<String> mapperClassNames) throws IOException {
+        String appPath = APP_PACKAGE.replace('.', '/');
+        write(application.resolve(appPath + "/App.class"), applicationClassBytes(appPath + "/App"));
+        for (int i = 0; i < dtoCount; i++) {
+            write(application.resolve(appPath + "/dto/Dto" + i + ".class"), dtoClassBytes(appPath + "/dto/Dto" + i));
+        }
+        for (int i = 0; i < mapperCount; i++) {
+            String mapperName = "Mapper" + i;
+            String mapperInternalName = MAPPER_PACKAGE.replace('.', '/') + "/" + mapperName;
+            String dtoInternalName = appPath + "/dto/Dto" + (i % dtoCount);
+            write(application.resolve(mapperInternalName + ".class"), mapperClassBytes(mapperInternalName, dtoInternalName));
+            write(application.resolve("mapper/" + mapperName + ".xml"),
+                    mapperXml(mapperInternalName.replace('/', '.'), dtoInternalName.replace('/', '.'), i).getBytes(StandardCharsets.UTF_8));
+            mapperClassNames.add(mapperInternalName.replace('/', '.'));
+        }
+    }
+
+    private static void write(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+    private static void writeJar(Path jar, String basePath, int classCount, int packageCount) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (OutputStream out = Files.newOutputStream(jar); JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            for (int i = 0; i < classCount; i++) {
+                String internalName = basePath + "/p" + (i % packageCount) + "/C" + i;
+                jarOut.putNextEntry(new JarEntry(internalName + ".class"));
+                jarOut.write(classBytes(internalName));
+                jarOut.closeEntry();
+            }
+            jarOut.putNextEntry(new JarEntry(basePath + "/application.properties"));
+            jarOut.write("bench=true\n".getBytes());
+            jarOut.closeEntry();
+        }
+    }
+
+    /**
+     * 带一个字段和一个getter的简单类
+     */
+    static byte[] classBytes(String internalName) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PRIVATE, "value", "Ljava/lang/String;", null, null).visitEnd();
+        defaultConstructor(writer);
+        MethodVisitor getter = writer.visitMethod(Opcodes.ACC_PUBLIC, "getValue", "()Ljava/lang/String;", null, null);
+        getter.visitCode();
+        getter.visitVarInsn(Opcodes.ALOAD, 0);
+        getter.visitFieldInsn(Opcodes.GETFIELD, internalName, "value", "Ljava/lang/String;");
+        getter.visitInsn(Opcodes.ARETURN);
+        getter.visitMaxs(0, 0);
+        getter.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * 标注了{@code @SpringBootApplication}、带main方法的启动类
+     */
+    static byte[] applicationClassBytes(String internalName) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+        writer.visitAnnotation(SPRING_BOOT_APPLICATION, true).visitEnd();
+        defaultConstructor(writer);
+        MethodVisitor main = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+        main.visitCode();
+        main.visitInsn(Opcodes.RETURN);
+        main.visitMaxs(0, 0);
+        main.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * 可序列化、带id和name属性的DTO
+     */
+    static byte[] dtoClassBytes(String internalName) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object",
+                new String[]{"java/io/Serializable"});
+        defaultConstructor(writer);
+        property(writer, internalName, "id", "Ljava/lang/Long;");
+        property(writer, internalName, "name", "Ljava/lang/String;");
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * {@code Dto findById(Long id); List<Dto> findByName(String name); int insert(Dto dto);}
+     */
+    static byte[] mapperClassBytes(String internalName, String dtoInternalName) {
+        String dto = "L" + dtoInternalName + ";";
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, internalName, null, "java/lang/Object", null);
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "findById", "(Ljava/lang/Long;)" + dto, null, null).visitEnd();
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "findByName", "(Ljava/lang/String;)Ljava/util/List;",
+                "(Ljava/lang/String;)Ljava/util/List<" + dto + ">;", null).visitEnd();
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "insert", "(" + dto + ")I", null, null).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static String mapperXml(String namespace, String dtoClassName, int index) {
+        return """
+                <?xml version="1.0" encoding="UTF-8" ?>
+                <!DOCTYPE mapper PUBLIC "-//mybatis.org//DTD Mapper 3.0//EN" "https://mybatis.org/dtd/mybatis-3-mapper.dtd">
+                <mapper namespace="%1$s">
+                  <resultMap id="dtoMap" type="%2$s">
+                    <id property="id" column="id"/>
+                    <result property="name" column="name"/>
+                  </resultMap>
+                  <select id="findById" resultMap="dtoMap">select id, name from t_%3$d where id = #{id}</select>
+                  <select id="findByName" resultMap="dtoMap">
+                    select id, name from t_%3$d
+                    <where><if test="name != null">name like #{name}</if></where>
+                  </select>
+                  <insert id="insert" useGeneratedKeys="true" keyProperty="id">insert into t_%3$d(name) values (#{name})</insert>
+                </mapper>
+                """.formatted(namespace, dtoClassName, index);
+    }
+
+    private static void defaultConstructor(ClassWriter writer) {
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+    }
+
+    private static void property(ClassWriter writer, String internalName, String name, String descriptor) {
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        writer.visitField(Opcodes.ACC_PRIVATE, name, descriptor, null, null).visitEnd();
+        MethodVisitor getter = writer.visitMethod(Opcodes.ACC_PUBLIC, "get" + capitalized, "()" + descriptor, null, null);
+        getter.visitCode();
+        getter.visitVarInsn(Opcodes.ALOAD, 0);
+        getter.visitFieldInsn(Opcodes.GETFIELD, internalName, name, descriptor);
+        getter.visitInsn(Type.getType(descriptor).getOpcode(Opcodes.IRETURN));
+        getter.visitMaxs(0, 0);
+        getter.visitEnd();
+        MethodVisitor setter = writer.visitMethod(Opcodes.ACC_PUBLIC, "set" + capitalized, "(" + descriptor + ")V", null, null);
+        setter.visitCode();
+        setter.visitVarInsn(Opcodes.ALOAD, 0);
+        setter.visitVarInsn(Type.getType(descriptor).getOpcode(Opcodes.ILOAD), 1);
+        setter.visitFieldInsn(Opcodes.PUTFIELD, internalName, name, descriptor);
+        setter.visitInsn(Opcodes.RETURN);
+        setter.visitMaxs(0, 0);
+        setter.visitEnd();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delete(directory);
+    }
+
+    /**
+     * 递归删除目录
+     */
+    public static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+}
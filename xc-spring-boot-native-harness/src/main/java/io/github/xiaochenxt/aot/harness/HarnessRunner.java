@@ -0,0 +1,344 @@
+package io.github.xiaochenxt.aot.harness;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 原生镜像测试：按变体（全部注册，以及依次跳过每一项注册）编译示例应用，记录镜像大小、反射元数据大小、
+ * 首个请求的响应时间、峰值RSS和稳态吞吐量，结果写入json报告，用于对比不同版本
+ * <p>只依赖JDK，先{@code mvn install}本项目，再在本模块目录执行：</p>
+ * <pre>
+ * mvn compile
+ * java -cp target/classes io.github.xiaochenxt.aot.harness.HarnessRunner
+ * </pre>
+ * <p>系统属性：</p>
+ * <ul>
+ *     <li>{@code harness.variants}：逗号分隔的变体，baseline为全部注册，其余为{@code xc.aot.exclude}中的名称，默认全部</li>
+ *     <li>{@code harness.port}：示例应用端口，默认18080</li>
+ *     <li>{@code harness.warmup}、{@code harness.duration}：吞吐量的预热和测量秒数，默认10、20</li>
+ *     <li>{@code harness.threads}：请求线程数，默认4</li>
+ *     <li>{@code harness.mvn}：maven命令，默认mvn</li>
+ *     <li>{@code harness.report}：报告路径，默认target/harness/report.json</li>
+ * </ul>
+ * <p>峰值RSS读取/proc/[pid]/status中的VmHWM，只支持linux，其他系统记为-1</p>
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public final class HarnessRunner {
+
+    private static final List<String> VARIANTS = List.of("baseline", "all-runtime-hints", "caffeine", "lettuce", "font",
+            "aliyuncs", "captcha", "phonenumbers", "serialized-lambda", "reachable-reflection");
+
+    private static final String FIRST_REQUEST_PATH = "/users/1";
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final Path module;
+
+    private final Path output;
+
+    private final int port = Integer.getInteger("harness.port", 18080);
+
+    private final int warmupSeconds = Integer.getInteger("harness.warmup", 10);
+
+    private final int durationSeconds = Integer.getInteger("harness.duration", 20);
+
+    private final int threads = Integer.getInteger("harness.threads", 4);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private HarnessRunner(Path module) {
+        this.module = module;
+        this.output = module.resolve("target").resolve("harness");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path module = Path.of(HarnessRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getParent().getParent();
+        String variants = System.getProperty("harness.variants");
+        List<String> names = variants == null || variants.isBlank() ? VARIANTS
+                : Arrays.stream(variants.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+        HarnessRunner runner = new HarnessRunner(module);
+        Files.createDirectories(runner.output);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String name : names) {
+            System.out.println("harness variant " + name);
+            Map<String, Object> result = runner.run(name);
+            results.add(result);
+            System.out.println("harness result " + Json.write(result));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("commit", runner.commit());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("warmupSeconds", runner.warmupSeconds);
+        settings.put("durationSeconds", runner.durationSeconds);
+        settings.put("threads", runner.threads);
+        settings.put("firstRequestPath", FIRST_REQUEST_PATH);
+        report.put("settings", settings);
+        report.put("variants", results);
+        String reportPath = System.getProperty("harness.report");
+        Path reportFile = reportPath == null ? runner.output.resolve("report.json") : Path.of(reportPath);
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Files.writeString(reportFile, Json.write(report) + System.lineSeparator());
+        System.out.println("harness report " + reportFile.toAbsolutePath());
+    }
+
+    private Map<String, Object> run(String name) {
+        String exclude = "baseline".equals(name) ? "" : name;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("exclude", exclude);
+        Path variantDirectory = output.resolve(name);
+        try {
+            Files.createDirectories(variantDirectory);
+            Path image = build(exclude, variantDirectory);
+            result.put("imageBytes", Files.size(image));
+            result.put("reflectionMetadataBytes", reflectionMetadataBytes());
+            result.putAll(reflectionCounts(variantDirectory.resolve("build-output.json")));
+            measure(image, variantDirectory, result);
+            result.put("status", "ok");
+        } catch (Exception e) {
+            result.put("status", "failed");
+            result.put("error", e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 编译原生镜像，镜像和构建输出复制到变体目录，避免被下一个变体覆盖
+     */
+    private Path build(String exclude, Path variantDirectory) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(System.getProperty("harness.mvn", "mvn"), "-B", "-Pnative", "-DskipTests",
+                "-Dxc.aot.exclude=" + exclude, "package"));
+        Process process = new ProcessBuilder(command).directory(module.toFile())
+                .redirectErrorStream(true).redirectOutput(variantDirectory.resolve("build.log").toFile()).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("native build failed, see " + variantDirectory.resolve("build.log"));
+        }
+        Path target = module.resolve("target");
+        Path image = target.resolve(isWindows() ? "sample.exe" : "sample");
+        Path copy = variantDirectory.resolve(image.getFileName());
+        Files.copy(image, copy, StandardCopyOption.REPLACE_EXISTING);
+        Path buildOutput = target.resolve("build-output.json");
+        if (Files.exists(buildOutput)) {
+            Files.copy(buildOutput, variantDirectory.resolve("build-output.json"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    /**
+     * spring aot生成的反射元数据文件的总大小
+     */
+    private long reflectionMetadataBytes() throws IOException {
+        Path directory = module.resolve("target/spring-aot/main/resources/META-INF/native-image");
+        if (!Files.isDirectory(directory)) return 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            long total = 0;
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                if (fileName.equals("reflect-config.json") || fileName.equals("reachability-metadata.json")) total += Files.size(file);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * native-image构建输出中注册了反射的类型、字段、方法数量
+     */
+    private static Map<String, Object> reflectionCounts(Path buildOutput) throws IOException {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        if (!Files.exists(buildOutput)) return counts;
+        String json = Files.readString(buildOutput);
+        for (String kind : List.of("types", "fields", "methods")) {
+            Matcher matcher = Pattern.compile("\"" + kind + "\"\\s*:\\s*\\{[^}]*\"reflection\"\\s*:\\s*(\\d+)").matcher(json);
+            if (matcher.find()) counts.put("reflection" + Character.toUpperCase(kind.charAt(0)) + kind.substring(1), Long.parseLong(matcher.group(1)));
+        }
+        return counts;
+    }
+
+    private void measure(Path image, Path variantDirectory, Map<String, Object> result) throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + port + FIRST_REQUEST_PATH);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(image.toString(), "--server.port=" + port).directory(variantDirectory.toFile())
+                .redirectErrorStream(true).redirectOutput(variantDirectory.resolve("run.log").toFile()).start();
+        try {
+            result.put("timeToFirstRequestMillis", firstRequest(uri, process, start));
+            result.put("throughputPerSecond", throughput(uri));
+            result.put("peakRssBytes", peakRss(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, java.util.concurrent.TimeUnit.SECONDS)) process.destroyForcibly();
+        }
+    }
+
+    /**
+     * 从启动进程到首个请求成功返回的时间
+     */
+    private long firstRequest(URI uri, Process process, long start) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        long deadline = start + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException("application exited with " + process.exitValue() + ", see run.log");
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) return Duration.ofNanos(System.nanoTime() - start).toMillis();
+                throw new IllegalStateException("first request returned " + response.statusCode() + ", see run.log");
+            } catch (IOException e) {
+                Thread.sleep(5);
+            }
+        }
+        throw new IllegalStateException("application did not respond within " + STARTUP_TIMEOUT.toSeconds() + "s");
+    }
+
+    /**
+     * 预热后测量每秒成功的请求数
+     */
+    private double throughput(URI uri) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        LongAdder completed = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200 && measuring.get()) completed.increment();
+                    } catch (IOException e) {
+                        // 计入失败，不影响成功请求数
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        Thread.sleep(warmupSeconds * 1000L);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(durationSeconds * 1000L);
+        measuring.set(false);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(10, java.util.concurrent.TimeUnit.SECONDS);
+        return Math.round(completed.sum() / seconds * 10) / 10.0;
+    }
+
+    private static long peakRss(long pid) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {}
+        return -1;
+    }
+
+    private String commit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "HEAD").directory(module.toFile()).redirectErrorStream(true).start();
+            String commit = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return process.waitFor() == 0 ? commit : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+    }
+
+    /**
+     * 报告只包含Map、List、字符串、数字和null，不引入json库
+     */
+    static final class Json {
+
+        private Json() {
+        }
+
+        static String write(Object value) {
+            StringBuilder builder = new StringBuilder();
+            write(builder, value, 0);
+            return builder.toString();
+        }
+
+        private static void write(StringBuilder builder, Object value, int indent) {
+            if (value == null) {
+                builder.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                builder.append(value);
+            } else if (value instanceof Map<?, ?> map) {
+                builder.append('{');
+                String separator = "\n";
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    builder.append(separator).append("  ".repeat(indent + 1));
+                    string(builder, String.valueOf(entry.getKey()));
+                    builder.append(": ");
+                    write(builder, entry.getValue(), indent + 1);
+                    separator = ",\n";
+                }
+                if (!map.isEmpty()) builder.append('\n').append("  ".repeat(indent));
+                builder.append('}');
+            } else if (value instanceof Collection<?> collection) {
+                builder.append('[');
+                String separator = "\n";
+                for (Object element : collection) {
+                    builder.append(separator).append("  ".repeat(indent + 1));
+                    write(builder, element, indent + 1);
+                    separator = ",\n";
+                }
+                if (!collection.isEmpty()) builder.append('\n').append("  ".repeat(indent));
+                builder.append(']');
+            } else {
+                string(builder, value.toString());
+            }
+        }
+
+        private static void string(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> builder.append("\\\"");
+                    case '\\' -> builder.append("\\\\");
+                    case '\n' -> builder.append("\\n");
+                    case '\r' -> builder.append("\\r");
+                    case '\t' -> builder.append("\\t");
+                    default -> {
+                        if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                        else builder.append(c);
+                    }
+                }
+            }
+            builder.append('"');
+        }
+
+    }
+
+}
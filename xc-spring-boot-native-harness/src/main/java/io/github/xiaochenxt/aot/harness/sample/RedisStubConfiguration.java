@@ -0,0 +1,20 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import io.lettuce.core.RedisClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 只创建lettuce客户端而不建立连接，使lettuce相关的类进入镜像，测试时不需要redis服务
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@Configuration(proxyBeanMethods = false)
+public class RedisStubConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    RedisClient redisClient() {
+        return RedisClient.create("redis://localhost:6379");
+    }
+
+}
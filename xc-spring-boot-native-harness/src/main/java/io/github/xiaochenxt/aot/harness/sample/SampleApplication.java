@@ -0,0 +1,20 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+
+/**
+ * 测试用的示例应用：spring mvc + mybatis（h2内存库）+ caffeine缓存 + lettuce客户端（不连接redis）
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@EnableCaching
+@SpringBootApplication
+public class SampleApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(SampleApplication.class, args);
+    }
+
+}
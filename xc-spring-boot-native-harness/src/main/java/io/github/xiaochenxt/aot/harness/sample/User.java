@@ -0,0 +1,41 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import java.io.Serializable;
+
+/**
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+public class User implements Serializable {
+
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+}
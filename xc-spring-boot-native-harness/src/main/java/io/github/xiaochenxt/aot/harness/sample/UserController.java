@@ -0,0 +1,33 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@RestController
+public class UserController {
+
+    private final UserService userService;
+
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    @GetMapping("/users/{id}")
+    public User user(@PathVariable Long id) {
+        return userService.findById(id);
+    }
+
+    @GetMapping("/users")
+    public List<User> users(@RequestParam(required = false) String name) {
+        return userService.findByName(name);
+    }
+
+}
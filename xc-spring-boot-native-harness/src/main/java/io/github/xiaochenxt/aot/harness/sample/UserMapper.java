@@ -0,0 +1,19 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@Mapper
+public interface UserMapper {
+
+    User findById(Long id);
+
+    List<User> findByName(@Param("name") String name);
+
+}
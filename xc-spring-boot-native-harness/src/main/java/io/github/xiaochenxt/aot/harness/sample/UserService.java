@@ -0,0 +1,30 @@
+package io.github.xiaochenxt.aot.harness.sample;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * @author xiaochen
+ * @since 2026/10/17
+ */
+@Service
+public class UserService {
+
+    private final UserMapper userMapper;
+
+    public UserService(UserMapper userMapper) {
+        this.userMapper = userMapper;
+    }
+
+    @Cacheable("users")
+    public User findById(Long id) {
+        return userMapper.findById(id);
+    }
+
+    public List<User> findByName(String name) {
+        return userMapper.findByName(name);
+    }
+
+}
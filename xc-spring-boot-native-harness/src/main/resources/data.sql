@@ -0,0 +1,3 @@
+merge into t_user (id, name, email) values (1, 'alice', 'alice@example.com');
+merge into t_user (id, name, email) values (2, 'bob', 'bob@example.com');
+merge into t_user (id, name, email) values (3, 'carol', 'carol@example.com');
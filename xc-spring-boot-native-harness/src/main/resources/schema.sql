@@ -0,0 +1,5 @@
+create table if not exists t_user (
+    id bigint primary key,
+    name varchar(64) not null,
+    email varchar(128)
+);